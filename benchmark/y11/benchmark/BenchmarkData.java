@@ -0,0 +1,100 @@
+package y11.benchmark;
+
+import y11.batch.DataGenerator;
+import y11.data.EncodedExampleSet;
+import y11.manager.state.LeanViewState;
+import y11.manager.state.ViewState;
+import y11.matrix.CounterPool;
+import y11.matrix.CounterThread;
+import y11.matrix.Matrix;
+import y11.matrix.OperationContext;
+import y11.matrix.PatternEngine;
+
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.operator.OperatorException;
+
+/**
+ * Builds the datasets of the benchmarks: a nominal target and nominal
+ * predictors whose values follow a Zipf distribution, see DataGenerator.
+ * Datasets are the same for the same parameters, so that results of
+ * different versions compare.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class BenchmarkData {
+
+	public static final String TARGET = DataGenerator.TARGET;
+	public static final String PREDICTOR = DataGenerator.PREDICTOR;
+	public static final int TARGET_VALUES = 5;
+
+	private static final long SEED = 42;
+
+	/**
+	 * Creates the examples of a benchmark with the DataGenerator. The first
+	 * attribute is the target, the others are named PREDICTOR followed by
+	 * their index.
+	 * 
+	 * @param rows
+	 *            the number of examples
+	 * @param columns
+	 *            the number of attributes, including the target
+	 * @param cardinality
+	 *            the number of values of every predictor
+	 * @param skew
+	 *            the Zipf exponent of the values, 0 for uniform values
+	 * @return the examples
+	 */
+	public static ExampleSet createExampleSet(int rows, int columns,
+			int cardinality, double skew) {
+		DataGenerator generator = new DataGenerator();
+		generator.setRows(rows);
+		generator.setNumPredictors(columns - 1);
+		generator.setTargetValues(TARGET_VALUES);
+		generator.setCardinality(cardinality);
+		generator.setSkew(skew);
+		generator.setSeed(SEED);
+		return generator.generateExampleSet();
+	}
+
+	/**
+	 * Creates the examples of a benchmark and runs them through the
+	 * PreProcessing pipeline.
+	 * 
+	 * @return an engine holding the encoded examples
+	 * @throws OperatorException
+	 * @see #createExampleSet(int, int, int, double)
+	 */
+	public static PatternEngine createEngine(int rows, int columns,
+			int cardinality, double skew) throws OperatorException {
+		return new PatternEngine(createExampleSet(rows, columns, cardinality,
+				skew));
+	}
+
+	/**
+	 * Creates the view of all examples of an engine, with TARGET as target.
+	 * 
+	 * @param engine
+	 * @return the view
+	 */
+	public static ViewState createView(PatternEngine engine) {
+		return new LeanViewState(new EncodedExampleSet(engine.getStore()),
+				engine.getMatrixInfo(), null, null, TARGET);
+	}
+
+	/**
+	 * Counts every column of a view on the CounterPool, one task per column.
+	 * 
+	 * @param view
+	 * @return the Matrix of the view
+	 */
+	public static Matrix count(ViewState view) {
+		Matrix matrix = new Matrix(view);
+		CounterThread counter = new CounterThread(view, matrix,
+				OperationContext.createHeadless());
+		CounterPool.get().invoke(
+				counter.new ColumnTask(null, 0, view.getMatrixInfo()
+						.getNumAttributes()));
+		return matrix;
+	}
+}
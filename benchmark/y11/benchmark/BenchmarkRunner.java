@@ -0,0 +1,95 @@
+package y11.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import y11.matrix.CountKernel;
+
+/**
+ * Runs the benchmarks and writes their results to a JSON or CSV file, to be
+ * compared with the results of other versions. The benchmarks live in their
+ * own source directory, benchmark/, so that the plugin builds without JMH.
+ * They are compiled against the plugin's classes and jmh-core, with
+ * jmh-generator-annprocess, and run with all three on the class path.
+ * 
+ * <pre>
+ * java y11.benchmark.BenchmarkRunner [options] [regex]
+ *   -o file         the results file (default patternexplorer-jmh.json)
+ *   -format f       json or csv (default: the extension of the file)
+ *   -p name=v,...   overrides the values of a parameter, e.g. -p rows=1000000
+ *   regex           runs only the matching benchmarks (default: all)
+ * </pre>
+ * 
+ * Run with --add-modules jdk.incubator.vector to time the VectorCountKernel
+ * too, the module is then added to the forked benchmarks as well.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class BenchmarkRunner {
+
+	private static final String DEFAULT_RESULTS = "patternexplorer-jmh.json";
+	private static final String ALL = BenchmarkRunner.class.getPackage()
+			.getName()
+			+ ".*Benchmark.*";
+
+	/**
+	 * Runs the benchmarks from the command line.
+	 * 
+	 * @param args
+	 *            see the class comment
+	 * @throws RunnerException
+	 */
+	public static void main(String[] args) throws RunnerException {
+		String results = DEFAULT_RESULTS;
+		String format = null;
+		String include = ALL;
+		List<String[]> params = new ArrayList<String[]>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-o")) {
+					results = args[++i];
+				} else if (args[i].equals("-format")) {
+					format = args[++i];
+				} else if (args[i].equals("-p")) {
+					String[] param = args[++i].split("=", 2);
+					params.add(new String[] { param[0], param[1] });
+				} else {
+					include = args[i];
+				}
+			}
+		} catch (RuntimeException e) {
+			usage("bad option: " + e.getMessage());
+		}
+		if (format == null) {
+			format = results.toLowerCase().endsWith(".csv") ? "csv" : "json";
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().include(include)
+				.result(results).resultFormat(
+						format.equalsIgnoreCase("csv") ? ResultFormatType.CSV
+								: ResultFormatType.JSON);
+		for (String[] param : params) {
+			options.param(param[0], param[1].split(","));
+		}
+		if (ModuleLayer.boot().findModule(CountKernel.VECTOR_MODULE)
+				.isPresent()) {
+			options.jvmArgsAppend("--add-modules=" + CountKernel.VECTOR_MODULE);
+		}
+		new Runner(options.build()).run();
+		System.err.println("wrote " + results);
+	}
+
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("usage: BenchmarkRunner [-o file] [-format json|csv]"
+				+ " [-p name=v,...] [regex]");
+		System.exit(2);
+	}
+}
@@ -0,0 +1,103 @@
+package y11.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import y11.manager.state.ViewState;
+import y11.matrix.CounterPool;
+import y11.matrix.CounterThread;
+import y11.matrix.Matrix;
+import y11.matrix.OperationContext;
+import y11.matrix.UserCancelledException;
+import y11.operator.PatternExplorerParameters;
+
+import com.rapidminer.operator.OperatorException;
+
+/**
+ * Times counting the examples: one column with CounterThread.count(), and all
+ * columns of a matrix on the CounterPool with the specified number of
+ * threads. Both publish to a new Matrix, so the times include building the
+ * models of the counted columns.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+public class CountBenchmark {
+
+	@Param( { "100000", "1000000" })
+	public int rows;
+
+	@Param( { "20" })
+	public int columns;
+
+	@Param( { "6", "100", "10000" })
+	public int cardinality;
+
+	@Param( { "0.0", "1.2" })
+	public double skew;
+
+	@Param( { "1", "4" })
+	public int threads;
+
+	private ViewState view;
+
+	@Setup(Level.Trial)
+	public void setUp() throws OperatorException {
+		PatternExplorerParameters.setCores(threads);
+		view = BenchmarkData.createView(BenchmarkData.createEngine(rows,
+				columns, cardinality, skew));
+	}
+
+	/**
+	 * Counts the first predictor. Does not depend on the number of threads.
+	 */
+	@Benchmark
+	public Matrix countColumn() throws UserCancelledException {
+		Matrix matrix = new Matrix(view);
+		new CounterThread(view, matrix, OperationContext.createHeadless())
+				.count(1);
+		return matrix;
+	}
+
+	/**
+	 * Counts every column, one task per column.
+	 */
+	@Benchmark
+	public Matrix countAll() {
+		return BenchmarkData.count(view);
+	}
+
+	/**
+	 * Counts every column in cache-sized blocks of columns, as for large
+	 * matrices.
+	 */
+	@Benchmark
+	public Matrix countBlocks() {
+		Matrix matrix = new Matrix(view);
+		CounterThread counter = new CounterThread(view, matrix,
+				OperationContext.createHeadless());
+		int[][] blocks = CounterThread.partitionColumns(view.getMatrixInfo(),
+				view.getMatrixInfo().getAttribute(BenchmarkData.TARGET));
+		CounterPool.get().invoke(
+				counter.new ColumnTask(blocks, 0, blocks.length));
+		return matrix;
+	}
+}
@@ -0,0 +1,80 @@
+package y11.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import y11.data.ColumnStore;
+import y11.data.EncodedColumn;
+import y11.data.EncodedExampleSet;
+import y11.matrix.Matrix;
+import y11.models.AttributeValuePair;
+
+import com.rapidminer.operator.OperatorException;
+
+/**
+ * Times selecting the examples of a drill-down with
+ * Matrix.createDrilledDownExampleSet(), including applying the selection,
+ * which is otherwise deferred until the rows are needed.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+public class DrillDownBenchmark {
+
+	@Param( { "100000", "1000000" })
+	public int rows;
+
+	@Param( { "6", "100" })
+	public int cardinality;
+
+	@Param( { "0.0", "1.2" })
+	public double skew;
+
+	@Param( { "true", "false" })
+	public boolean removeSingle;
+
+	private EncodedExampleSet exampleSet;
+	private AttributeValuePair avp;
+
+	@Setup(Level.Trial)
+	public void setUp() throws OperatorException {
+		ColumnStore store = BenchmarkData.createEngine(rows, 2, cardinality,
+				skew).getStore();
+		exampleSet = new EncodedExampleSet(store);
+		String name = BenchmarkData.PREDICTOR + 1;
+		String value = "v0"; // the most frequent value
+		int code = store.getAttribute(name).getMapping().getIndex(value);
+		EncodedColumn column = store.getColumn(name);
+		int count = 0;
+		for (int row = 0; row < store.size(); row++) {
+			if (column.get(row) == code) {
+				count++;
+			}
+		}
+		avp = new AttributeValuePair(name, value, count);
+	}
+
+	@Benchmark
+	public int[] drillDown() {
+		return Matrix.createDrilledDownExampleSet(exampleSet, avp,
+				removeSingle).getRows();
+	}
+}
@@ -0,0 +1,84 @@
+package y11.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import y11.batch.KernelTest;
+import y11.matrix.CountKernel;
+
+/**
+ * Times the counting kernels alone, on codes that are already decoded, so
+ * that the kernels compare without the cost of decoding and building models.
+ * PatternExplorerSettings.COUNT_KERNEL should be the kernel that is fastest
+ * for the cardinalities and skews of typical datasets. Before timing, every
+ * kernel is checked to count like the ScalarCountKernel, see KernelTest. The
+ * VectorCountKernel is only timed if the jdk.incubator.vector module is
+ * resolved, see BenchmarkRunner.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KernelBenchmark {
+
+	private static final int EXAMPLES = 1 << 20;
+	private static final int TARGET_VALUES = BenchmarkData.TARGET_VALUES;
+
+	@Param( { "SCALAR_KERNEL", "SPLIT_KERNEL", "VECTOR_KERNEL" })
+	public String kernel;
+
+	@Param( { "2", "6", "20", "100", "1000" })
+	public int cardinality;
+
+	@Param( { "0.0", "1.2", "3.0" })
+	public double skew;
+
+	private CountKernel countKernel;
+	private int[] tCodes;
+	private int[] codes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		countKernel = CountKernel.get(kernel);
+		if (countKernel == null) {
+			throw new IllegalArgumentException("Unknown kernel " + kernel
+					+ ", the VECTOR_KERNEL needs --add-modules "
+					+ CountKernel.VECTOR_MODULE);
+		}
+		Random random = new Random(cardinality);
+		tCodes = KernelTest.createCodes(TARGET_VALUES, 0.0, EXAMPLES, random);
+		codes = KernelTest.createCodes(cardinality, skew, EXAMPLES, random);
+		if (!KernelTest.agrees(countKernel, TARGET_VALUES, cardinality,
+				tCodes, codes)) {
+			throw new IllegalStateException(kernel + " counts wrong");
+		}
+	}
+
+	/**
+	 * Counts EXAMPLES examples of one column in chunks, as CounterThread
+	 * does.
+	 */
+	@Benchmark
+	public int[][] count() {
+		return KernelTest.count(countKernel, TARGET_VALUES, cardinality,
+				tCodes, codes);
+	}
+}
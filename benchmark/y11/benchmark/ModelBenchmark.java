@@ -0,0 +1,107 @@
+package y11.benchmark;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import y11.batch.DataGenerator;
+import y11.manager.state.MatrixInfo;
+import y11.models.AttributeValuePair;
+import y11.models.histogram.AttributeHistogramModel;
+import y11.models.histogram.DefaultHistogramModel;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.ExampleSet;
+
+/**
+ * Times the work done per column once it is counted: compacting the counts
+ * to the values left after drill-downs (MatrixInfo.compact(), which condenses
+ * them in MatrixInfo.ColumnInfo), building the attribute model with its
+ * top-k values, and marking the significant bars of a model.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true" })
+public class ModelBenchmark {
+
+	private static final int ROWS = 1000000;
+
+	@Param( { "10", "100", "10000" })
+	public int cardinality;
+
+	@Param( { "0.0", "1.2" })
+	public double skew;
+
+	private MatrixInfo info; // of all values
+	private MatrixInfo drilled; // without the first target and value
+	private Attribute target;
+	private Attribute attribute;
+	private int[][] countsLong;
+	private int[] aCounts;
+	private AttributeHistogramModel aModel;
+	private DefaultHistogramModel model;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ExampleSet exampleSet = BenchmarkData.createExampleSet(0, 2,
+				cardinality, skew);
+		info = new MatrixInfo(exampleSet, new HashMap<String, Object>());
+		target = info.getAttribute(BenchmarkData.TARGET);
+		attribute = info.getAttribute(1);
+		drilled = new MatrixInfo(info, new AttributeValuePair(
+				BenchmarkData.TARGET, "v0", 0), true);
+		drilled = new MatrixInfo(drilled, new AttributeValuePair(attribute
+				.getName(), "v0", 0), true);
+
+		double[] values = DataGenerator.zipf(cardinality, skew);
+		Random random = new Random(cardinality);
+		countsLong = new int[BenchmarkData.TARGET_VALUES][cardinality];
+		aCounts = new int[cardinality];
+		for (int t = 0; t < countsLong.length; t++) {
+			for (int v = 0; v < cardinality; v++) {
+				double p = values[v] - ((v == 0) ? 0 : values[v - 1]);
+				countsLong[t][v] = (int) (p * ROWS / countsLong.length)
+						+ random.nextInt(100);
+				aCounts[v] += countsLong[t][v];
+			}
+		}
+		aModel = new AttributeHistogramModel(aCounts, attribute, info);
+		model = new DefaultHistogramModel(countsLong[0], attribute, target,
+				"v0", info);
+	}
+
+	@Benchmark
+	public int[][] compact() {
+		return drilled.compact(target, attribute, countsLong);
+	}
+
+	@Benchmark
+	public AttributeHistogramModel attributeModel() {
+		return new AttributeHistogramModel(aCounts, attribute, info);
+	}
+
+	@Benchmark
+	public DefaultHistogramModel setIsSignificant() {
+		model.setIsSignificant(aModel);
+		return model;
+	}
+}
@@ -0,0 +1,120 @@
+package y11.benchmark;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import y11.GUI.GUISettings;
+import y11.GUI.canvas.MatrixRenderer;
+import y11.click.ClickableRegionMap;
+import y11.matrix.Matrix;
+
+import com.rapidminer.operator.OperatorException;
+
+/**
+ * Times painting a matrix offscreen into a screen-sized image, both the first
+ * paint of a new matrix, which creates its graphs, and a repaint, as well as
+ * looking up the graphs under the mouse in the ClickableRegionMap filled by
+ * the paint.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true" })
+public class RenderBenchmark {
+
+	private static final int ROWS = 100000;
+	private static final int WIDTH = 1920;
+	private static final int HEIGHT = 1080;
+	private static final int POINTS = 1024;
+
+	@Param( { "10", "50" })
+	public int columns;
+
+	@Param( { "6", "20" })
+	public int cardinality;
+
+	private Matrix matrix;
+	private MatrixRenderer renderer;
+	private BufferedImage image;
+	private Graphics2D graphics;
+	private Point[] points; // mouse positions over the painted matrix
+
+	@Setup(Level.Trial)
+	public void setUp() throws OperatorException {
+		matrix = BenchmarkData.count(BenchmarkData.createView(BenchmarkData
+				.createEngine(ROWS, columns, cardinality, 1.0)));
+		renderer = new MatrixRenderer();
+		renderer.setScale(GUISettings.ZOOM_DEFAULT_SCALE);
+		renderer.setModel(matrix);
+		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+		renderer.paintComponent(graphics);
+
+		Dimension dim = renderer.getDim();
+		Random random = new Random(columns);
+		points = new Point[POINTS];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Point(random.nextInt(Math.max(dim.width, 1)),
+					random.nextInt(Math.max(dim.height, 1)));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	/**
+	 * Paints a matrix for the first time, creating all of its graphs.
+	 */
+	@Benchmark
+	public BufferedImage paintNew() {
+		renderer.setModel(matrix);
+		renderer.paintComponent(graphics);
+		return image;
+	}
+
+	/**
+	 * Paints a matrix again, e.g. while scrolling.
+	 */
+	@Benchmark
+	public BufferedImage repaint() {
+		renderer.paintComponent(graphics);
+		return image;
+	}
+
+	/**
+	 * Looks up POINTS mouse positions.
+	 */
+	@Benchmark
+	public void clickMapGet(Blackhole blackhole) {
+		ClickableRegionMap clickMap = renderer.getClickMap();
+		for (Point p : points) {
+			blackhole.consume(clickMap.get(p));
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package y11.matrix;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A counting kernel using the Vector API, for columns with few counts, e.g. a
+ * two-valued target and a few values. Computes the cells, target * vals +
+ * value, of a vector of examples at a time, compares the vector against every
+ * cell and adds the matches to a vector of counts per cell, one count per
+ * lane, so that repeated values never stall on incrementing the same count.
+ * The lanes are summed up when the table is finished. The comparisons grow
+ * with the number of cells, so columns with more than MAX_CELLS counts, about
+ * where the SplitCountKernel gets faster, are counted by the SplitCountKernel.
+ * <p>
+ * Lives in its own source directory, since it needs the jdk.incubator.vector
+ * module to compile and to run:
+ * 
+ * <pre>
+ * javac --add-modules jdk.incubator.vector ... vector/y11/matrix/*.java
+ * java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * 
+ * CountKernel only registers it when the module is resolved, so the plugin
+ * runs without it.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class VectorCountKernel extends CountKernel {
+
+	public static final String NAME = "VECTOR_KERNEL";
+	private static final VectorSpecies<Integer> SPECIES =
+			IntVector.SPECIES_PREFERRED;
+	private static final CountKernel THIS = new VectorCountKernel(NAME);
+
+	private static final int LANES = SPECIES.length();
+	private static final int MAX_CELLS = LANES / 2;
+
+	/**
+	 * Gets the only VectorCountKernel instance.
+	 * 
+	 * @return the CountKernel instance
+	 */
+	public static CountKernel get() {
+		return THIS;
+	}
+
+	/**
+	 * Creates a new VectorCountKernel with the specified name
+	 * 
+	 * @param name
+	 *            the CountKernel name
+	 */
+	public VectorCountKernel(String name) {
+		super(name);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CountTable newTable(int[][] counts) {
+		int cells = counts.length * counts[0].length;
+		if (cells > MAX_CELLS) {
+			return SplitCountKernel.get().newTable(counts);
+		}
+		return new CompareTable(counts);
+	}
+
+	/**
+	 * A flat table of LANES counts per cell, laid out one cell after the
+	 * other.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private static class CompareTable extends CountTable {
+
+		private int[][] counts;
+		private int[] flat;
+		private int vals;
+		private int cells;
+
+		public CompareTable(int[][] counts) {
+			this.counts = counts;
+			this.vals = counts[0].length;
+			this.cells = counts.length * vals;
+			this.flat = new int[cells * LANES];
+		}
+
+		@Override
+		public void add(int[] tCodes, int[] codes, int length) {
+			int[] flat = this.flat;
+			int vals = this.vals;
+			int cells = this.cells;
+			int bound = SPECIES.loopBound(length);
+			int j = 0;
+			for (; j < bound; j += LANES) {
+				IntVector cell = IntVector.fromArray(SPECIES, tCodes, j).mul(
+						vals).add(IntVector.fromArray(SPECIES, codes, j));
+				for (int c = 0; c < cells; c++) {
+					// matching lanes are -1 in the vector of the mask
+					int at = c * LANES;
+					IntVector.fromArray(SPECIES, flat, at).sub(
+							(IntVector) cell.compare(VectorOperators.EQ, c)
+									.toVector()).intoArray(flat, at);
+				}
+			}
+			for (; j < length; j++) {
+				flat[(tCodes[j] * vals + codes[j]) * LANES]++;
+			}
+		}
+
+		@Override
+		public void finish() {
+			for (int t = 0; t < counts.length; t++) {
+				int[] row = counts[t];
+				for (int v = 0; v < vals; v++) {
+					int at = (t * vals + v) * LANES;
+					row[v] += IntVector.fromArray(SPECIES, flat, at).reduceLanes(
+							VectorOperators.ADD);
+				}
+			}
+			flat = null;
+		}
+	}
+}
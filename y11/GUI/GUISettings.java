@@ -41,6 +41,7 @@ public abstract class GUISettings {
 	public static final int HISTOGRAM_META_BAR_COLOR = 0xA8BFFF;
 	public static final int HISTOGRAM_SIGMA_BAR_COLOR = 0xFF8C66;
 	public static final int HISTOGRAM_BACKGROUND_COLOR = 0xFFFFFF;
+	public static final int HISTOGRAM_PLACEHOLDER_COLOR = 0xEBEBEB;
 	public static final int LABEL_COLOR = 0x636363;
 	public static final int TITLE_LABEL_COLOR = 0x3D3D3D;
 	public static final int SIGMA_LABEL_COLOR = 0x6633FF;
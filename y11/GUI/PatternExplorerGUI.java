@@ -38,7 +38,7 @@ import y11.manager.Zoom;
 import y11.manager.loader.DefaultViewLoader;
 import y11.manager.loader.FastViewLoader;
 import y11.manager.loader.LeanViewLoader;
-import y11.matrix.ProgressManager;
+import y11.matrix.OperationContext;
 
 import com.rapidminer.example.ExampleSet;
 
@@ -160,7 +160,7 @@ public class PatternExplorerGUI extends JPanel {
 		// progress monitor
 		progressMonitor = new ProgressMonitor(this,
 				"Completing the requested operation.", "", 0,
-				ProgressManager.COMPLETE);
+				OperationContext.COMPLETE);
 
 		// renderer settings
 		renderer.addMouseListener(graphsClickController);
@@ -495,10 +495,11 @@ public class PatternExplorerGUI extends JPanel {
 	 */
 	class BackButtonController implements ActionListener {
 		public void actionPerformed(ActionEvent e) {
-			new ProgressListener().start();
+			final OperationContext op = new OperationContext();
+			new ProgressListener(op).start();
 			new Thread(new Runnable() {
 				public void run() {
-					manager.doStepBack();
+					manager.doStepBack(op);
 				}
 			}).start();
 		}
@@ -512,10 +513,11 @@ public class PatternExplorerGUI extends JPanel {
 	 */
 	class ResetButtonController implements ActionListener {
 		public void actionPerformed(ActionEvent e) {
-			new ProgressListener().start();
+			final OperationContext op = new OperationContext();
+			new ProgressListener(op).start();
 			new Thread(new Runnable() {
 				public void run() {
-					manager.doReset();
+					manager.doReset(op);
 				}
 			}).start();
 		}
@@ -529,10 +531,11 @@ public class PatternExplorerGUI extends JPanel {
 	 */
 	class ForwardButtonController implements ActionListener {
 		public void actionPerformed(ActionEvent e) {
-			new ProgressListener().start();
+			final OperationContext op = new OperationContext();
+			new ProgressListener(op).start();
 			new Thread(new Runnable() {
 				public void run() {
-					manager.doStepForward();
+					manager.doStepForward(op);
 				}
 			}).start();
 		}
@@ -575,7 +578,8 @@ public class PatternExplorerGUI extends JPanel {
 			} else {
 				if (sigmaSlider.getValue() != manager
 						.getCurrentSigmaSliderValue()) {
-					manager.doChangeAndSetSigma(sigmaSlider.getValue());
+					manager.doChangeAndSetSigma(sigmaSlider.getValue(),
+							new OperationContext());
 					refreshUI();
 				}
 			}
@@ -594,10 +598,11 @@ public class PatternExplorerGUI extends JPanel {
 			final String selectedTarget = targetSelect.getSelectedItem()
 					.toString();
 			if (!selectedTarget.equals(manager.getSelectedTarget())) {
-				new ProgressListener().start();
+				final OperationContext op = new OperationContext();
+				new ProgressListener(op).start();
 				new Thread(new Runnable() {
 					public void run() {
-						manager.doChangeTarget(selectedTarget);
+						manager.doChangeTarget(selectedTarget, op);
 					}
 				}).start();				
 			}
@@ -629,10 +634,11 @@ public class PatternExplorerGUI extends JPanel {
 	class GraphsClickController implements MouseListener {
 
 		public void mouseClicked(final MouseEvent e) {
-			new ProgressListener().start();
+			final OperationContext op = new OperationContext();
+			new ProgressListener(op).start();
 			new Thread(new Runnable() {
 				public void run() {
-					manager.doGraphClicked(e.getPoint());
+					manager.doGraphClicked(e.getPoint(), op);
 				}
 			}).start();
 		}
@@ -688,11 +694,22 @@ public class PatternExplorerGUI extends JPanel {
 		public static final int INITIAL_WAIT = 100;
 		public static final int SLEEP_TIME = 50;
 
-		public ProgressListener() {
-			ProgressManager.resetProgress();
+		private OperationContext op; // the operation to monitor
+
+		public ProgressListener(OperationContext op) {
+			this.op = op;
 			setPriority(Thread.MAX_PRIORITY);
 		}
 
+		private String sampleNote() {
+			double fraction = op.getSampleFraction();
+			if (fraction >= 1) {
+				return "";
+			}
+			return ", showing a " + (int) Math.ceil(fraction * 100)
+					+ "% sample";
+		}
+
 		public void run() {
 			int pctComplete;
 			try {
@@ -701,13 +718,14 @@ public class PatternExplorerGUI extends JPanel {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
-			if (!ProgressManager.isComplete() && !progressMonitor.isCanceled()) {
+			if (!op.isComplete() && !progressMonitor.isCanceled()) {
 				setWaiting();
-				while (!ProgressManager.isComplete()
+				while (!op.isComplete()
 						&& !progressMonitor.isCanceled()) {
-					pctComplete = ProgressManager.getProgress();
+					pctComplete = op.getProgress();
 					progressMonitor.setProgress(pctComplete);
-					progressMonitor.setNote(pctComplete + "% complete");
+					progressMonitor.setNote(pctComplete + "% complete"
+							+ sampleNote());
 					try {
 						Thread.sleep(SLEEP_TIME);
 					} catch (InterruptedException e) {
@@ -716,7 +734,7 @@ public class PatternExplorerGUI extends JPanel {
 					}
 				}
 				if (progressMonitor.isCanceled()) {
-					ProgressManager.cancelOperation();
+					op.cancel();
 				}
 				progressMonitor.close();
 				setActive();
@@ -7,13 +7,19 @@ import java.awt.Graphics;
 import javax.swing.JPanel;
 
 import y11.GUI.GUISettings;
+import y11.GUI.histogram.AttributeHistogram;
+import y11.GUI.histogram.DefaultHistogram;
 import y11.GUI.histogram.Histogram;
+import y11.GUI.histogram.TargetHistogram;
 import y11.click.ClickableRegionMap;
 import y11.matrix.Matrix;
+import y11.metrics.Metrics;
+import y11.models.histogram.HistogramModel;
 
 /**
  * The histogram display component. Paints all components to be rendered on the
- * display including graphs and labels.
+ * display including graphs and labels. While a matrix is being counted, a
+ * placeholder is painted for every histogram not counted yet.
  * 
  * @author Caleb Sotelo
  * 
@@ -21,6 +27,8 @@ import y11.matrix.Matrix;
 public class MatrixRenderer extends JPanel {
 
 	private Matrix model;
+	private HistogramModel[][] columns; // the models of the graphs
+	private CanvasComponent[][] graphs;
 	private double scale;
 
 	private Dimension dim;
@@ -60,11 +68,12 @@ public class MatrixRenderer extends JPanel {
 	 * {@inheritDoc}
 	 */
 	public void paintComponent(Graphics g) {
+		long start = Metrics.start();
 		super.paintComponent(g);
 		g.setColor(new Color(0x000000));
 
 		Label.initFonts(g);
-		CanvasComponent[][] graphs = model.getGraphs();
+		updateGraphs();
 		CanvasComponent.setScale(scale);
 
 		int x, y, size, pad_x, pad_y;
@@ -104,8 +113,14 @@ public class MatrixRenderer extends JPanel {
 			y = outer_y_pad;
 
 			for (int r = 0; r < rows; r++) {
-				graphs[c][r].prepare(x, y, w, h);
-				graphs[c][r].paint(g);
+				if (graphs[c][r] == null) {
+					// not counted yet
+					g.setColor(new Color(GUISettings.HISTOGRAM_PLACEHOLDER_COLOR));
+					g.fillRect(x, y, w, h);
+				} else {
+					graphs[c][r].prepare(x, y, w, h);
+					graphs[c][r].paint(g);
+				}
 				y += h + pad_y;
 			}
 
@@ -118,6 +133,48 @@ public class MatrixRenderer extends JPanel {
 				- GUISettings.HISTOGRAM_PADDING_Y;
 		setPreferredSize(dim);
 		revalidate();
+		Metrics.stop(Metrics.PAINT, start);
+	}
+
+	/**
+	 * Creates the graphs of every column whose models are new, i.e. columns
+	 * counted or refined since the last paint.
+	 */
+	private void updateGraphs() {
+		long start = Metrics.start();
+		boolean created = false;
+		if (graphs == null) {
+			columns = new HistogramModel[model.getLength()][];
+			graphs = new CanvasComponent[model.getLength()][model.getHeight()];
+		}
+		for (int c = 0; c < graphs.length; c++) {
+			HistogramModel[] column = model.getColumn(c);
+			if (column == columns[c]) {
+				continue;
+			}
+			columns[c] = column;
+			created = true;
+			for (int r = 0; r < graphs[c].length; r++) {
+				if (column == null) {
+					graphs[c][r] = null;
+				} else if (c == 0 && r == 0) {
+					// top-left
+					graphs[c][r] = new CornerPanel();
+				} else if (c == 0) {
+					// left col
+					graphs[c][r] = new TargetHistogram(column[r]);
+				} else if (r == 0) {
+					// top row
+					graphs[c][r] = new AttributeHistogram(column[r]);
+				} else {
+					// body
+					graphs[c][r] = new DefaultHistogram(column[r]);
+				}
+			}
+		}
+		if (created) {
+			Metrics.stop(Metrics.GRAPHS, start);
+		}
 	}
 
 	/**
@@ -128,6 +185,7 @@ public class MatrixRenderer extends JPanel {
 	 */
 	public void setModel(Matrix model) {
 		this.model = model;
+		graphs = null;
 		clickMap.clear();
 	}
 
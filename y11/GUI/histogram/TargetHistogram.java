@@ -30,7 +30,7 @@ public class TargetHistogram extends HeaderHistogram {
 		super(m);
 		TargetHistogramModel thm = (TargetHistogramModel) model;
 		AttributeValuePair avp = new AttributeValuePair(thm.getAttributeName(),
-				thm.getValueName(), thm.getCount());
+				thm.getValueName(), thm.getCount(), thm.isExact());
 		label = new RowLabel(avp, thm.canDrillDown());
 		if (thm.canDrillDown()) {
 			removeBtn = new RemoveButton(avp);
@@ -0,0 +1,379 @@
+package y11.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RecursiveAction;
+
+import y11.data.ColumnStore;
+import y11.data.EncodedColumn;
+import y11.matrix.CounterPool;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.DataRow;
+import com.rapidminer.example.table.DoubleArrayDataRow;
+import com.rapidminer.example.table.MemoryExampleTable;
+import com.rapidminer.tools.Ontology;
+
+/**
+ * Generates synthetic datasets for benchmarks and scaling tests. A dataset has
+ * a nominal target and nominal predictors whose values follow a Zipf
+ * distribution. The first predictors can depend on the target: with the
+ * dependency strength as probability, their value is determined by the
+ * target value instead of drawn, so that their matrices show significant
+ * patterns. Values of the predictors are missing at the missing rate.
+ * <p>
+ * Examples are generated in parallel on the CounterPool, in blocks whose
+ * values are drawn from a random generator seeded by the seed, the block and
+ * the column, so a dataset only depends on its settings, not on the number of
+ * threads. Large datasets should be generated as a ColumnStore with
+ * {@link #generateStore()}, which takes one to four bytes per value, while an
+ * ExampleSet takes eight bytes per value and more.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class DataGenerator {
+
+	public static final String TARGET = "target";
+	public static final String PREDICTOR = "a";
+	public static final String VALUE = "v";
+
+	private static final int BLOCK_ROWS = 65536;
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	private int rows = 100000;
+	private int numPredictors = 10;
+	private int targetValues = 2;
+	private int[] cardinalities; // per predictor, or null
+	private int cardinality = 10;
+	private double skew = 1.0;
+	private int numDependent;
+	private double strength = 0.5;
+	private double missingRate;
+	private long seed;
+
+	/**
+	 * Sets the number of examples.
+	 * 
+	 * @param rows
+	 */
+	public void setRows(int rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * Sets the number of predictors, i.e. the number of attributes besides the
+	 * target.
+	 * 
+	 * @param numPredictors
+	 */
+	public void setNumPredictors(int numPredictors) {
+		this.numPredictors = numPredictors;
+	}
+
+	/**
+	 * Sets the number of values of the target.
+	 * 
+	 * @param targetValues
+	 */
+	public void setTargetValues(int targetValues) {
+		this.targetValues = targetValues;
+	}
+
+	/**
+	 * Sets the number of values of every predictor.
+	 * 
+	 * @param cardinality
+	 */
+	public void setCardinality(int cardinality) {
+		this.cardinality = cardinality;
+		this.cardinalities = null;
+	}
+
+	/**
+	 * Sets the number of values of each predictor. Also sets the number of
+	 * predictors.
+	 * 
+	 * @param cardinalities
+	 *            the number of values of the i'th predictor
+	 */
+	public void setCardinalities(int[] cardinalities) {
+		this.cardinalities = cardinalities.clone();
+		this.numPredictors = cardinalities.length;
+	}
+
+	/**
+	 * Sets the Zipf exponent of the values of all attributes: the probability
+	 * of the k'th value is proportional to 1 / k^skew.
+	 * 
+	 * @param skew
+	 *            0 for uniform values
+	 */
+	public void setSkew(double skew) {
+		this.skew = skew;
+	}
+
+	/**
+	 * Sets the number of predictors depending on the target, counted from the
+	 * first.
+	 * 
+	 * @param numDependent
+	 */
+	public void setNumDependent(int numDependent) {
+		this.numDependent = numDependent;
+	}
+
+	/**
+	 * Sets the strength of the dependencies on the target.
+	 * 
+	 * @param strength
+	 *            the probability that the value of a dependent predictor is
+	 *            determined by the target value, from 0 to 1
+	 */
+	public void setStrength(double strength) {
+		this.strength = strength;
+	}
+
+	/**
+	 * Sets the fraction of the predictor values that are missing.
+	 * 
+	 * @param missingRate
+	 *            from 0 to 1
+	 */
+	public void setMissingRate(double missingRate) {
+		this.missingRate = missingRate;
+	}
+
+	/**
+	 * Sets the seed of the random values. Equal settings and seeds generate
+	 * equal datasets.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Gets the number of values of the i'th predictor.
+	 * 
+	 * @param i
+	 * @return the number of values
+	 */
+	public int getCardinality(int i) {
+		return (cardinalities == null) ? cardinality : cardinalities[i];
+	}
+
+	/**
+	 * Generates the examples into a ColumnStore, without an ExampleSet. The
+	 * store still has to be preprocessed, see
+	 * PreProcessing.preProcess(ColumnStore), and can then be counted with a
+	 * PatternEngine.
+	 * 
+	 * @return the store
+	 */
+	public ColumnStore generateStore() {
+		ColumnStore store = ColumnStore.create(createAttributes(), rows);
+		int numBlocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+		CounterPool.get().invoke(new GenerateTask(store, 0, numBlocks));
+		return store;
+	}
+
+	/**
+	 * Generates the examples into an ExampleSet, e.g. to run them through the
+	 * whole PreProcessing pipeline.
+	 * 
+	 * @return the examples
+	 */
+	public ExampleSet generateExampleSet() {
+		final ColumnStore store = generateStore();
+		final DataRow[] dataRows = new DataRow[rows];
+		CounterPool.get().invoke(new RecursiveAction() {
+			protected void compute() {
+				int numBlocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+				List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+				for (int b = 0; b < numBlocks; b++) {
+					final int from = b * BLOCK_ROWS;
+					tasks.add(new RecursiveAction() {
+						protected void compute() {
+							toDataRows(store, dataRows, from, Math.min(rows,
+									from + BLOCK_ROWS));
+						}
+					});
+				}
+				invokeAll(tasks);
+			}
+		});
+
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int c = 0; c < store.getNumColumns(); c++) {
+			attributes.add(store.getAttribute(c));
+		}
+		MemoryExampleTable table = new MemoryExampleTable(attributes, rows);
+		for (DataRow row : dataRows) {
+			table.addDataRow(row);
+		}
+		return table.createExampleSet();
+	}
+
+	/**
+	 * Creates the target, named TARGET, and the predictors, named PREDICTOR
+	 * followed by their number from 1. Values are named VALUE followed by
+	 * their rank from 0, and mapped in order, so that the index of a value is
+	 * its rank.
+	 */
+	private Attribute[] createAttributes() {
+		Attribute[] attributes = new Attribute[numPredictors + 1];
+		attributes[0] = createAttribute(TARGET, targetValues);
+		for (int i = 0; i < numPredictors; i++) {
+			attributes[i + 1] = createAttribute(PREDICTOR + (i + 1),
+					getCardinality(i));
+		}
+		return attributes;
+	}
+
+	private static Attribute createAttribute(String name, int numValues) {
+		Attribute attribute = AttributeFactory.createAttribute(name,
+				Ontology.NOMINAL);
+		for (int v = 0; v < numValues; v++) {
+			attribute.getMapping().mapString(VALUE + v);
+		}
+		return attribute;
+	}
+
+	/**
+	 * Generates the values of all columns of the examples of a block.
+	 */
+	private void generateBlock(ColumnStore store, int block,
+			HashMap<Integer, double[]> distributions) {
+		int from = block * BLOCK_ROWS;
+		int to = Math.min(rows, from + BLOCK_ROWS);
+		int[] targets = new int[to - from];
+		EncodedColumn column = store.getColumn(0);
+		Random random = createRandom(block, 0);
+		double[] targetDistribution = distributions.get(targetValues);
+		for (int row = from; row < to; row++) {
+			targets[row - from] = sample(targetDistribution, random);
+			column.set(row, targets[row - from]);
+		}
+
+		for (int i = 0; i < numPredictors; i++) {
+			column = store.getColumn(i + 1);
+			random = createRandom(block, i + 1);
+			int numValues = getCardinality(i);
+			double[] distribution = distributions.get(numValues);
+			boolean dependent = i < numDependent;
+			int shift = i * 7919; // differs per predictor
+			for (int row = from; row < to; row++) {
+				if (missingRate > 0 && random.nextDouble() < missingRate) {
+					column.setMissing(row);
+				} else if (dependent && random.nextDouble() < strength) {
+					column.set(row, (int) (((long) targets[row - from] + shift)
+							% numValues));
+				} else {
+					column.set(row, sample(distribution, random));
+				}
+			}
+		}
+	}
+
+	private Random createRandom(int block, int column) {
+		return new Random((seed * GOLDEN + block) * GOLDEN + column);
+	}
+
+	private void toDataRows(ColumnStore store, DataRow[] dataRows, int from,
+			int to) {
+		int numColumns = store.getNumColumns();
+		for (int row = from; row < to; row++) {
+			double[] data = new double[numColumns];
+			for (int c = 0; c < numColumns; c++) {
+				EncodedColumn column = store.getColumn(c);
+				data[c] = column.isMissing(row) ? Double.NaN : column.get(row);
+			}
+			dataRows[row] = new DoubleArrayDataRow(data);
+		}
+	}
+
+	/**
+	 * Gets the cumulative Zipf distribution of the specified number of values,
+	 * where the probability of the k'th value is proportional to 1 / k^skew.
+	 * 
+	 * @param numValues
+	 * @param skew
+	 * @return the cumulative probabilities
+	 */
+	public static double[] zipf(int numValues, double skew) {
+		double[] cumulative = new double[numValues];
+		double sum = 0;
+		for (int k = 0; k < numValues; k++) {
+			sum += 1 / Math.pow(k + 1, skew);
+			cumulative[k] = sum;
+		}
+		for (int k = 0; k < numValues; k++) {
+			cumulative[k] /= sum;
+		}
+		return cumulative;
+	}
+
+	/**
+	 * Draws a value from a cumulative distribution.
+	 * 
+	 * @param cumulative
+	 * @param random
+	 * @return the index of the value
+	 */
+	public static int sample(double[] cumulative, Random random) {
+		int k = Arrays.binarySearch(cumulative, random.nextDouble());
+		return Math.min((k < 0) ? -k - 1 : k, cumulative.length - 1);
+	}
+
+	/**
+	 * Generates blocks of examples, splitting in halves for work stealing.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private class GenerateTask extends RecursiveAction {
+
+		private ColumnStore store;
+		private int from;
+		private int to;
+		private HashMap<Integer, double[]> distributions;
+
+		GenerateTask(ColumnStore store, int from, int to) {
+			this.store = store;
+			this.from = from;
+			this.to = to;
+			distributions = new HashMap<Integer, double[]>();
+			distributions.put(targetValues, zipf(targetValues, skew));
+			for (int i = 0; i < numPredictors; i++) {
+				if (!distributions.containsKey(getCardinality(i))) {
+					distributions.put(getCardinality(i), zipf(
+							getCardinality(i), skew));
+				}
+			}
+		}
+
+		private GenerateTask(GenerateTask parent, int from, int to) {
+			this.store = parent.store;
+			this.from = from;
+			this.to = to;
+			this.distributions = parent.distributions;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new GenerateTask(this, from, mid), new GenerateTask(
+						this, mid, to));
+			} else if (to > from) {
+				generateBlock(store, from, distributions);
+			}
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package y11.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.DoubleArrayDataRow;
+import com.rapidminer.example.table.MemoryExampleTable;
+import com.rapidminer.tools.Ontology;
+
+/**
+ * Loads a CSV or ARFF file into an ExampleSet, without the RapidMiner
+ * operators. The first line of a CSV file holds the attribute names, and a
+ * column is numeric if all of its values are numbers. Empty values and "?"
+ * are missing.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class DataLoader {
+
+	private static final String MISSING = "?";
+
+	/**
+	 * Loads the specified file, as ARFF if its name ends with .arff and as
+	 * CSV otherwise.
+	 * 
+	 * @param file
+	 * @return the examples
+	 * @throws IOException
+	 */
+	public static ExampleSet load(File file) throws IOException {
+		if (file.getName().toLowerCase().endsWith(".arff")) {
+			return loadArff(file);
+		}
+		return loadCsv(file);
+	}
+
+	/**
+	 * Loads a comma separated file. The file is read twice, first to find
+	 * the numeric columns and then to fill the example table.
+	 * 
+	 * @param file
+	 * @return the examples
+	 * @throws IOException
+	 */
+	public static ExampleSet loadCsv(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String[] names;
+		boolean[] numeric;
+		try {
+			String header = reader.readLine();
+			if (header == null) {
+				throw new IOException(file + " is empty");
+			}
+			names = split(header, ',', false);
+			numeric = new boolean[names.length];
+			for (int i = 0; i < numeric.length; i++) {
+				numeric[i] = true;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0) {
+					continue;
+				}
+				String[] fields = split(line, ',', false);
+				for (int i = 0; i < numeric.length && i < fields.length; i++) {
+					if (numeric[i] && !isMissing(fields[i])
+							&& !isNumber(fields[i])) {
+						numeric[i] = false;
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < names.length; i++) {
+			attributes.add(AttributeFactory.createAttribute(names[i],
+					numeric[i] ? Ontology.REAL : Ontology.NOMINAL));
+		}
+		MemoryExampleTable table = new MemoryExampleTable(attributes);
+		reader = new BufferedReader(new FileReader(file));
+		try {
+			reader.readLine(); // the header
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0) {
+					table.addDataRow(toDataRow(split(line, ',', false),
+							attributes));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return table.createExampleSet();
+	}
+
+	/**
+	 * Loads an ARFF file. Nominal, numeric and string attributes are
+	 * supported, sparse data is not.
+	 * 
+	 * @param file
+	 * @return the examples
+	 * @throws IOException
+	 */
+	public static ExampleSet loadArff(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			List<Attribute> attributes = new ArrayList<Attribute>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				String lower = line.toLowerCase();
+				if (lower.startsWith("@attribute")) {
+					attributes.add(parseArffAttribute(line));
+				} else if (lower.startsWith("@data")) {
+					break;
+				}
+			}
+			MemoryExampleTable table = new MemoryExampleTable(attributes);
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("%")) {
+					continue;
+				}
+				if (line.startsWith("{")) {
+					throw new IOException("sparse ARFF data is not supported");
+				}
+				table.addDataRow(toDataRow(split(line, ',', true),
+						attributes));
+			}
+			return table.createExampleSet();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Creates an attribute from an ARFF declaration, e.g. "@attribute color
+	 * {red,green}" or "@attribute 'size' numeric".
+	 */
+	private static Attribute parseArffAttribute(String line)
+			throws IOException {
+		String rest = line.substring("@attribute".length()).trim();
+		String name;
+		if (rest.startsWith("'") || rest.startsWith("\"")) {
+			int end = rest.indexOf(rest.charAt(0), 1);
+			if (end < 0) {
+				throw new IOException("bad attribute: " + line);
+			}
+			name = rest.substring(1, end);
+			rest = rest.substring(end + 1).trim();
+		} else {
+			String[] parts = rest.split("\\s+", 2);
+			if (parts.length < 2) {
+				throw new IOException("bad attribute: " + line);
+			}
+			name = parts[0];
+			rest = parts[1].trim();
+		}
+		String type = rest.toLowerCase();
+		if (type.equals("numeric") || type.equals("real")
+				|| type.equals("integer")) {
+			return AttributeFactory.createAttribute(name, Ontology.REAL);
+		}
+		Attribute attribute = AttributeFactory.createAttribute(name,
+				Ontology.NOMINAL);
+		if (rest.startsWith("{") && rest.endsWith("}")) {
+			// declared values keep their order
+			for (String value : split(rest.substring(1, rest.length() - 1),
+					',', true)) {
+				attribute.getMapping().mapString(value);
+			}
+		}
+		return attribute;
+	}
+
+	private static DoubleArrayDataRow toDataRow(String[] fields,
+			List<Attribute> attributes) {
+		double[] data = new double[attributes.size()];
+		for (int i = 0; i < data.length; i++) {
+			String field = (i < fields.length) ? fields[i] : "";
+			Attribute attribute = attributes.get(i);
+			if (isMissing(field)) {
+				data[i] = Double.NaN;
+			} else if (attribute.isNumerical()) {
+				data[i] = Double.parseDouble(field);
+			} else {
+				data[i] = attribute.getMapping().mapString(field);
+			}
+		}
+		return new DoubleArrayDataRow(data);
+	}
+
+	/**
+	 * Splits a line at every delimiter outside double quotes, and single
+	 * quotes if allowed, and trims and unquotes every field.
+	 */
+	private static String[] split(String line, char delimiter,
+			boolean singleQuotes) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		char quote = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					if (i + 1 < line.length() && line.charAt(i + 1) == quote) {
+						field.append(c); // an escaped quote
+						i++;
+					} else {
+						quote = 0;
+					}
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"' || (singleQuotes && c == '\'')) {
+				quote = c;
+			} else if (c == delimiter) {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString().trim());
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	private static boolean isMissing(String field) {
+		return field.length() == 0 || field.equals(MISSING);
+	}
+
+	private static boolean isNumber(String field) {
+		try {
+			Double.parseDouble(field);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package y11.batch;
+
+import java.util.HashMap;
+
+import y11.data.ColumnStore;
+import y11.manager.state.MatrixInfo;
+import y11.models.AttributeValuePair;
+
+/**
+ * Command-line check that the fingerprint of a MatrixInfo, which keys the
+ * MatrixCache and the count files, follows how its columns are displayed.
+ * Expands, contracts and drills down every column of a generated dataset
+ * from a MatrixInfo whose fingerprint is already computed, and checks that
+ * a changed display gives a changed fingerprint and that the same display
+ * gives the same one. Prints every disagreement and exits with status 1 if
+ * there is any.
+ * 
+ * <pre>
+ * java y11.batch.FingerprintTest
+ * </pre>
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class FingerprintTest {
+
+	private static final int ROWS = 1000;
+	private static final int NUM_PREDICTORS = 5;
+	private static final int CARDINALITY = 4;
+
+	private static int checks = 0;
+	private static int failures = 0;
+
+	/**
+	 * Runs the check from the command line.
+	 * 
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) {
+		DataGenerator generator = new DataGenerator();
+		generator.setRows(ROWS);
+		generator.setNumPredictors(NUM_PREDICTORS);
+		generator.setCardinality(CARDINALITY);
+		ColumnStore store = generator.generateStore();
+		MatrixInfo mi = new MatrixInfo(store, new HashMap<String, Boolean>());
+		String original = mi.getFingerprint();
+		for (String name : mi.getAttributeNames()) {
+			MatrixInfo expanded = new MatrixInfo(mi, name);
+			check(!expanded.getFingerprint().equals(original), name
+					+ " expanded keeps the fingerprint");
+			MatrixInfo contracted = new MatrixInfo(expanded, name);
+			check(contracted.getFingerprint().equals(original), name
+					+ " contracted differs from the original");
+			String value = mi.getValue(mi.getOrdinal(name), 0);
+			AttributeValuePair avp = new AttributeValuePair(name, value, 0);
+			MatrixInfo removed = new MatrixInfo(mi, avp, true);
+			check(!removed.getFingerprint().equals(original), name
+					+ " without " + value + " keeps the fingerprint");
+			MatrixInfo kept = new MatrixInfo(mi, avp, false);
+			check(!kept.getFingerprint().equals(original), name + " with only "
+					+ value + " keeps the fingerprint");
+			check(!kept.getFingerprint().equals(removed.getFingerprint()),
+					name + " with and without " + value + " are equal");
+			check(new MatrixInfo(kept).getFingerprint().equals(
+					kept.getFingerprint()), name
+					+ " copied differs from the original");
+		}
+		System.out.println(checks + " checks, " + failures + " failures");
+		System.exit((failures == 0) ? 0 : 1);
+	}
+
+	private static void check(boolean passed, String failure) {
+		checks++;
+		if (!passed) {
+			failures++;
+			System.out.println("FAIL " + failure);
+		}
+	}
+}
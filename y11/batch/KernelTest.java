@@ -0,0 +1,144 @@
+package y11.batch;
+
+import java.util.Random;
+
+import y11.matrix.CountKernel;
+
+/**
+ * Command-line check that every CountKernel produces the same counts as
+ * counting one example at a time. Every kernel counts random codes for a
+ * range of target and value cardinalities, skews and numbers of examples,
+ * including chunks whose length is not a multiple of the unrolling of a
+ * kernel and columns too large for the SplitCountKernel's tables. Prints
+ * every disagreement and exits with status 1 if there is any. The
+ * VectorCountKernel is only checked if the jdk.incubator.vector module is
+ * resolved.
+ * 
+ * <pre>
+ * java [--add-modules jdk.incubator.vector] y11.batch.KernelTest [seed]
+ * </pre>
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class KernelTest {
+
+	private static final int CHUNK_SIZE = 4096; // as in CounterThread
+	private static final int[] TARGET_VALUES = { 1, 2, 5, 17 };
+	private static final int[] CARDINALITIES = { 1, 2, 6, 50, 200, 5000 };
+	private static final double[] SKEWS = { 0.0, 1.2, 3.0 };
+	private static final int[] LENGTHS = { 0, 1, 3, 4, 5, 4095, 4096, 4097,
+			10001 };
+
+	/**
+	 * Runs the check from the command line.
+	 * 
+	 * @param args
+	 *            the seed of the random codes, 0 by default
+	 */
+	public static void main(String[] args) {
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 0;
+		Random random = new Random(seed);
+		int checks = 0;
+		int failures = 0;
+		for (String name : CountKernel.getNames()) {
+			CountKernel kernel = CountKernel.get(name);
+			for (int tVals : TARGET_VALUES) {
+				for (int vals : CARDINALITIES) {
+					for (double skew : SKEWS) {
+						for (int length : LENGTHS) {
+							int[] tCodes = createCodes(tVals, 0.0, length,
+									random);
+							int[] codes = createCodes(vals, skew, length,
+									random);
+							checks++;
+							if (!agrees(kernel, tVals, vals, tCodes, codes)) {
+								failures++;
+								System.out.println("FAIL " + name + " targets="
+										+ tVals + " values=" + vals + " skew="
+										+ skew + " examples=" + length);
+							}
+						}
+					}
+				}
+			}
+		}
+		System.out.println(checks + " checks, " + failures + " failures");
+		System.exit((failures == 0) ? 0 : 1);
+	}
+
+	/**
+	 * Tests if a kernel counts the specified codes like counting one example
+	 * at a time. The codes are added in chunks, as CounterThread does.
+	 * 
+	 * @param kernel
+	 * @param tVals
+	 *            the number of target values
+	 * @param vals
+	 *            the number of values of the column
+	 * @param tCodes
+	 *            the target codes of the examples
+	 * @param codes
+	 *            the value codes of the examples
+	 * @return True if the counts are the same
+	 */
+	public static boolean agrees(CountKernel kernel, int tVals, int vals,
+			int[] tCodes, int[] codes) {
+		int[][] expected = new int[tVals][vals];
+		for (int j = 0; j < codes.length; j++) {
+			expected[tCodes[j]][codes[j]]++;
+		}
+		int[][] counts = count(kernel, tVals, vals, tCodes, codes);
+		for (int t = 0; t < tVals; t++) {
+			for (int v = 0; v < vals; v++) {
+				if (counts[t][v] != expected[t][v]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts codes with a kernel, in chunks of CHUNK_SIZE examples.
+	 * 
+	 * @return the counts, indexed by target code then value code
+	 */
+	public static int[][] count(CountKernel kernel, int tVals, int vals,
+			int[] tCodes, int[] codes) {
+		int[][] counts = new int[tVals][vals];
+		CountKernel.CountTable table = kernel.newTable(counts);
+		int[] tChunk = new int[CHUNK_SIZE];
+		int[] chunk = new int[CHUNK_SIZE];
+		for (int from = 0; from < codes.length; from += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, codes.length - from);
+			System.arraycopy(tCodes, from, tChunk, 0, length);
+			System.arraycopy(codes, from, chunk, 0, length);
+			table.add(tChunk, chunk, length);
+		}
+		table.finish();
+		return counts;
+	}
+
+	/**
+	 * Creates random codes following a Zipf distribution.
+	 * 
+	 * @param vals
+	 *            the number of values
+	 * @param skew
+	 *            the Zipf exponent, 0 for uniform codes
+	 * @param length
+	 *            the number of codes
+	 * @param random
+	 * @return the codes
+	 */
+	public static int[] createCodes(int vals, double skew, int length,
+			Random random) {
+		double[] cumulative = DataGenerator.zipf(vals, skew);
+		int[] codes = new int[length];
+		for (int j = 0; j < length; j++) {
+			codes[j] = DataGenerator.sample(cumulative, random);
+		}
+		return codes;
+	}
+}
@@ -0,0 +1,225 @@
+package y11.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import y11.matrix.MatrixResult;
+import y11.matrix.PatternEngine;
+import y11.matrix.UserCancelledException;
+import y11.operator.PatternExplorerParameters;
+
+/**
+ * Command-line entry point reporting the significant patterns of a dataset
+ * for every target, e.g. for a nightly job. Loads a CSV or ARFF file, runs it
+ * through the PreProcessing pipeline, counts the matrix of every candidate
+ * target in parallel, and writes every cell at least sigma standard
+ * deviations from its expected count to a CSV or JSON file. Cells are written
+ * as each matrix is counted, so only the matrices being counted are held in
+ * memory. If the report fails, the partial output file is deleted and the
+ * exit status is 1.
+ * 
+ * <pre>
+ * java -Djava.awt.headless=true y11.batch.PatternReport [options] input output
+ *   -sigma s        the significance threshold (default 2.0)
+ *   -format f       csv or json (default: the extension of output)
+ *   -threads n      the number of counting threads (default: all cores)
+ *   -bins n         the number of bins of numeric attributes (default 6)
+ *   -targets n      the number of targets counted at once (default 2)
+ *   -max-values n   skips targets with more values (default 100)
+ * </pre>
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class PatternReport {
+
+	private static final double DEFAULT_SIGMA = 2.0;
+	private static final int DEFAULT_TARGETS = 2;
+	private static final int DEFAULT_MAX_VALUES = 100;
+
+	private PatternEngine engine;
+	private PatternWriter writer;
+	private double sigma;
+
+	/**
+	 * Creates a new PatternReport.
+	 * 
+	 * @param engine
+	 *            the engine holding the examples
+	 * @param writer
+	 *            receives the significant cells
+	 * @param sigma
+	 *            the significance threshold
+	 */
+	public PatternReport(PatternEngine engine, PatternWriter writer,
+			double sigma) {
+		this.engine = engine;
+		this.writer = writer;
+		this.sigma = sigma;
+	}
+
+	/**
+	 * Runs the report from the command line.
+	 * 
+	 * @param args
+	 *            see the class comment
+	 */
+	public static void main(String[] args) {
+		double sigma = DEFAULT_SIGMA;
+		String format = null;
+		int targets = DEFAULT_TARGETS;
+		int maxValues = DEFAULT_MAX_VALUES;
+		List<String> files = new ArrayList<String>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-sigma")) {
+					sigma = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("-format")) {
+					format = args[++i];
+				} else if (args[i].equals("-threads")) {
+					PatternExplorerParameters.setCores(Integer
+							.parseInt(args[++i]));
+				} else if (args[i].equals("-bins")) {
+					PatternExplorerParameters.setBins(Integer
+							.parseInt(args[++i]));
+				} else if (args[i].equals("-targets")) {
+					targets = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-max-values")) {
+					maxValues = Integer.parseInt(args[++i]);
+				} else {
+					files.add(args[i]);
+				}
+			}
+		} catch (RuntimeException e) {
+			usage("bad option: " + e.getMessage());
+		}
+		if (files.size() != 2) {
+			usage("expected an input and an output file");
+		}
+		File output = new File(files.get(1));
+		if (format == null) {
+			String name = output.getName().toLowerCase();
+			format = name.endsWith(".json") ? PatternWriter.JSON
+					: PatternWriter.CSV;
+		}
+
+		Writer out = null;
+		boolean written = false;
+		try {
+			long begin = System.currentTimeMillis();
+			PatternEngine engine = new PatternEngine(DataLoader.load(new File(
+					files.get(0))));
+			out = new BufferedWriter(new FileWriter(output));
+			PatternWriter writer = PatternWriter.create(format, out);
+			new PatternReport(engine, writer, sigma).run(targets, maxValues);
+			written = true; // end() has closed the output
+			System.err.println("wrote " + output + " in "
+					+ (System.currentTimeMillis() - begin) + " ms");
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (out != null && !written) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// the report has failed already
+				}
+				if (output.delete()) {
+					System.err.println("deleted the partial report " + output);
+				}
+			}
+		}
+		if (!written) {
+			System.exit(1);
+		}
+	}
+
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("usage: PatternReport [-sigma s] [-format csv|json]"
+				+ " [-threads n] [-bins n] [-targets n] [-max-values n]"
+				+ " input output");
+		System.exit(2);
+	}
+
+	/**
+	 * Counts the matrix of every candidate target and writes its significant
+	 * cells, then ends the output.
+	 * 
+	 * @param numTargets
+	 *            the number of targets counted at once
+	 * @param maxValues
+	 *            targets with more values are skipped, since their matrices
+	 *            grow with the number of values
+	 * @throws IOException
+	 * @throws UserCancelledException
+	 */
+	public void run(int numTargets, int maxValues) throws IOException,
+			UserCancelledException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(
+				numTargets, 1));
+		try {
+			writer.begin();
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (final String target : engine.getAttributeNames()) {
+				if (engine.getNumValues(target) > maxValues) {
+					System.err.println("skipping target " + target + ", "
+							+ engine.getNumValues(target) + " values");
+					continue;
+				}
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						write(engine.count(target));
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+			writer.end();
+		} catch (InterruptedException e) {
+			throw new UserCancelledException(e.getMessage());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof UserCancelledException) {
+				throw (UserCancelledException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Writes the cells of a matrix that are at least sigma standard
+	 * deviations from their expected count.
+	 * 
+	 * @param result
+	 * @throws IOException
+	 */
+	public void write(MatrixResult result) throws IOException {
+		for (int a = 0; a < result.getNumAttributes(); a++) {
+			for (int t = 0; t < result.getNumTargetValues(); t++) {
+				for (int v = 0; v < result.getNumValues(a); v++) {
+					double s = result.getSigma(a, t, v);
+					if (Math.abs(s) >= sigma) {
+						writer.write(result, a, t, v, s);
+					}
+				}
+			}
+		}
+	}
+}
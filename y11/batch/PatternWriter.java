@@ -0,0 +1,180 @@
+package y11.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import y11.matrix.MatrixResult;
+
+/**
+ * Writes significant cells of matrices as they are found, one record per
+ * cell, so that a report is never held in memory. Records of different
+ * matrices may be written from several threads; each record is written
+ * whole.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public abstract class PatternWriter {
+
+	public static final String CSV = "csv";
+	public static final String JSON = "json";
+
+	protected static final String[] FIELDS = { "target", "target_value",
+			"attribute", "value", "count", "target_count", "value_count",
+			"sigma" };
+
+	protected Writer out;
+
+	/**
+	 * Creates a new PatternWriter writing to the specified Writer.
+	 * 
+	 * @param out
+	 */
+	protected PatternWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Creates a PatternWriter for the specified format.
+	 * 
+	 * @param format
+	 *            CSV or JSON
+	 * @param out
+	 * @return the PatternWriter
+	 */
+	public static PatternWriter create(String format, Writer out) {
+		if (JSON.equalsIgnoreCase(format)) {
+			return new JsonWriter(out);
+		}
+		if (CSV.equalsIgnoreCase(format)) {
+			return new CsvWriter(out);
+		}
+		throw new IllegalArgumentException("unknown format: " + format);
+	}
+
+	/**
+	 * Writes the beginning of the report.
+	 * 
+	 * @throws IOException
+	 */
+	public abstract void begin() throws IOException;
+
+	/**
+	 * Writes the record of a cell: the count of the v'th value of the a'th
+	 * attribute for the t'th target value, and its significance.
+	 * 
+	 * @param result
+	 * @param a
+	 * @param t
+	 * @param v
+	 * @param sigma
+	 *            the significance of the cell, see MatrixResult.getSigma()
+	 * @throws IOException
+	 */
+	public abstract void write(MatrixResult result, int a, int t, int v,
+			double sigma) throws IOException;
+
+	/**
+	 * Writes the end of the report and closes the output.
+	 * 
+	 * @throws IOException
+	 */
+	public abstract void end() throws IOException;
+
+	/**
+	 * Writes every record as a line of comma separated values, after a header
+	 * line.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private static class CsvWriter extends PatternWriter {
+
+		CsvWriter(Writer out) {
+			super(out);
+		}
+
+		public void begin() throws IOException {
+			for (int i = 0; i < FIELDS.length; i++) {
+				out.write((i == 0) ? FIELDS[i] : "," + FIELDS[i]);
+			}
+			out.write('\n');
+		}
+
+		public synchronized void write(MatrixResult result, int a, int t,
+				int v, double sigma) throws IOException {
+			out.write(quote(result.getTarget()) + ","
+					+ quote(result.getTargetValue(t)) + ","
+					+ quote(result.getAttribute(a)) + ","
+					+ quote(result.getValue(a, v)) + ","
+					+ result.getCount(a, t, v) + ","
+					+ result.getTargetCount(t) + ","
+					+ result.getValueCount(a, v) + "," + sigma + "\n");
+		}
+
+		public void end() throws IOException {
+			out.close();
+		}
+
+		private static String quote(String s) {
+			if (s.indexOf(',') < 0 && s.indexOf('"') < 0
+					&& s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+				return s;
+			}
+			return "\"" + s.replace("\"", "\"\"") + "\"";
+		}
+	}
+
+	/**
+	 * Writes a JSON array of objects, one object per line.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private static class JsonWriter extends PatternWriter {
+
+		private boolean first = true;
+
+		JsonWriter(Writer out) {
+			super(out);
+		}
+
+		public void begin() throws IOException {
+			out.write("[\n");
+		}
+
+		public synchronized void write(MatrixResult result, int a, int t,
+				int v, double sigma) throws IOException {
+			out.write((first ? "{" : ",\n{") + "\"" + FIELDS[0] + "\":"
+					+ quote(result.getTarget()) + ",\"" + FIELDS[1] + "\":"
+					+ quote(result.getTargetValue(t)) + ",\"" + FIELDS[2]
+					+ "\":" + quote(result.getAttribute(a)) + ",\"" + FIELDS[3]
+					+ "\":" + quote(result.getValue(a, v)) + ",\"" + FIELDS[4]
+					+ "\":" + result.getCount(a, t, v) + ",\"" + FIELDS[5]
+					+ "\":" + result.getTargetCount(t) + ",\"" + FIELDS[6]
+					+ "\":" + result.getValueCount(a, v) + ",\"" + FIELDS[7]
+					+ "\":" + sigma + "}");
+			first = false;
+		}
+
+		public void end() throws IOException {
+			out.write("\n]\n");
+			out.close();
+		}
+
+		private static String quote(String s) {
+			StringBuilder quoted = new StringBuilder("\"");
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == '"' || c == '\\') {
+					quoted.append('\\').append(c);
+				} else if (c < 0x20) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+			}
+			return quoted.append('"').toString();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package y11.batch;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+
+import y11.data.ColumnStore;
+import y11.manager.state.MatrixInfo;
+import y11.manager.util.PreProcessing;
+import y11.matrix.PatternEngine;
+import y11.matrix.UserCancelledException;
+import y11.operator.PatternExplorerParameters;
+
+/**
+ * Command-line entry point measuring how counting scales with the size of the
+ * dataset. Generates a dataset with the DataGenerator for every combination
+ * of rows and columns, preprocesses it, and counts its matrix with
+ * Matrix.createMatrix() through a PatternEngine. Prints one CSV line per
+ * dataset with the time of every phase, in ms, and the number of values
+ * counted per second, from the fastest of the runs.
+ * 
+ * <pre>
+ * java -Xmx... y11.batch.ScalingTest [options]
+ *   -rows n,...        the numbers of examples (default 1000000)
+ *   -columns n,...     the numbers of predictors (default 10,100)
+ *   -cardinality n     the number of values of every predictor (default 10)
+ *   -target-values n   the number of values of the target (default 2)
+ *   -skew s            the Zipf exponent of the values (default 1.0)
+ *   -dependent n       the number of predictors depending on the target
+ *   -strength s        the strength of the dependencies (default 0.5)
+ *   -missing r         the fraction of missing values (default 0)
+ *   -seed n            the seed of the values (default 0)
+ *   -threads n         the number of threads (default: all cores)
+ *   -runs n            the number of times every matrix is counted (default 3)
+ * </pre>
+ * 
+ * A dataset of 100M examples and 1k predictors of up to 254 values takes
+ * 100 GB.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class ScalingTest {
+
+	private static final int DEFAULT_RUNS = 3;
+
+	/**
+	 * Runs the test from the command line.
+	 * 
+	 * @param args
+	 *            see the class comment
+	 */
+	public static void main(String[] args) {
+		DataGenerator generator = new DataGenerator();
+		int[] rows = { 1000000 };
+		int[] columns = { 10, 100 };
+		int runs = DEFAULT_RUNS;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-rows")) {
+					rows = parseInts(args[++i]);
+				} else if (args[i].equals("-columns")) {
+					columns = parseInts(args[++i]);
+				} else if (args[i].equals("-cardinality")) {
+					generator.setCardinality(Integer.parseInt(args[++i]));
+				} else if (args[i].equals("-target-values")) {
+					generator.setTargetValues(Integer.parseInt(args[++i]));
+				} else if (args[i].equals("-skew")) {
+					generator.setSkew(Double.parseDouble(args[++i]));
+				} else if (args[i].equals("-dependent")) {
+					generator.setNumDependent(Integer.parseInt(args[++i]));
+				} else if (args[i].equals("-strength")) {
+					generator.setStrength(Double.parseDouble(args[++i]));
+				} else if (args[i].equals("-missing")) {
+					generator.setMissingRate(Double.parseDouble(args[++i]));
+				} else if (args[i].equals("-seed")) {
+					generator.setSeed(Long.parseLong(args[++i]));
+				} else if (args[i].equals("-threads")) {
+					PatternExplorerParameters.setCores(Integer
+							.parseInt(args[++i]));
+				} else if (args[i].equals("-runs")) {
+					runs = Integer.parseInt(args[++i]);
+				} else {
+					usage("unknown option: " + args[i]);
+				}
+			}
+		} catch (RuntimeException e) {
+			usage("bad option: " + e.getMessage());
+		}
+
+		PrintStream out = System.out;
+		out.println("rows,columns,threads,generate_ms,preprocess_ms,count_ms,"
+				+ "values_per_second");
+		try {
+			for (int r : rows) {
+				for (int c : columns) {
+					generator.setRows(r);
+					generator.setNumPredictors(c);
+					out.println(measure(generator, runs));
+				}
+			}
+		} catch (UserCancelledException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Generates, preprocesses and counts one dataset.
+	 * 
+	 * @return the CSV line of the dataset
+	 */
+	private static String measure(DataGenerator generator, int runs)
+			throws UserCancelledException {
+		long begin = System.nanoTime();
+		ColumnStore store = generator.generateStore();
+		long generated = System.nanoTime();
+		PreProcessing.preProcess(store);
+		long preprocessed = System.nanoTime();
+		PatternEngine engine = new PatternEngine(store, new MatrixInfo(store,
+				new HashMap<String, Object>()));
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < runs; run++) {
+			long start = System.nanoTime();
+			engine.count(DataGenerator.TARGET);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		long values = (long) store.size() * store.getNumColumns();
+		return store.size() + "," + (store.getNumColumns() - 1) + ","
+				+ PatternExplorerParameters.getCores() + ","
+				+ (generated - begin) / 1000000 + ","
+				+ (preprocessed - generated) / 1000000 + "," + best / 1000000
+				+ "," + (long) (values / (best / 1e9));
+	}
+
+	private static int[] parseInts(String list) {
+		String[] parts = list.split(",");
+		int[] ints = new int[parts.length];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = Integer.parseInt(parts[i].trim());
+		}
+		return ints;
+	}
+
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("usage: ScalingTest [-rows n,...] [-columns n,...]"
+				+ " [-cardinality n] [-target-values n] [-skew s]"
+				+ " [-dependent n] [-strength s] [-missing r] [-seed n]"
+				+ " [-threads n] [-runs n]");
+		System.exit(2);
+	}
+}
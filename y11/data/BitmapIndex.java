@@ -0,0 +1,74 @@
+package y11.data;
+
+/**
+ * One RoaringBitmap per value of every column of a ColumnStore, holding the
+ * rows that have this value. Built once after preprocessing, so that
+ * drill-downs select rows with bitmap operations, and small selections can
+ * be counted from intersection cardinalities instead of scans.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class BitmapIndex {
+
+	private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+	private ColumnStore store;
+	private RoaringBitmap[][] bitmaps; // indexed by column then value code
+
+	private BitmapIndex(ColumnStore store) {
+		this.store = store;
+		bitmaps = new RoaringBitmap[store.getNumColumns()][];
+	}
+
+	/**
+	 * Builds the index of all columns of the specified store, with one pass
+	 * through every column.
+	 * 
+	 * @param store
+	 * @return the index
+	 */
+	public static BitmapIndex build(ColumnStore store) {
+		BitmapIndex index = new BitmapIndex(store);
+		for (int c = 0; c < store.getNumColumns(); c++) {
+			EncodedColumn column = store.getColumn(c);
+			RoaringBitmap[] values = new RoaringBitmap[store.getAttribute(c)
+					.getMapping().size()];
+			for (int v = 0; v < values.length; v++) {
+				values[v] = new RoaringBitmap();
+			}
+			for (int row = 0; row < store.size(); row++) {
+				values[column.get(row)].add(row);
+			}
+			index.bitmaps[c] = values;
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the rows having the specified value in the c'th column.
+	 * 
+	 * @param c
+	 *            the column index
+	 * @param code
+	 *            the value code
+	 * @return the rows, not to be modified
+	 */
+	public RoaringBitmap get(int c, int code) {
+		return (code < bitmaps[c].length) ? bitmaps[c][code] : EMPTY;
+	}
+
+	/**
+	 * Gets the rows having the specified value for the attribute with the
+	 * specified name.
+	 * 
+	 * @param name
+	 *            the name of the attribute
+	 * @param code
+	 *            the value code
+	 * @return the rows, not to be modified
+	 */
+	public RoaringBitmap get(String name, int code) {
+		return get(store.getIndex(name), code);
+	}
+}
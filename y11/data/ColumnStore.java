@@ -0,0 +1,248 @@
+package y11.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+
+/**
+ * A columnar snapshot of a preprocessed ExampleSet. Every attribute is stored
+ * as an EncodedColumn of value indices, so that counting reads primitive
+ * arrays instead of going through Example objects.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class ColumnStore {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private ExampleSet exampleSet;
+	private Attribute[] attributes;
+	private EncodedColumn[] columns;
+	private HashMap<String, Integer> indices;
+	private BitmapIndex bitmapIndex;
+	private int size;
+	private long fingerprint; // 0 until computed
+	private long valueHash; // of all values, 0 until computed
+
+	private ColumnStore(ExampleSet exampleSet, Attribute[] attributes,
+			int size) {
+		this.exampleSet = exampleSet;
+		this.attributes = attributes;
+		this.size = size;
+		columns = new EncodedColumn[attributes.length];
+		indices = new HashMap<String, Integer>();
+		for (int c = 0; c < attributes.length; c++) {
+			// leave room for the missing value name
+			columns[c] = new EncodedColumn(size, attributes[c].getMapping()
+					.size() + 1);
+			indices.put(attributes[c].getName(), c);
+		}
+	}
+
+	/**
+	 * Encodes all attributes of the specified ExampleSet in one pass. All
+	 * attributes must be nominal. Missing values are marked as such, see
+	 * PreProcessing.missingValueReplenishment. Every value is hashed on the
+	 * way, for the fingerprint of the store.
+	 * 
+	 * @param exampleSet
+	 * @return the ColumnStore
+	 */
+	public static ColumnStore encode(ExampleSet exampleSet) {
+		ArrayList<Attribute> list = new ArrayList<Attribute>();
+		Iterator<Attribute> all = exampleSet.getAttributes().allAttributes();
+		while (all.hasNext()) {
+			list.add(all.next());
+		}
+		Attribute[] attributes = list.toArray(new Attribute[list.size()]);
+		ColumnStore store = new ColumnStore(exampleSet, attributes, exampleSet
+				.size());
+
+		EncodedColumn[] columns = store.columns;
+		int row = 0;
+		double value;
+		long hash = FNV_OFFSET;
+		for (Example e : exampleSet) {
+			for (int c = 0; c < attributes.length; c++) {
+				value = e.getValue(attributes[c]);
+				if (Double.isNaN(value)) {
+					columns[c].setMissing(row);
+					hash = hash(hash, -1);
+				} else {
+					columns[c].set(row, (int) value);
+					hash = hash(hash, (int) value);
+				}
+			}
+			row++;
+		}
+		store.valueHash = (hash == 0) ? 1 : hash;
+		return store;
+	}
+
+	/**
+	 * Creates a store of the specified size whose columns are filled directly
+	 * instead of encoded from an ExampleSet, e.g. by DataGenerator. All
+	 * values are 0 until set. Such a store has no ExampleSet, so it can be
+	 * counted headless (see PatternEngine) but not displayed.
+	 * 
+	 * @param attributes
+	 *            the nominal attributes of the columns
+	 * @param size
+	 *            the number of examples
+	 * @return the ColumnStore
+	 */
+	public static ColumnStore create(Attribute[] attributes, int size) {
+		return new ColumnStore(null, attributes, size);
+	}
+
+	/**
+	 * Gets the ExampleSet this store was encoded from.
+	 * 
+	 * @return the ExampleSet, or null if the store was created directly
+	 */
+	public ExampleSet getExampleSet() {
+		return exampleSet;
+	}
+
+	/**
+	 * Builds the BitmapIndex of this store. Must be called once all values
+	 * have been set.
+	 */
+	public void buildBitmapIndex() {
+		bitmapIndex = BitmapIndex.build(this);
+	}
+
+	/**
+	 * Gets the BitmapIndex of this store.
+	 * 
+	 * @return the index, or null if it has not been built
+	 */
+	public BitmapIndex getBitmapIndex() {
+		return bitmapIndex;
+	}
+
+	/**
+	 * Computes a fingerprint of this store from its size, its attributes and
+	 * their values, and the value of every example, so that any change of
+	 * the examples changes it. The values of an encoded store were hashed by
+	 * encode(), those of a store filled directly are read once here, so the
+	 * store must not change after the first call.
+	 * 
+	 * @return the fingerprint
+	 */
+	public synchronized long getFingerprint() {
+		if (fingerprint == 0) {
+			long hash = FNV_OFFSET;
+			hash = hash(hash, size);
+			hash = hash(hash, attributes.length);
+			for (Attribute a : attributes) {
+				hash = hash(hash, a.getName());
+				for (String value : a.getMapping().getValues()) {
+					hash = hash(hash, value);
+				}
+			}
+			if (valueHash == 0) {
+				long values = FNV_OFFSET;
+				for (int row = 0; row < size; row++) {
+					for (EncodedColumn column : columns) {
+						values = hash(values, column.isMissing(row) ? -1
+								: column.get(row));
+					}
+				}
+				valueHash = (values == 0) ? 1 : values;
+			}
+			hash = (hash ^ valueHash) * FNV_PRIME;
+			fingerprint = (hash == 0) ? 1 : hash;
+		}
+		return fingerprint;
+	}
+
+	private static long hash(long hash, int value) {
+		for (int i = 0; i < 4; i++) {
+			hash = (hash ^ ((value >>> (8 * i)) & 0xFF)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, String value) {
+		hash = hash(hash, value.length());
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Gets the number of examples.
+	 * 
+	 * @return the number of examples
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of columns.
+	 * 
+	 * @return the number of columns
+	 */
+	public int getNumColumns() {
+		return columns.length;
+	}
+
+	/**
+	 * Gets the c'th column.
+	 * 
+	 * @param c
+	 * @return the column
+	 */
+	public EncodedColumn getColumn(int c) {
+		return columns[c];
+	}
+
+	/**
+	 * Gets the index of the column of the attribute with the specified name.
+	 * 
+	 * @param name
+	 * @return the column index
+	 */
+	public int getIndex(String name) {
+		return indices.get(name);
+	}
+
+	/**
+	 * Gets the column of the attribute with the specified name.
+	 * 
+	 * @param name
+	 * @return the column
+	 */
+	public EncodedColumn getColumn(String name) {
+		return columns[indices.get(name)];
+	}
+
+	/**
+	 * Gets the attribute of the c'th column.
+	 * 
+	 * @param c
+	 * @return the attribute
+	 */
+	public Attribute getAttribute(int c) {
+		return attributes[c];
+	}
+
+	/**
+	 * Gets the attribute with the specified name.
+	 * 
+	 * @param name
+	 * @return the attribute
+	 */
+	public Attribute getAttribute(String name) {
+		return attributes[indices.get(name)];
+	}
+}
@@ -0,0 +1,174 @@
+package y11.data;
+
+/**
+ * A dictionary-encoded column. Stores the mapping index of every example's
+ * value in the narrowest primitive array that can hold all of the attribute's
+ * values.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class EncodedColumn {
+
+	/**
+	 * Widths of the encoded values in bytes.
+	 */
+	public static final int BYTE = 1;
+	public static final int SHORT = 2;
+	public static final int INT = 4;
+
+	private int width;
+	private int size;
+	private int missing; // marks missing values until they are replenished
+	private byte[] bytes;
+	private short[] shorts;
+	private int[] ints;
+
+	/**
+	 * Creates a new EncodedColumn with the specified settings.
+	 * 
+	 * @param size
+	 *            the number of examples
+	 * @param numValues
+	 *            the number of values the column must be able to hold
+	 */
+	public EncodedColumn(int size, int numValues) {
+		this.size = size;
+		if (numValues < 0xFF) {
+			width = BYTE;
+			missing = 0xFF;
+			bytes = new byte[size];
+		} else if (numValues < 0xFFFF) {
+			width = SHORT;
+			missing = 0xFFFF;
+			shorts = new short[size];
+		} else {
+			width = INT;
+			missing = -1;
+			ints = new int[size];
+		}
+	}
+
+	/**
+	 * Gets the value index of the specified example.
+	 * 
+	 * @param row
+	 * @return the value index
+	 */
+	public int get(int row) {
+		switch (width) {
+		case BYTE:
+			return bytes[row] & 0xFF;
+		case SHORT:
+			return shorts[row] & 0xFFFF;
+		default:
+			return ints[row];
+		}
+	}
+
+	/**
+	 * Sets the value index of the specified example.
+	 * 
+	 * @param row
+	 * @param value
+	 */
+	public void set(int row, int value) {
+		switch (width) {
+		case BYTE:
+			bytes[row] = (byte) value;
+			break;
+		case SHORT:
+			shorts[row] = (short) value;
+			break;
+		default:
+			ints[row] = value;
+		}
+	}
+
+	/**
+	 * Marks the value of the specified example as missing.
+	 * 
+	 * @param row
+	 */
+	public void setMissing(int row) {
+		set(row, missing);
+	}
+
+	/**
+	 * Tests if the value of the specified example is missing.
+	 * 
+	 * @param row
+	 * @return true if the value is missing
+	 */
+	public boolean isMissing(int row) {
+		return get(row) == missing;
+	}
+
+	/**
+	 * Decodes the value indices of length consecutive examples into codes.
+	 * Loops are specialized per width so that every value costs a single
+	 * array load.
+	 * 
+	 * @param rows
+	 *            maps examples to rows of this column, or null if they are the
+	 *            same
+	 * @param from
+	 *            the first example to decode
+	 * @param length
+	 *            the number of examples to decode
+	 * @param codes
+	 *            receives the value indices
+	 */
+	public void decode(int[] rows, int from, int length, int[] codes) {
+		switch (width) {
+		case BYTE:
+			if (rows == null) {
+				for (int i = 0; i < length; i++) {
+					codes[i] = bytes[from + i] & 0xFF;
+				}
+			} else {
+				for (int i = 0; i < length; i++) {
+					codes[i] = bytes[rows[from + i]] & 0xFF;
+				}
+			}
+			break;
+		case SHORT:
+			if (rows == null) {
+				for (int i = 0; i < length; i++) {
+					codes[i] = shorts[from + i] & 0xFFFF;
+				}
+			} else {
+				for (int i = 0; i < length; i++) {
+					codes[i] = shorts[rows[from + i]] & 0xFFFF;
+				}
+			}
+			break;
+		default:
+			if (rows == null) {
+				System.arraycopy(ints, from, codes, 0, length);
+			} else {
+				for (int i = 0; i < length; i++) {
+					codes[i] = ints[rows[from + i]];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the width of the encoded values.
+	 * 
+	 * @return BYTE, SHORT or INT
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the number of examples in this column.
+	 * 
+	 * @return the number of examples
+	 */
+	public int size() {
+		return size;
+	}
+}
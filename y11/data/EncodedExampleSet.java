@@ -0,0 +1,287 @@
+package y11.data;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.set.MappedExampleSet;
+
+/**
+ * A selection of examples from a ColumnStore. Pairs the rows of the store
+ * that are selected with the equivalent RapidMiner ExampleSet.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class EncodedExampleSet {
+
+	private ColumnStore store;
+	private boolean all; // true if all rows of the store are selected
+	private volatile int[] rows; // the store row of every example
+	private ExampleSet exampleSet;
+	private RoaringBitmap selection; // the selected rows, null if all rows
+	private int size;
+	private String selectionKey; // the filters selecting the rows, sorted
+
+	// a filter on the parent that has not been applied yet
+	private volatile EncodedExampleSet parent;
+	private String filterName;
+	private int filterCode;
+	private boolean exclude;
+	// the examples filtered, kept after the filter has been applied
+	private WeakReference<EncodedExampleSet> origin;
+
+	/**
+	 * Creates a new EncodedExampleSet selecting all examples of the store.
+	 * 
+	 * @param store
+	 */
+	public EncodedExampleSet(ColumnStore store) {
+		this.store = store;
+		this.all = true;
+		this.exampleSet = store.getExampleSet();
+		this.size = store.size();
+		this.selectionKey = "";
+	}
+
+	/**
+	 * Creates a new EncodedExampleSet selecting the specified rows of the
+	 * store.
+	 * 
+	 * @param store
+	 * @param rows
+	 *            the store row of every example, in ascending order
+	 */
+	public EncodedExampleSet(ColumnStore store, int[] rows) {
+		this.store = store;
+		this.rows = rows;
+		this.size = rows.length;
+	}
+
+	/**
+	 * Creates a new EncodedExampleSet selecting the examples of the parent
+	 * that have (or do not have) the specified value. The filter is applied
+	 * lazily, the first time the rows or the ExampleSet are needed, so that
+	 * views whose counts can be derived from another matrix never touch the
+	 * examples.
+	 * 
+	 * @param parent
+	 *            the examples to filter
+	 * @param name
+	 *            the name of the attribute filtered on
+	 * @param code
+	 *            the code of the value filtered on
+	 * @param exclude
+	 *            true if the examples with this value are removed, otherwise
+	 *            only these are kept
+	 * @param size
+	 *            the number of examples passing the filter, or -1 if it is not
+	 *            known, in which case the filter is applied right away
+	 */
+	public EncodedExampleSet(EncodedExampleSet parent, String name, int code,
+			boolean exclude, int size) {
+		this.store = parent.store;
+		this.parent = parent;
+		this.origin = new WeakReference<EncodedExampleSet>(parent);
+		this.filterName = name;
+		this.filterCode = code;
+		this.exclude = exclude;
+		this.size = size;
+		if (parent.selectionKey != null) {
+			TreeSet<String> filters = new TreeSet<String>();
+			for (String filter : parent.selectionKey.split(";")) {
+				if (filter.length() > 0) {
+					filters.add(filter);
+				}
+			}
+			filters.add((exclude ? "-" : "+") + name + "=" + code);
+			StringBuilder key = new StringBuilder();
+			for (String filter : filters) {
+				key.append(filter).append(';');
+			}
+			this.selectionKey = key.toString();
+		}
+		if (size < 0) {
+			materialize();
+		}
+	}
+
+	/**
+	 * Applies a pending filter to the parent examples. With a BitmapIndex,
+	 * the rows come from the selection, otherwise the parent examples are
+	 * scanned. Either way the rows are store rows, so no selection depends on
+	 * the selections before it once it has been applied.
+	 */
+	private synchronized void materialize() {
+		if (rows != null) {
+			return;
+		}
+		if (store.getBitmapIndex() != null) {
+			rows = getSelection().toArray();
+		} else {
+			EncodedColumn column = store.getColumn(filterName);
+			int[] rows = new int[(size < 0) ? parent.size() : size];
+			int map_i = 0;
+			for (int map_e = 0; map_e < parent.size(); map_e++) {
+				int row = parent.getRow(map_e);
+				if ((column.get(row) == filterCode) != exclude) {
+					rows[map_i++] = row;
+				}
+			}
+			this.rows = (map_i < rows.length) ? Arrays.copyOf(rows, map_i)
+					: rows;
+		}
+		size = rows.length;
+		parent = null;
+	}
+
+	/**
+	 * Gets a description of the filters selecting these examples from the
+	 * store, which does not depend on the order they were applied in.
+	 * 
+	 * @return the sorted filters, or null if the rows were selected directly
+	 */
+	public String getSelectionKey() {
+		return selectionKey;
+	}
+
+	/**
+	 * Tests if this selection applies the same filter as another one. Both
+	 * select the same examples if they filter the same examples.
+	 * 
+	 * @param other
+	 * @return true if both filter on the same value in the same way
+	 */
+	public boolean isSameFilter(EncodedExampleSet other) {
+		return filterName != null && store == other.store
+				&& filterName.equals(other.filterName)
+				&& filterCode == other.filterCode && exclude == other.exclude;
+	}
+
+	/**
+	 * Gets the selected rows as a bitmap, computing them from the parent
+	 * selection and the BitmapIndex of the store if necessary. Only available
+	 * if the store has a BitmapIndex.
+	 * 
+	 * @return the selected rows, or null if all rows are selected
+	 */
+	public synchronized RoaringBitmap getSelection() {
+		if (selection == null && !all) {
+			if (parent == null) {
+				// rows were set directly
+				selection = new RoaringBitmap();
+				for (int row : rows) {
+					selection.add(row);
+				}
+				return selection;
+			}
+			RoaringBitmap values = store.getBitmapIndex().get(filterName,
+					filterCode);
+			RoaringBitmap parentSelection = parent.getSelection();
+			if (exclude) {
+				selection = ((parentSelection == null) ? RoaringBitmap
+						.range(store.size()) : parentSelection).andNot(values);
+			} else {
+				selection = (parentSelection == null) ? values
+						: parentSelection.and(values);
+			}
+			parent = null; // the selection no longer depends on it
+		}
+		return selection;
+	}
+
+	/**
+	 * Tests if these examples were selected from their parent by a filter on
+	 * the specified attribute.
+	 * 
+	 * @param name
+	 *            the name of the attribute
+	 * @return True if the examples were filtered on this attribute
+	 */
+	public boolean isFilteredOn(String name) {
+		return name.equals(filterName);
+	}
+
+	/**
+	 * Tests if these examples were selected from exactly the specified
+	 * examples by a single filter on the specified attribute.
+	 * 
+	 * @param other
+	 *            the examples filtered
+	 * @param name
+	 *            the name of the attribute
+	 * @return True if the examples were filtered from other on this attribute
+	 */
+	public boolean isFilteredFrom(EncodedExampleSet other, String name) {
+		return origin != null && origin.get() == other && isFilteredOn(name);
+	}
+
+	/**
+	 * Gets the number of examples.
+	 * 
+	 * @return the number of examples
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the store rows of the examples, see EncodedColumn.decode.
+	 * 
+	 * @return the store rows, or null if all rows are selected
+	 */
+	public int[] getRows() {
+		if (rows == null && !all) {
+			materialize();
+		}
+		return rows;
+	}
+
+	/**
+	 * Gets the store row of the i'th example.
+	 * 
+	 * @param i
+	 * @return the store row
+	 */
+	public int getRow(int i) {
+		if (all) {
+			return i;
+		}
+		return getRows()[i];
+	}
+
+	/**
+	 * Gets the store the examples are selected from.
+	 * 
+	 * @return the ColumnStore
+	 */
+	public ColumnStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Gets the column of the specified attribute.
+	 * 
+	 * @param a
+	 * @return the column
+	 */
+	public EncodedColumn getColumn(Attribute a) {
+		return store.getColumn(a.getName());
+	}
+
+	/**
+	 * Gets the RapidMiner ExampleSet holding the same examples.
+	 * 
+	 * @return the ExampleSet
+	 */
+	public synchronized ExampleSet getExampleSet() {
+		if (exampleSet == null) {
+			// one level of mapping over the base examples, sharing the rows
+			exampleSet = new MappedExampleSet(store.getExampleSet(),
+					getRows());
+		}
+		return exampleSet;
+	}
+}
@@ -0,0 +1,481 @@
+package y11.data;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of example rows. Rows are split by their high 16 bits into
+ * containers of up to 65536 rows. Sparse containers hold their low 16 bits in
+ * a sorted array, dense ones in a bitmap of 1024 longs, so that a set never
+ * takes much more than 2 bytes per row or 1 bit per possible row. Bitmaps
+ * are immutable once built, and results of operations may share containers
+ * with their arguments.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class RoaringBitmap {
+
+	private static final int ARRAY_MAX = 4096; // largest array container
+	private static final int WORDS = 1024; // longs in a bitmap container
+
+	private char[] keys; // high 16 bits of every container, ascending
+	private Container[] containers;
+	private int numContainers;
+
+	/**
+	 * Creates a new empty RoaringBitmap.
+	 */
+	public RoaringBitmap() {
+		this(4);
+	}
+
+	private RoaringBitmap(int capacity) {
+		keys = new char[capacity];
+		containers = new Container[capacity];
+	}
+
+	/**
+	 * Creates a bitmap holding all rows in [0, size).
+	 * 
+	 * @param size
+	 * @return the bitmap
+	 */
+	public static RoaringBitmap range(int size) {
+		RoaringBitmap range = new RoaringBitmap((size >>> 16) + 1);
+		for (int start = 0; start < size; start += 1 << 16) {
+			int length = Math.min(1 << 16, size - start);
+			long[] words = new long[WORDS];
+			Arrays.fill(words, 0, length >>> 6, -1L);
+			if ((length & 63) != 0) {
+				words[length >>> 6] = (1L << (length & 63)) - 1;
+			}
+			range.append((char) (start >>> 16), new BitmapContainer(words,
+					length));
+		}
+		return range;
+	}
+
+	/**
+	 * Adds a row, which must be larger than all rows added before.
+	 * 
+	 * @param row
+	 */
+	public void add(int row) {
+		char high = (char) (row >>> 16);
+		char low = (char) row;
+		if (numContainers == 0 || keys[numContainers - 1] != high) {
+			append(high, new ArrayContainer(new char[16], 0));
+		}
+		containers[numContainers - 1] = containers[numContainers - 1]
+				.append(low);
+	}
+
+	private void append(char key, Container container) {
+		if (numContainers == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * numContainers);
+			containers = Arrays.copyOf(containers, 2 * numContainers);
+		}
+		keys[numContainers] = key;
+		containers[numContainers++] = container;
+	}
+
+	/**
+	 * Gets the number of rows in this bitmap.
+	 * 
+	 * @return the number of rows
+	 */
+	public int getCardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < numContainers; i++) {
+			cardinality += containers[i].cardinality;
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Estimates the work of intersecting this bitmap with another, in words
+	 * or array entries read.
+	 * 
+	 * @return the estimated cost
+	 */
+	public long getCost() {
+		long cost = 0;
+		for (int i = 0; i < numContainers; i++) {
+			cost += containers[i].cost();
+		}
+		return cost;
+	}
+
+	/**
+	 * Intersects this bitmap with another.
+	 * 
+	 * @param other
+	 * @return the rows in both bitmaps
+	 */
+	public RoaringBitmap and(RoaringBitmap other) {
+		RoaringBitmap result = new RoaringBitmap(Math.max(1, Math.min(
+				numContainers, other.numContainers)));
+		int i = 0, j = 0;
+		while (i < numContainers && j < other.numContainers) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				Container c = containers[i].and(other.containers[j]);
+				if (c.cardinality > 0) {
+					result.append(keys[i], c);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the rows of another bitmap from this one.
+	 * 
+	 * @param other
+	 * @return the rows in this bitmap but not in the other
+	 */
+	public RoaringBitmap andNot(RoaringBitmap other) {
+		RoaringBitmap result = new RoaringBitmap(Math.max(1, numContainers));
+		int j = 0;
+		for (int i = 0; i < numContainers; i++) {
+			while (j < other.numContainers && other.keys[j] < keys[i]) {
+				j++;
+			}
+			Container c = containers[i];
+			if (j < other.numContainers && other.keys[j] == keys[i]) {
+				c = c.andNot(other.containers[j]);
+			}
+			if (c.cardinality > 0) {
+				result.append(keys[i], c);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the rows this bitmap has in common with another, without
+	 * building their intersection.
+	 * 
+	 * @param other
+	 * @return the number of rows in both bitmaps
+	 */
+	public int andCardinality(RoaringBitmap other) {
+		int cardinality = 0;
+		int i = 0, j = 0;
+		while (i < numContainers && j < other.numContainers) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				cardinality += containers[i]
+						.andCardinality(other.containers[j]);
+				i++;
+				j++;
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Counts the rows of this bitmap that are smaller than or equal to the
+	 * specified row.
+	 * 
+	 * @param row
+	 * @return the rank of the row
+	 */
+	public int rank(int row) {
+		char high = (char) (row >>> 16);
+		int rank = 0;
+		for (int i = 0; i < numContainers && keys[i] <= high; i++) {
+			if (keys[i] < high) {
+				rank += containers[i].cardinality;
+			} else {
+				rank += containers[i].rank((char) row);
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * Lists the rows of this bitmap in ascending order.
+	 * 
+	 * @return the rows
+	 */
+	public int[] toArray() {
+		int[] rows = new int[getCardinality()];
+		int pos = 0;
+		for (int i = 0; i < numContainers; i++) {
+			pos = containers[i].toArray(rows, pos, keys[i] << 16);
+		}
+		return rows;
+	}
+
+	/**
+	 * The rows of a bitmap sharing the same high 16 bits.
+	 */
+	private static abstract class Container {
+
+		int cardinality;
+
+		abstract Container append(char low);
+
+		abstract boolean contains(char low);
+
+		abstract Container and(Container other);
+
+		abstract Container andNot(Container other);
+
+		abstract int andCardinality(Container other);
+
+		abstract int rank(char low);
+
+		abstract int toArray(int[] rows, int pos, int high);
+
+		abstract int cost();
+	}
+
+	/**
+	 * A container holding its rows in a sorted array.
+	 */
+	private static class ArrayContainer extends Container {
+
+		char[] values;
+
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container append(char low) {
+			if (cardinality == ARRAY_MAX) {
+				return toBitmap().append(low);
+			}
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX,
+						2 * cardinality));
+			}
+			values[cardinality++] = low;
+			return this;
+		}
+
+		BitmapContainer toBitmap() {
+			long[] words = new long[WORDS];
+			for (int i = 0; i < cardinality; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return new BitmapContainer(words, cardinality);
+		}
+
+		@Override
+		boolean contains(char low) {
+			return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			char[] result = new char[Math.min(cardinality, other.cardinality)];
+			int n = 0;
+			if (other instanceof ArrayContainer) {
+				ArrayContainer o = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while (i < cardinality && j < o.cardinality) {
+					if (values[i] < o.values[j]) {
+						i++;
+					} else if (values[i] > o.values[j]) {
+						j++;
+					} else {
+						result[n++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			} else {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						result[n++] = values[i];
+					}
+				}
+			}
+			return new ArrayContainer(result, n);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			char[] result = new char[cardinality];
+			int n = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (!other.contains(values[i])) {
+					result[n++] = values[i];
+				}
+			}
+			return new ArrayContainer(result, n);
+		}
+
+		@Override
+		int andCardinality(Container other) {
+			int n = 0;
+			if (other instanceof ArrayContainer
+					&& other.cardinality < cardinality) {
+				return other.andCardinality(this); // search the larger one
+			}
+			for (int i = 0; i < cardinality; i++) {
+				if (other.contains(values[i])) {
+					n++;
+				}
+			}
+			return n;
+		}
+
+		@Override
+		int rank(char low) {
+			int i = Arrays.binarySearch(values, 0, cardinality, low);
+			return (i >= 0) ? i + 1 : -i - 1;
+		}
+
+		@Override
+		int toArray(int[] rows, int pos, int high) {
+			for (int i = 0; i < cardinality; i++) {
+				rows[pos++] = high | values[i];
+			}
+			return pos;
+		}
+
+		@Override
+		int cost() {
+			return cardinality;
+		}
+	}
+
+	/**
+	 * A container holding its rows in a bitmap.
+	 */
+	private static class BitmapContainer extends Container {
+
+		long[] words;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container append(char low) {
+			words[low >>> 6] |= 1L << low;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		boolean contains(char low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			long[] o = ((BitmapContainer) other).words;
+			long[] result = new long[WORDS];
+			int n = 0;
+			for (int w = 0; w < WORDS; w++) {
+				result[w] = words[w] & o[w];
+				n += Long.bitCount(result[w]);
+			}
+			return shrink(result, n);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			long[] result = words.clone();
+			int n = cardinality;
+			if (other instanceof ArrayContainer) {
+				ArrayContainer o = (ArrayContainer) other;
+				for (int i = 0; i < o.cardinality; i++) {
+					char low = o.values[i];
+					if ((result[low >>> 6] & (1L << low)) != 0) {
+						result[low >>> 6] &= ~(1L << low);
+						n--;
+					}
+				}
+			} else {
+				long[] o = ((BitmapContainer) other).words;
+				n = 0;
+				for (int w = 0; w < WORDS; w++) {
+					result[w] &= ~o[w];
+					n += Long.bitCount(result[w]);
+				}
+			}
+			return shrink(result, n);
+		}
+
+		@Override
+		int andCardinality(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.andCardinality(this);
+			}
+			long[] o = ((BitmapContainer) other).words;
+			int n = 0;
+			for (int w = 0; w < WORDS; w++) {
+				n += Long.bitCount(words[w] & o[w]);
+			}
+			return n;
+		}
+
+		@Override
+		int rank(char low) {
+			int n = 0;
+			int last = low >>> 6;
+			for (int w = 0; w < last; w++) {
+				n += Long.bitCount(words[w]);
+			}
+			long mask = ((low & 63) == 63) ? -1L : (1L << ((low & 63) + 1)) - 1;
+			return n + Long.bitCount(words[last] & mask);
+		}
+
+		@Override
+		int toArray(int[] rows, int pos, int high) {
+			for (int w = 0; w < WORDS; w++) {
+				long word = words[w];
+				while (word != 0) {
+					rows[pos++] = high | (w << 6)
+							| Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return pos;
+		}
+
+		@Override
+		int cost() {
+			return WORDS;
+		}
+
+		/**
+		 * Turns a sparse result back into an array container.
+		 */
+		private static Container shrink(long[] words, int cardinality) {
+			if (cardinality > ARRAY_MAX) {
+				return new BitmapContainer(words, cardinality);
+			}
+			char[] values = new char[cardinality];
+			int n = 0;
+			for (int w = 0; w < WORDS; w++) {
+				long word = words[w];
+				while (word != 0) {
+					values[n++] = (char) ((w << 6) | Long
+							.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, cardinality);
+		}
+	}
+}
@@ -0,0 +1,334 @@
+package y11.data;
+
+import java.util.Arrays;
+
+/**
+ * A contingency table with few non-zero cells, e.g. the counts of an ID-like
+ * attribute against the target, which has at most one non-zero cell per
+ * example. The non-zero cells of every row are stored in ascending column
+ * order (compressed sparse rows), so a table takes 8 bytes per non-zero cell
+ * instead of 4 bytes per cell. Tables are immutable once built.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class SparseTable {
+
+	private int numRows;
+	private int numColumns;
+	private int[] rowStarts; // the first cell of every row, and the end
+	private int[] columns; // the column of every non-zero cell
+	private int[] counts; // the count of every non-zero cell
+
+	private SparseTable(int numRows, int numColumns, int[] rowStarts,
+			int[] columns, int[] counts) {
+		this.numRows = numRows;
+		this.numColumns = numColumns;
+		this.rowStarts = rowStarts;
+		this.columns = columns;
+		this.counts = counts;
+	}
+
+	/**
+	 * Gets the number of rows of this table.
+	 * 
+	 * @return the number of rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gets the number of columns of this table.
+	 * 
+	 * @return the number of columns
+	 */
+	public int getNumColumns() {
+		return numColumns;
+	}
+
+	/**
+	 * Gets the count of a cell.
+	 * 
+	 * @param row
+	 * @param column
+	 * @return the count
+	 */
+	public int get(int row, int column) {
+		int i = Arrays.binarySearch(columns, rowStarts[row],
+				rowStarts[row + 1], column);
+		return (i >= 0) ? counts[i] : 0;
+	}
+
+	/**
+	 * Gets the position of the first non-zero cell of a row among all
+	 * non-zero cells, which are stored row by row. The cells of a row end
+	 * where those of the next row start.
+	 * 
+	 * @param row
+	 *            the row, or the number of rows for the end of the last row
+	 * @return the position
+	 */
+	public int getRowStart(int row) {
+		return rowStarts[row];
+	}
+
+	/**
+	 * Gets the column of the i'th non-zero cell.
+	 * 
+	 * @param i
+	 *            the position of the cell, see {@link #getRowStart(int)}
+	 * @return the column
+	 */
+	public int getEntryColumn(int i) {
+		return columns[i];
+	}
+
+	/**
+	 * Gets the count of the i'th non-zero cell.
+	 * 
+	 * @param i
+	 *            the position of the cell, see {@link #getRowStart(int)}
+	 * @return the count
+	 */
+	public int getEntryCount(int i) {
+		return counts[i];
+	}
+
+	/**
+	 * Gets a row as a dense array.
+	 * 
+	 * @param row
+	 * @return the counts of every column
+	 */
+	public int[] getRow(int row) {
+		int[] dense = new int[numColumns];
+		for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+			dense[columns[i]] = counts[i];
+		}
+		return dense;
+	}
+
+	/**
+	 * Gets the counts of a row in the specified columns only.
+	 * 
+	 * @param row
+	 * @param indices
+	 *            the columns
+	 * @return the count of every column in indices
+	 */
+	public int[] gather(int row, int[] indices) {
+		int[] gathered = new int[indices.length];
+		for (int k = 0; k < indices.length; k++) {
+			gathered[k] = get(row, indices[k]);
+		}
+		return gathered;
+	}
+
+	/**
+	 * Sums the counts of a row.
+	 * 
+	 * @param row
+	 * @return the sum
+	 */
+	public int getRowSum(int row) {
+		int sum = 0;
+		for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+			sum += counts[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the largest count of a row.
+	 * 
+	 * @param row
+	 * @return the largest count, 0 if the row is empty
+	 */
+	public int getRowMax(int row) {
+		int max = 0;
+		for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+			max = Math.max(max, counts[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Sums the counts of every column over all rows.
+	 * 
+	 * @return the sum of every column
+	 */
+	public int[] getColumnSums() {
+		int[] sums = new int[numColumns];
+		for (int i = 0; i < rowStarts[numRows]; i++) {
+			sums[columns[i]] += counts[i];
+		}
+		return sums;
+	}
+
+	/**
+	 * Selects and renumbers rows and columns of this table.
+	 * 
+	 * @param rows
+	 *            the row of this table for every row of the result
+	 * @param columnMap
+	 *            the column of the result for every column of this table, or
+	 *            -1 if it is left out. Must keep the order of the columns.
+	 * @param numColumns
+	 *            the number of columns of the result
+	 * @return the selected table
+	 */
+	public SparseTable select(int[] rows, int[] columnMap, int numColumns) {
+		int[] starts = new int[rows.length + 1];
+		int n = 0;
+		for (int r = 0; r < rows.length; r++) {
+			for (int i = rowStarts[rows[r]]; i < rowStarts[rows[r] + 1]; i++) {
+				if (columnMap[columns[i]] >= 0) {
+					n++;
+				}
+			}
+			starts[r + 1] = n;
+		}
+		int[] cols = new int[n];
+		int[] cnts = new int[n];
+		n = 0;
+		for (int r = 0; r < rows.length; r++) {
+			for (int i = rowStarts[rows[r]]; i < rowStarts[rows[r] + 1]; i++) {
+				int column = columnMap[columns[i]];
+				if (column >= 0) {
+					cols[n] = column;
+					cnts[n++] = counts[i];
+				}
+			}
+		}
+		return new SparseTable(rows.length, numColumns, starts, cols, cnts);
+	}
+
+	/**
+	 * Computes the memory taken by this table.
+	 * 
+	 * @return the size in bytes
+	 */
+	public long estimateBytes() {
+		return 4L * (rowStarts.length + columns.length + counts.length);
+	}
+
+	/**
+	 * Counts the cells of a SparseTable in an open-addressing hash keyed by
+	 * row * numColumns + column, which must fit in an int.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	public static class Builder {
+
+		private static final int EMPTY = -1;
+
+		private int numRows;
+		private int numColumns;
+		private int[] keys;
+		private int[] values;
+		private int size;
+
+		/**
+		 * Creates a new Builder for a table of the specified size.
+		 * 
+		 * @param numRows
+		 * @param numColumns
+		 */
+		public Builder(int numRows, int numColumns) {
+			this.numRows = numRows;
+			this.numColumns = numColumns;
+			allocate(1024);
+		}
+
+		private void allocate(int capacity) {
+			keys = new int[capacity];
+			values = new int[capacity];
+			Arrays.fill(keys, EMPTY);
+		}
+
+		/**
+		 * Adds one to a cell.
+		 * 
+		 * @param row
+		 * @param column
+		 */
+		public void add(int row, int column) {
+			increment(row * numColumns + column, 1);
+		}
+
+		/**
+		 * Adds a count to a cell.
+		 * 
+		 * @param row
+		 * @param column
+		 * @param count
+		 */
+		public void add(int row, int column, int count) {
+			increment(row * numColumns + column, count);
+		}
+
+		private void increment(int key, int value) {
+			int mask = keys.length - 1;
+			int hash = key * 0x9E3779B9;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (keys[slot] != key) {
+				if (keys[slot] == EMPTY) {
+					if (2 * (size + 1) > keys.length) {
+						grow();
+						increment(key, value);
+						return;
+					}
+					keys[slot] = key;
+					size++;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			values[slot] += value;
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			int[] oldValues = values;
+			allocate(2 * oldKeys.length);
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != EMPTY) {
+					increment(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		/**
+		 * Builds the table from the counted cells.
+		 * 
+		 * @return the table
+		 */
+		public SparseTable build() {
+			long[] cells = new long[size];
+			int n = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != EMPTY) {
+					cells[n++] = ((long) keys[i] << 32) | values[i];
+				}
+			}
+			Arrays.sort(cells); // by row, then column
+			int[] rowStarts = new int[numRows + 1];
+			int[] columns = new int[size];
+			int[] counts = new int[size];
+			for (int i = 0; i < size; i++) {
+				int key = (int) (cells[i] >>> 32);
+				rowStarts[key / numColumns + 1]++;
+				columns[i] = key % numColumns;
+				counts[i] = (int) cells[i];
+			}
+			for (int r = 0; r < numRows; r++) {
+				rowStarts[r + 1] += rowStarts[r];
+			}
+			return new SparseTable(numRows, numColumns, rowStarts, columns,
+					counts);
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.operator.OperatorException;
@@ -22,6 +23,8 @@ import y11.GUI.histogram.DetailedHistogram;
 import y11.GUI.histogram.Histogram;
 import y11.click.Clickable;
 import y11.click.ClickableRegionMap;
+import y11.data.ColumnStore;
+import y11.data.EncodedExampleSet;
 import y11.logging.Log;
 import y11.manager.loader.DefaultViewLoader;
 import y11.manager.loader.FastViewLoader;
@@ -33,7 +36,12 @@ import y11.manager.util.HistoryContainer;
 import y11.manager.util.PreProcessing;
 import y11.matrix.UserCancelledException;
 import y11.matrix.Matrix;
-import y11.matrix.ProgressManager;
+import y11.matrix.MatrixCache;
+import y11.matrix.MatrixListener;
+import y11.matrix.OperationContext;
+import y11.matrix.Speculator;
+import y11.metrics.Metrics;
+import y11.metrics.OperationEvent;
 import y11.models.AttributeValuePair;
 import y11.models.histogram.HistogramModel;
 import y11.operator.PatternExplorerSettings;
@@ -56,6 +64,8 @@ public class ViewManager {
 	private MatrixRenderer matrixRenderer; // renderer from the GUI
 	private ViewState currentState; // the current state
 	private HashMap<String, ViewLoader> loaders; // the loading strategies
+	private OperationEvent event; // the event of the current operation
+	private MatrixListener listener; // shows the matrices of this panel
 	private DetailedHistogram detailedGraph;
 	private int cursor;
 	private ClickableRegionMap clickMap;
@@ -70,9 +80,30 @@ public class ViewManager {
 	 *            The MatrixRenderer for rendering the histogram display
 	 */
 	public ViewManager(ExampleSet exampleSet, MatrixRenderer matrixRenderer) {
+		long start = begin(Metrics.OPEN);
+
 		// initialize members
 		this.matrixRenderer = matrixRenderer;
 		clickMap = matrixRenderer.getClickMap();
+		// called on counting threads, so the renderer is changed on the EDT
+		listener = new MatrixListener() {
+			public void matrixStarted(final Matrix matrix) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						ViewManager.this.matrixRenderer.setModel(matrix);
+						ViewManager.this.matrixRenderer.repaint();
+					}
+				});
+			}
+
+			public void matrixChanged(Matrix matrix) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						ViewManager.this.matrixRenderer.repaint();
+					}
+				});
+			}
+		};
 
 		// initialize loaders
 		loaders = new HashMap<String, ViewLoader>();
@@ -87,46 +118,106 @@ public class ViewManager {
 
 		// preprocessing
 		Map numericFlags = PreProcessing.getNumericFlags(exampleSet);
-		ExampleSet exampleSetNew = null;
+		ColumnStore store = null;
 
 		try {
-			exampleSetNew = PreProcessing.preProcess(exampleSet);
+			store = PreProcessing.preProcess(exampleSet);
 		} catch (OperatorException e) {
 			e.printStackTrace();
 		}
 
-		MatrixInfo matrixInfo = new MatrixInfo(exampleSetNew, numericFlags);
+		MatrixInfo matrixInfo = new MatrixInfo(store.getExampleSet(),
+				numericFlags);
 
 		String target = matrixInfo.getDefaultTarget();
 		Zoom zoom = new Zoom();
 		Sigma sigma = new Sigma();
 
-		ProgressManager.resetProgress();
 		ViewState firstState;
+		OperationContext op = new OperationContext();
+		op.setMatrixListener(listener);
 		try {
-			firstState = loader.make(exampleSetNew, matrixInfo, zoom, sigma,
-					target);
+			firstState = loader.make(new EncodedExampleSet(store),
+					matrixInfo, zoom, sigma, target, op);
 			history.addFirst(firstState);
 			currentState = firstState;
 		} catch (UserCancelledException e) {
 			// Should never happen, user can't cancel the first operation
 			e.printStackTrace();
 		}
+		end(start);
 	}
 
 	/**
-	 * Renders the matrix
+	 * Tags all timings from now on with the kind of operation specified, and
+	 * starts timing the operation and its Flight Recorder event.
+	 * 
+	 * @param operation
+	 *            The kind of operation, see Metrics
+	 * @return The start time of the operation
+	 */
+	private long begin(String operation) {
+		Metrics.setOperation(operation);
+		event = new OperationEvent(operation);
+		event.begin();
+		return Metrics.start();
+	}
+
+	/**
+	 * Begins an operation that may count matrices, which are shown by this
+	 * panel while they are counted.
+	 * 
+	 * @param operation
+	 *            The kind of operation, see Metrics
+	 * @param op
+	 *            The context of the operation
+	 * @return The start time of the operation
+	 */
+	private long begin(String operation, OperationContext op) {
+		op.setMatrixListener(listener);
+		return begin(operation);
+	}
+
+	/**
+	 * Stops timing the current operation, and commits its event with the view
+	 * it ended in.
+	 * 
+	 * @param start
+	 *            The start time of the operation
+	 */
+	private void end(long start) {
+		Metrics.stop(Metrics.OPERATION, start);
+		if (event.shouldCommit() && currentState != null) {
+			event.setView(currentState.getTarget(), currentState
+					.getExampleSet().size(), currentState.getMatrixInfo()
+					.getNumAttributes(), loader.getName());
+			event.commit();
+		}
+		event = null;
+	}
+
+	/**
+	 * Renders the matrix. The renderer is changed on the event dispatch
+	 * thread, after any change the listener has posted before.
 	 */
 	public void renderMatrix() {
-		matrixRenderer.setModel(loader.getMatrix());
-		matrixRenderer.setScale((int) currentState.getZoomValue());
-		HistogramModel.setSigma(currentState.getSigmaValue());
+		final Matrix matrix = loader.getMatrix();
+		final int scale = (int) currentState.getZoomValue();
+		final double sigma = currentState.getSigmaValue();
 		detailedGraph = null;
-		matrixRenderer.repaint();
 		toolTipText = GUISettings.EMPTY_TOOLTIP_TXT;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				matrixRenderer.setModel(matrix);
+				matrixRenderer.setScale(scale);
+				HistogramModel.setSigma(sigma);
+				matrixRenderer.repaint();
+			}
+		});
 	}
 
 	private void moveToNewState(ViewState newState) {
+		Speculator.cancel(listener); // speculated from the old state
 		history.add(newState);
 		currentState = newState;
 		renderMatrix();
@@ -136,9 +227,10 @@ public class ViewManager {
 		}
 	}
 
-	private void moveToExistingState(ViewState existingState, boolean isReset)
-			throws UserCancelledException {
-		loader.load(existingState, currentState, isReset);
+	private void moveToExistingState(ViewState existingState, boolean isReset,
+			OperationContext op) throws UserCancelledException {
+		Speculator.cancel(listener);
+		loader.load(existingState, currentState, isReset, op);
 		currentState = existingState;
 		renderMatrix();
 
@@ -322,18 +414,22 @@ public class ViewManager {
 	 * 
 	 * @param target
 	 *            The target to switch to
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doChangeTarget(String target) {
+	public void doChangeTarget(String target, OperationContext op) {
+		long start = begin(Metrics.TARGET_CHANGE, op);
 		Log.out("changing target to '" + target + "' ..");
 		ViewState newState;
 		try {
-			newState = loader.make(currentState, target);
+			newState = loader.make(currentState, target, op);
 			moveToNewState(newState);
 			Log.out(".. completed");
 		} catch (UserCancelledException e) {
-			// operation canceled so don't do anything
+			// operation cancelled, show the current matrix again
+			renderMatrix();
 		}
-
+		end(start);
 	}
 
 	/**
@@ -344,6 +440,7 @@ public class ViewManager {
 	 *            The slider value to use
 	 */
 	public void doChangeSigma(double sliderVal) {
+		Metrics.setOperation(Metrics.SIGMA);
 		double threshold = this.convertSigmaSliderToThreshold(sliderVal);
 		HistogramModel.setSigma(threshold);
 		matrixRenderer.repaint();
@@ -355,20 +452,24 @@ public class ViewManager {
 	 * 
 	 * @param sliderVal
 	 *            The slider value to use
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doChangeAndSetSigma(double sliderVal) {
+	public void doChangeAndSetSigma(double sliderVal, OperationContext op) {
+		long start = begin(Metrics.SIGMA, op);
 		double threshold = this.convertSigmaSliderToThreshold(sliderVal);
 		Sigma newSigma = new Sigma(threshold);
 		ViewState newState;
 		try {
-			newState = loader.make(currentState, newSigma);
+			newState = loader.make(currentState, newSigma, op);
 			moveToNewState(newState);
 			Log.out("changed statistical significance threshold to "
 					+ threshold + " ..");
 		} catch (UserCancelledException e) {
-			// operation canceled so don't do anything
+			// operation cancelled, show the current matrix again
+			renderMatrix();
 		}
-
+		end(start);
 	}
 
 	/**
@@ -379,6 +480,7 @@ public class ViewManager {
 	 *            The slider value to use
 	 */
 	public void doChangeZoom(int sliderVal) {
+		Metrics.setOperation(Metrics.ZOOM);
 		double scale = convertZoomSliderToScale(sliderVal);
 		matrixRenderer.setScale((int) scale);
 		matrixRenderer.repaint();
@@ -392,11 +494,13 @@ public class ViewManager {
 	 *            The slider value to use
 	 */
 	public void doChangeAndSetZoom(int sliderVal) {
+		long start = begin(Metrics.ZOOM);
 		double scale = convertZoomSliderToScale(sliderVal);
 		Zoom zoom = new Zoom(scale);
 		ViewState newState = loader.make(currentState, zoom);
 		moveToNewState(newState);
 		Log.out("changed zoom scale to " + scale);
+		end(start);
 	}
 
 	/**
@@ -409,24 +513,30 @@ public class ViewManager {
 	 * @param removeSingle
 	 *            If true, removes the row specified, otherwise removes all oher
 	 *            rows.
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doDrillDown(AttributeValuePair avp, boolean removeSingle) {
+	public void doDrillDown(AttributeValuePair avp, boolean removeSingle,
+			OperationContext op) {
+		long start = begin(Metrics.DRILL_DOWN, op);
 		Log.out((removeSingle ? "removing target value"
 				: "focusing on target value")
 				+ " '" + avp.getValue() + "' ..");
-		ExampleSet exampleSet;
+		EncodedExampleSet exampleSet;
 		exampleSet = Matrix.createDrilledDownExampleSet(currentState
 				.getExampleSet(), avp, removeSingle);
 		MatrixInfo matrixInfo = new MatrixInfo(currentState.getMatrixInfo(),
 				avp, removeSingle);
 		ViewState newState;
 		try {
-			newState = loader.make(currentState, matrixInfo, exampleSet);
+			newState = loader.make(currentState, matrixInfo, exampleSet, op);
 			moveToNewState(newState);
 			Log.out(".. completed");
 		} catch (UserCancelledException e) {
-			// operation cancelled so don't do anything
+			// operation cancelled, show the current matrix again
+			renderMatrix();
 		}
+		end(start);
 	}
 
 	/**
@@ -437,11 +547,13 @@ public class ViewManager {
 	 *            The attribute to expand/contract
 	 */
 	public void doExpandContractColumn(String attribute) {
+		long start = begin(Metrics.EXPAND);
 		MatrixInfo matrixInfo = new MatrixInfo(currentState.getMatrixInfo(),
 				attribute);
 		ViewState newState = loader.make(currentState, matrixInfo, attribute);
 		moveToNewState(newState);
 		Log.out("expanded/contracted attribute '" + attribute + "'");
+		end(start);
 	}
 
 	// HISTORY
@@ -449,50 +561,67 @@ public class ViewManager {
 	/**
 	 * Steps to previous state in history. This operation can be cancelled by
 	 * the user.
+	 * 
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doStepBack() {
+	public void doStepBack(OperationContext op) {
+		long start = begin(Metrics.HISTORY, op);
 		Log.out("stepping back in history ..");
 		if (history.stepBack()) {
 			try {
-				moveToExistingState(history.getCurrent(), false);
+				moveToExistingState(history.getCurrent(), false, op);
 				Log.out(".. completed");
 			} catch (UserCancelledException e) {
-				// operation cancelled so don't do anything
+				// operation cancelled, show the current matrix again
+				renderMatrix();
 			}
 		}
+		end(start);
 	}
 
 	/**
 	 * Steps to next state in history. This operation can be cancelled by the
 	 * user.
+	 * 
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doStepForward() {
+	public void doStepForward(OperationContext op) {
+		long start = begin(Metrics.HISTORY, op);
 		Log.out("stepping forward in history ..");
 		if (history.stepForward()) {
 			try {
-				moveToExistingState(history.getCurrent(), false);
+				moveToExistingState(history.getCurrent(), false, op);
 				Log.out(".. completed");
 			} catch (UserCancelledException e) {
-				// operation cancelled so don't do anything
+				// operation cancelled, show the current matrix again
+				renderMatrix();
 			}
 		}
-
+		end(start);
 	}
 
 	/**
 	 * Resets history to the initial state. This operation can be cancelled by
 	 * the user.
+	 * 
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doReset() {
+	public void doReset(OperationContext op) {
+		long start = begin(Metrics.HISTORY, op);
 		Log.out("resetting history ..");
 		if (history.reset()) {
 			try {
-				moveToExistingState(history.getCurrent(), true);
+				moveToExistingState(history.getCurrent(), true, op);
 				Log.out(".. completed");
 			} catch (UserCancelledException e) {
-				// operation cancelled so don't do anything
+				// operation cancelled, show the current matrix again
+				renderMatrix();
 			}
 		}
+		end(start);
 	}
 
 	/**
@@ -505,6 +634,11 @@ public class ViewManager {
 		Matrix matrix = loader.getMatrix();
 		loader = loaders.get(action);
 		loader.setMatrix(matrix);
+		if (loader.isDefaultViewLoader()) {
+			((DefaultViewLoader) loader).optimize();
+		} else {
+			MatrixCache.setLowMemory(loader.isLeanViewLoader());
+		}
 		Log.out("changed history strategy to " + action);
 	}
 
@@ -519,55 +653,70 @@ public class ViewManager {
 	/**
 	 * Reponds to a click event on the histogram display and delegates control
 	 * to the proper procedure. Some operations can be cancelled by the user.
-	 * Those that cannot assert ProgressManager.setDidNotRun();
+	 * Those that cannot assert op.setDidNotRun();
 	 * 
 	 * @param p
 	 *            The point at which the event occurs
+	 * @param op
+	 *            The context of the operation
 	 */
-	public void doGraphClicked(Point p) {
+	public void doGraphClicked(Point p, OperationContext op) {
 		Clickable c = clickMap.get(p);
 		if (c != null) {
 			if (c instanceof Histogram) {
 				Histogram h = (Histogram) c;
 				detailedGraph = new DetailedHistogram(h.getModel());
-				ProgressManager.setDidNotRun();
+				op.setDidNotRun();
 			} else if (c instanceof ColumnLabel) {
 				Label lbl = (Label) c;
-				doChangeTarget(lbl.getText());
+				doChangeTarget(lbl.getText(), op);
 			} else if (c instanceof RowLabel) {
 				// drill down on value
 				RowLabel lbl = (RowLabel) c;
 				if (lbl.canDrillDown()) {
-					doDrillDown(lbl.getAvp(), FOCUS_VALUE);
+					doDrillDown(lbl.getAvp(), FOCUS_VALUE, op);
 				} else {
-					ProgressManager.setDidNotRun();
+					op.setDidNotRun();
 				}
 			} else if (c instanceof RemoveButton) {
 				// remove value
 				RemoveButton btn = (RemoveButton) c;
-				doDrillDown(btn.getAvp(), REMOVE_VALUE);
+				doDrillDown(btn.getAvp(), REMOVE_VALUE, op);
 			} else if (c instanceof ExpandButton) {
 				// expand or contract
 				ExpandButton btn = (ExpandButton) c;
 				doExpandContractColumn(btn.getAttribute());
-				ProgressManager.setDidNotRun();
+				op.setDidNotRun();
 			} else {
 				// other clickables
 			}
 		} else {
-			ProgressManager.setDidNotRun();
+			op.setDidNotRun();
 		}
 	}
 
 	/**
 	 * Reponds to a mouse move event on the histogram display and delegates
-	 * control to the proper procedure.
+	 * control to the proper procedure. Resting on the label of an attribute
+	 * or of a target value starts computing the target change or drill-down
+	 * it leads to, see Speculator.
 	 * 
 	 * @param p
 	 *            The point at which the event occurs
 	 */
 	public void doGraphMouseMoved(Point p) {
 		Clickable c = clickMap.get(p);
+		if (c instanceof ColumnLabel
+				&& !((Label) c).getText().equals(currentState.getTarget())) {
+			Speculator.speculateTargetChange(listener, currentState,
+					((Label) c).getText());
+		} else if (c instanceof RowLabel && ((RowLabel) c).canDrillDown()) {
+			Matrix matrix = loader.getMatrix(currentState);
+			Speculator.speculateDrillDown(listener, currentState, matrix,
+					((RowLabel) c).getAvp(), FOCUS_VALUE);
+		} else {
+			Speculator.cancelPending(listener);
+		}
 		if (c != null) {
 			cursor = Cursor.HAND_CURSOR;
 			toolTipText = ((CanvasComponent) c).getToolTipText();
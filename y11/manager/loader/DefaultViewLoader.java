@@ -1,15 +1,17 @@
 package y11.manager.loader;
 
+import y11.data.EncodedExampleSet;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
 import y11.manager.state.MatrixInfo;
 import y11.manager.state.ViewState;
 import y11.matrix.UserCancelledException;
 import y11.matrix.Matrix;
+import y11.matrix.MatrixCache;
+import y11.matrix.OperationContext;
+import y11.metrics.LoaderSwitchEvent;
 import y11.operator.PatternExplorerSettings;
 
-import com.rapidminer.example.ExampleSet;
-
 /**
  * A default view strategy. Maintains a FastViewLoader and a LeanViewLoader,
  * switching between them based on the availability of memory.
@@ -38,15 +40,23 @@ public class DefaultViewLoader extends ViewLoader {
 	 * Selects the optimal loader to use based on the available amount of
 	 * memory. If a minimum amount of memory has been attained, the loader is
 	 * changed from FastViewLoader (default) to LeanViewLoader. The threshold
-	 * can be changed in PatternExplorerSettings.
+	 * can be changed in PatternExplorerSettings. A change of loader is
+	 * recorded as a LoaderSwitchEvent, and sets the budget of the
+	 * MatrixCache.
 	 */
 	public void optimize() {
-		double freeMem = Runtime.getRuntime().freeMemory();
+		long freeMem = Runtime.getRuntime().freeMemory();
+		ViewLoader last = loader;
 		if (freeMem <= PatternExplorerSettings.MIN_FREE_LOADER_BYTES) {
 			loader = LeanViewLoader.get();
 		} else {
 			loader = FastViewLoader.get();
 		}
+		if (loader != last) {
+			new LoaderSwitchEvent(last.getName(), loader.getName(), freeMem)
+					.commit();
+		}
+		MatrixCache.setLowMemory(loader.isLeanViewLoader());
 	}
 
 	/**
@@ -87,8 +97,9 @@ public class DefaultViewLoader extends ViewLoader {
 	 */
 	@Override
 	public ViewState make(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) throws UserCancelledException {
-		return loader.make(view, matrixInfo, exampleSet);
+			EncodedExampleSet exampleSet, OperationContext op)
+			throws UserCancelledException {
+		return loader.make(view, matrixInfo, exampleSet, op);
 	}
 
 	/**
@@ -112,18 +123,18 @@ public class DefaultViewLoader extends ViewLoader {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ViewState view, Sigma sigma)
+	public ViewState make(ViewState view, Sigma sigma, OperationContext op)
 			throws UserCancelledException {
-		return loader.make(view, sigma);
+		return loader.make(view, sigma, op);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ViewState view, String target)
-			throws UserCancelledException {
-		return loader.make(view, target);
+	public ViewState make(ViewState view, String target,
+			OperationContext op) throws UserCancelledException {
+		return loader.make(view, target, op);
 	}
 
 }
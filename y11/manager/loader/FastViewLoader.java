@@ -1,5 +1,6 @@
 package y11.manager.loader;
 
+import y11.data.EncodedExampleSet;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
 import y11.manager.state.FullViewState;
@@ -7,8 +8,7 @@ import y11.manager.state.MatrixInfo;
 import y11.manager.state.ViewState;
 import y11.matrix.UserCancelledException;
 import y11.matrix.Matrix;
-
-import com.rapidminer.example.ExampleSet;
+import y11.matrix.OperationContext;
 
 /**
  * A faster loading strategy. Saves a reference to the matrix in each state, to
@@ -54,9 +54,10 @@ public class FastViewLoader extends ViewLoader {
 	 */
 	@Override
 	public ViewState make(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) throws UserCancelledException {
+			EncodedExampleSet exampleSet, OperationContext op)
+			throws UserCancelledException {
 		FullViewState v = new FullViewState(view, matrixInfo, exampleSet);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createDrilledDownMatrix(view, v, op));
 		v.setMatrix(getMatrix());
 		return v;
 	}
@@ -88,10 +89,10 @@ public class FastViewLoader extends ViewLoader {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ViewState view, Sigma sigma)
+	public ViewState make(ViewState view, Sigma sigma, OperationContext op)
 			throws UserCancelledException {
 		FullViewState v = new FullViewState(view, sigma);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createMatrix(v, op));
 		v.setMatrix(getMatrix());
 		return v;
 	}
@@ -100,10 +101,10 @@ public class FastViewLoader extends ViewLoader {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ViewState view, String target)
-			throws UserCancelledException {
+	public ViewState make(ViewState view, String target,
+			OperationContext op) throws UserCancelledException {
 		FullViewState v = new FullViewState(view, target);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createTargetChangedMatrix(view, v, op));
 		v.setMatrix(getMatrix());
 		return v;
 	}
@@ -1,5 +1,6 @@
 package y11.manager.loader;
 
+import y11.data.EncodedExampleSet;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
 import y11.manager.state.FullViewState;
@@ -8,8 +9,7 @@ import y11.manager.state.MatrixInfo;
 import y11.manager.state.ViewState;
 import y11.matrix.UserCancelledException;
 import y11.matrix.Matrix;
-
-import com.rapidminer.example.ExampleSet;
+import y11.matrix.OperationContext;
 
 /**
  * A leaner loading strategy. Saves memory by recalculating the matrix for
@@ -54,12 +54,12 @@ public class LeanViewLoader extends ViewLoader {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ExampleSet exampleSet, MatrixInfo matrixInfo,
-			Zoom zoom, Sigma sigma, String target)
+	public ViewState make(EncodedExampleSet exampleSet, MatrixInfo matrixInfo,
+			Zoom zoom, Sigma sigma, String target, OperationContext op)
 			throws UserCancelledException {
 		FullViewState v = new FullViewState(exampleSet, matrixInfo, new Zoom(),
 				new Sigma(), target);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createMatrix(v, op));
 		v.setMatrix(getMatrix());
 		return v;
 	}
@@ -69,9 +69,10 @@ public class LeanViewLoader extends ViewLoader {
 	 */
 	@Override
 	public ViewState make(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) throws UserCancelledException {
+			EncodedExampleSet exampleSet, OperationContext op)
+			throws UserCancelledException {
 		LeanViewState v = new LeanViewState(view, matrixInfo, exampleSet);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createDrilledDownMatrix(view, v, op));
 		return v;
 	}
 
@@ -99,10 +100,10 @@ public class LeanViewLoader extends ViewLoader {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ViewState view, Sigma sigma)
+	public ViewState make(ViewState view, Sigma sigma, OperationContext op)
 			throws UserCancelledException {
 		LeanViewState v = new LeanViewState(view, sigma);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createMatrix(v, op));
 		return v;
 	}
 
@@ -110,10 +111,10 @@ public class LeanViewLoader extends ViewLoader {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ViewState make(ViewState view, String target)
-			throws UserCancelledException {
+	public ViewState make(ViewState view, String target,
+			OperationContext op) throws UserCancelledException {
 		LeanViewState v = new LeanViewState(view, target);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createTargetChangedMatrix(view, v, op));
 		return v;
 	}
 
@@ -1,7 +1,6 @@
 package y11.manager.loader;
 
-import com.rapidminer.example.ExampleSet;
-
+import y11.data.EncodedExampleSet;
 import y11.logging.Log;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
@@ -10,7 +9,9 @@ import y11.manager.state.MatrixInfo;
 import y11.manager.state.ViewState;
 import y11.matrix.UserCancelledException;
 import y11.matrix.Matrix;
-import y11.matrix.ProgressManager;
+import y11.matrix.MatrixCache;
+import y11.matrix.OperationContext;
+import y11.matrix.Speculator;
 
 /**
  * Abstract parent of all history loading strategies. Loads views after history
@@ -62,6 +63,102 @@ public abstract class ViewLoader {
 		this.matrix = matrix;
 	}
 
+	/**
+	 * Gets the matrix of the specified view: the matrix saved in a full view
+	 * state, otherwise the matrix of this loader if it shows the view.
+	 * 
+	 * @param view
+	 * @return the matrix, or null if it is not known
+	 */
+	public Matrix getMatrix(ViewState view) {
+		if (view.isFullViewState()) {
+			Matrix matrix = ((FullViewState) view).getMatrix();
+			if (matrix != null) {
+				return matrix;
+			}
+		}
+		Matrix matrix = getMatrix();
+		return (matrix != null && matrix.getView() == view) ? matrix : null;
+	}
+
+	/**
+	 * Creates the matrix of a view, unless it is cached.
+	 * 
+	 * @param v
+	 *            the view
+	 * @param op
+	 *            the context of the operation
+	 * @return the matrix
+	 * @throws UserCancelledException
+	 */
+	protected Matrix createMatrix(ViewState v, OperationContext op)
+			throws UserCancelledException {
+		Matrix matrix = MatrixCache.get(v);
+		if (matrix != null) {
+			op.setDidNotRun();
+			return matrix;
+		}
+		matrix = Matrix.createMatrix(v, op);
+		MatrixCache.put(v, matrix);
+		return matrix;
+	}
+
+	/**
+	 * Creates the matrix of a drilled down view, unless it is cached,
+	 * picking up the matrix computed for it speculatively if there is one.
+	 * 
+	 * @param view
+	 *            the view drilled down from
+	 * @param v
+	 *            the drilled down view
+	 * @param op
+	 *            the context of the operation
+	 * @return the matrix
+	 * @throws UserCancelledException
+	 */
+	protected Matrix createDrilledDownMatrix(ViewState view, ViewState v,
+			OperationContext op) throws UserCancelledException {
+		Matrix matrix = MatrixCache.get(v);
+		if (matrix != null) {
+			op.setDidNotRun();
+			return matrix;
+		}
+		matrix = Speculator.takeDrillDown(view, v, op);
+		if (matrix == null) {
+			matrix = Matrix.createDrilledDownMatrix(getMatrix(view), v, op);
+		}
+		MatrixCache.put(v, matrix);
+		return matrix;
+	}
+
+	/**
+	 * Creates the matrix of a view after target change, unless it is cached,
+	 * picking up the matrix computed for it speculatively if there is one.
+	 * 
+	 * @param view
+	 *            the view the target is changed in
+	 * @param v
+	 *            the view with the new target
+	 * @param op
+	 *            the context of the operation
+	 * @return the matrix
+	 * @throws UserCancelledException
+	 */
+	protected Matrix createTargetChangedMatrix(ViewState view, ViewState v,
+			OperationContext op) throws UserCancelledException {
+		Matrix matrix = MatrixCache.get(v);
+		if (matrix != null) {
+			op.setDidNotRun();
+			return matrix;
+		}
+		matrix = Speculator.takeTargetChange(view, v, op);
+		if (matrix == null) {
+			matrix = Matrix.createTargetChangedMatrix(v, op);
+		}
+		MatrixCache.put(v, matrix);
+		return matrix;
+	}
+
 	/**
 	 * Tests if this loader is a DefaultViewLoader
 	 * 
@@ -98,15 +195,17 @@ public abstract class ViewLoader {
 	 * @param zoom
 	 * @param sigma
 	 * @param target
+	 * @param op
+	 *            the context of the operation
 	 * @return
 	 * @throws UserCancelledException
 	 */
-	public ViewState make(ExampleSet exampleSet, MatrixInfo matrixInfo,
-			Zoom zoom, Sigma sigma, String target)
+	public ViewState make(EncodedExampleSet exampleSet, MatrixInfo matrixInfo,
+			Zoom zoom, Sigma sigma, String target, OperationContext op)
 			throws UserCancelledException {
 		FullViewState v = new FullViewState(exampleSet, matrixInfo, new Zoom(),
 				new Sigma(), target);
-		setMatrix(Matrix.createMatrix(v));
+		setMatrix(createMatrix(v, op));
 		v.setMatrix(getMatrix());
 		return v;
 	}
@@ -116,11 +215,14 @@ public abstract class ViewLoader {
 	 * 
 	 * @param view
 	 * @param exampleSet
+	 * @param op
+	 *            the context of the operation
 	 * @return the ViewState created
 	 * @throws UserCancelledException
 	 */
 	public abstract ViewState make(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) throws UserCancelledException;
+			EncodedExampleSet exampleSet, OperationContext op)
+			throws UserCancelledException;
 
 	/**
 	 * Makes a new view after expansion/contraction or attribute hide, using
@@ -148,40 +250,46 @@ public abstract class ViewLoader {
 	 * 
 	 * @param view
 	 * @param sigma
+	 * @param op
+	 *            the context of the operation
 	 * @return the ViewState created
 	 * @throws UserCancelledException
 	 */
-	public abstract ViewState make(ViewState view, Sigma sigma)
-			throws UserCancelledException;
+	public abstract ViewState make(ViewState view, Sigma sigma,
+			OperationContext op) throws UserCancelledException;
 
 	/**
 	 * Makes a new view after target change, using this loader's strategy.
 	 * 
 	 * @param view
 	 * @param target
+	 * @param op
+	 *            the context of the operation
 	 * @return
 	 * @throws UserCancelledException
 	 */
-	public abstract ViewState make(ViewState view, String target)
-			throws UserCancelledException;
+	public abstract ViewState make(ViewState view, String target,
+			OperationContext op) throws UserCancelledException;
 
 	/**
 	 * Determine the view strategy for the state to load, then calculates the
 	 * new matrix and/or loads it accordingly.
 	 * 
 	 * @param view
+	 * @param op
+	 *            the context of the operation
 	 * @throws UserCancelledException
 	 */
-	public void load(ViewState view, ViewState lastView, boolean isReset)
-			throws UserCancelledException {
+	public void load(ViewState view, ViewState lastView, boolean isReset,
+			OperationContext op) throws UserCancelledException {
 		if (view.isFullViewState()) {
 			setMatrix(((FullViewState) view).getMatrix());
-			ProgressManager.setDidNotRun();
+			op.setDidNotRun();
 		} else if (view.isLeanViewState()) {
 			if (view.getZoomValue() == lastView.getZoomValue()) {
-				setMatrix(Matrix.createMatrix(view));
+				setMatrix(createMatrix(view, op));
 			} else {
-				ProgressManager.setDidNotRun();
+				op.setDidNotRun();
 			}
 		}
 	}
@@ -1,11 +1,10 @@
 package y11.manager.state;
 
+import y11.data.EncodedExampleSet;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
 import y11.matrix.Matrix;
 
-import com.rapidminer.example.ExampleSet;
-
 /**
  * View state for FastViewLoader loading strategy. Maintains a reference to
  * the Matrix for each history state.
@@ -26,7 +25,7 @@ public class FullViewState extends LeanViewState {
 	 * @param sigma
 	 * @param target
 	 */
-	public FullViewState(ExampleSet exampleSet, MatrixInfo matrixInfo,
+	public FullViewState(EncodedExampleSet exampleSet, MatrixInfo matrixInfo,
 			Zoom zoom, Sigma sigma, String target) {
 		super(exampleSet, matrixInfo, zoom, sigma, target);
 
@@ -40,7 +39,7 @@ public class FullViewState extends LeanViewState {
 	 * @param exampleSet
 	 */
 	public FullViewState(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) {
+			EncodedExampleSet exampleSet) {
 		super(view, matrixInfo, exampleSet);
 	}
 
@@ -1,10 +1,9 @@
 package y11.manager.state;
 
+import y11.data.EncodedExampleSet;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
 
-import com.rapidminer.example.ExampleSet;
-
 /**
  * View state for LeanViewLoader loading strategy. Does not maintains a
  * reference to the Matrix for each history state.
@@ -23,7 +22,7 @@ public class LeanViewState extends ViewState {
 	 * @param sigma
 	 * @param target
 	 */
-	public LeanViewState(ExampleSet exampleSet, MatrixInfo matrixInfo,
+	public LeanViewState(EncodedExampleSet exampleSet, MatrixInfo matrixInfo,
 			Zoom zoom, Sigma sigma, String target) {
 		super(exampleSet, matrixInfo, zoom, sigma, target);
 	}
@@ -36,7 +35,7 @@ public class LeanViewState extends ViewState {
 	 * @param exampleSet
 	 */
 	public LeanViewState(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) {
+			EncodedExampleSet exampleSet) {
 		super(view, matrixInfo, exampleSet);
 	}
 
@@ -1,23 +1,32 @@
 package y11.manager.state;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Vector;
 
+import y11.data.ColumnStore;
+import y11.data.SparseTable;
 import y11.logging.Log;
+import y11.manager.util.PersistentVector;
 import y11.models.AttributeValuePair;
-import y11.operator.PatternExplorerOperator;
+import y11.operator.PatternExplorerParameters;
 import y11.operator.PatternExplorerSettings;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.ExampleSet;
-import com.rapidminer.example.table.AbstractAttribute;
 
 /**
  * Stores information about how the matrix should be displayed, such as the
  * order of attributes, the order of attribute values, and whether columns are
  * expanded.
+ * <p>
+ * A MatrixInfo is never changed once created. The expand / contract and
+ * drill-down constructors share all columns but the one changed with the
+ * MatrixInfo they are created from, so a state of history costs O(log n)
+ * memory instead of O(n) for n attributes.
  * 
  * @author Caleb Sotelo
  * 
@@ -25,10 +34,11 @@ import com.rapidminer.example.table.AbstractAttribute;
 public class MatrixInfo {
 
 	private static final int DEFAULT_INDEX = 0;
-	private Vector<ColumnInfo> columnsOrdered;
-	private HashMap<String, ColumnInfo> columnsNamed;
-	private HashMap<Attribute, ColumnInfo> columns;
+	private PersistentVector<ColumnInfo> columns;
+	// maps attribute names to indices, shared by all copies
+	private Map<String, Integer> indices;
 	private int numAttributes;
+	private String fingerprint; // computed once, see getFingerprint()
 
 	/**
 	 * Creates a new MatrixInfo with the specified settings.
@@ -40,35 +50,56 @@ public class MatrixInfo {
 	 *            attribute should be treated numerically.
 	 */
 	public MatrixInfo(ExampleSet exampleSetNew, Map map) {
-		columnsOrdered = new Vector<ColumnInfo>();
-		columns = new HashMap<Attribute, ColumnInfo>();
-		columnsNamed = new HashMap<String, ColumnInfo>();
+		List<Attribute> attributes = new ArrayList<Attribute>();
 		Iterator<Attribute> all = exampleSetNew.getAttributes().allAttributes();
-		boolean isNumerical;
 		while (all.hasNext()) {
-			Attribute attribute = all.next();
-			isNumerical = map.containsKey(attribute.getName());
-			ColumnInfo col = new ColumnInfo(attribute, columnsOrdered.size(),
-					isNumerical);
-			columnsOrdered.add(col);
-			columns.put(attribute, col);
-			columnsNamed.put(attribute.getName(), col);
+			attributes.add(all.next());
 		}
-		numAttributes = columnsOrdered.size();
+		init(attributes, map);
 	}
 
 	/**
-	 * Soft copy constructor. Creates new references for the data structures
-	 * without copying the data, to save memory.
+	 * Creates a new MatrixInfo for the columns of an encoded store, e.g. one
+	 * that has no ExampleSet.
+	 * 
+	 * @param store
+	 *            the encoded examples
+	 * @param map
+	 *            maps all attribute names to a boolean that is true if the
+	 *            attribute should be treated numerically.
+	 */
+	public MatrixInfo(ColumnStore store, Map map) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		for (int c = 0; c < store.getNumColumns(); c++) {
+			attributes.add(store.getAttribute(c));
+		}
+		init(attributes, map);
+	}
+
+	private void init(List<Attribute> attributes, Map map) {
+		List<ColumnInfo> cols = new ArrayList<ColumnInfo>(attributes.size());
+		indices = new HashMap<String, Integer>();
+		for (Attribute attribute : attributes) {
+			boolean isNumerical = map.containsKey(attribute.getName());
+			indices.put(attribute.getName(), cols.size());
+			cols.add(new ColumnInfo(attribute, cols.size(), isNumerical));
+		}
+		columns = new PersistentVector<ColumnInfo>(cols);
+		numAttributes = cols.size();
+	}
+
+	/**
+	 * Soft copy constructor. Shares the data structures, which are never
+	 * changed, to save memory.
 	 * 
 	 * @param mi
 	 *            the MatrixInfo to copy
 	 */
 	public MatrixInfo(MatrixInfo mi) {
-		columnsOrdered = new Vector<ColumnInfo>(mi.columnsOrdered);
-		columnsNamed = new HashMap<String, ColumnInfo>(mi.columnsNamed);
-		columns = new HashMap<Attribute, ColumnInfo>(mi.columns);
+		columns = mi.columns;
+		indices = mi.indices;
 		numAttributes = mi.numAttributes;
+		fingerprint = mi.fingerprint;
 	}
 
 	/**
@@ -85,7 +116,7 @@ public class MatrixInfo {
 		this(mi);
 
 		// create modified column info
-		ColumnInfo col = columnsNamed.get(columnName);
+		ColumnInfo col = getColumn(columnName);
 		ColumnInfo mod = col.modifyExpand();
 		updateColumn(mod);
 	}
@@ -108,21 +139,30 @@ public class MatrixInfo {
 		this(mi);
 
 		// create modified column info
-		ColumnInfo col = columnsNamed.get(avp.getAttribute());
+		ColumnInfo col = getColumn(avp.getAttribute());
 		ColumnInfo mod = col.modifyDrillDown(avp.getValue(), removeSingle);
 		updateColumn(mod);
 
 	}
 
 	/**
-	 * Replace existing columnInfo with a modified one
+	 * Replace existing columnInfo with a modified one, copying only the path
+	 * to it in the column vector. The fingerprint copied from the original no
+	 * longer describes the columns, so it is computed again.
 	 * 
 	 * @param mod
 	 */
 	private void updateColumn(ColumnInfo mod) {
-		columnsOrdered.set(mod.index, mod);
-		columnsNamed.put(mod.name, mod);
-		columns.put(mod.attribute, mod);
+		columns = columns.set(mod.index, mod);
+		fingerprint = null;
+	}
+
+	private ColumnInfo getColumn(Attribute a) {
+		return columns.get(getOrdinal(a));
+	}
+
+	private ColumnInfo getColumn(String name) {
+		return columns.get(getOrdinal(name));
 	}
 
 	/**
@@ -131,8 +171,8 @@ public class MatrixInfo {
 	 * @return the default target attribute
 	 */
 	public String getDefaultTarget() {
-		String userTarget = PatternExplorerOperator.getParamTarget();
-		if (columnsNamed.containsKey(userTarget)) {
+		String userTarget = PatternExplorerParameters.getTarget();
+		if (indices.containsKey(userTarget)) {
 			return userTarget;
 		} else {
 			if (!userTarget.equals("")) {
@@ -140,7 +180,7 @@ public class MatrixInfo {
 						+ "' not found, using default attribute.",
 						Log.WARNING_LEVEL);
 			}
-			return columnsOrdered.get(DEFAULT_INDEX).name;
+			return columns.get(DEFAULT_INDEX).name;
 		}
 	}
 
@@ -151,8 +191,8 @@ public class MatrixInfo {
 	 */
 	public String[] getAttributeNames() {
 		String[] names = new String[numAttributes];
-		for (int i = 0; i < columnsOrdered.size(); i++) {
-			names[i] = columnsOrdered.get(i).name;
+		for (int i = 0; i < numAttributes; i++) {
+			names[i] = columns.get(i).name;
 		}
 		return names;
 	}
@@ -164,7 +204,7 @@ public class MatrixInfo {
 	 * @return the attribute
 	 */
 	public Attribute getAttribute(int i) {
-		return columnsOrdered.get(i).attribute;
+		return columns.get(i).attribute;
 	}
 
 	/**
@@ -174,7 +214,56 @@ public class MatrixInfo {
 	 * @return the attribute
 	 */
 	public Attribute getAttribute(String s) {
-		return columnsNamed.get(s).attribute;
+		return getColumn(s).attribute;
+	}
+
+	/**
+	 * Gets the ordinal of an attribute: its index in this MatrixInfo, which is
+	 * the same in all MatrixInfos derived from it. The methods taking
+	 * ordinals instead of Attributes look up columns by array index, without
+	 * hashing, and are meant for code that runs per column or per paint.
+	 * 
+	 * @param a
+	 * @return the ordinal
+	 */
+	public int getOrdinal(Attribute a) {
+		return indices.get(a.getName());
+	}
+
+	/**
+	 * Gets the ordinal of the attribute with the specified name.
+	 * 
+	 * @param name
+	 * @return the ordinal
+	 */
+	public int getOrdinal(String name) {
+		return indices.get(name);
+	}
+
+	/**
+	 * Gets the ordinal of the attribute in column i if the attribute with
+	 * ordinal t is the target. The inverse of getCol(int, int).
+	 * 
+	 * @param i
+	 *            the column, not counting the target column
+	 * @param t
+	 *            the ordinal of the target
+	 * @return the ordinal of the attribute
+	 */
+	public int getOrdinal(int i, int t) {
+		return (i < t) ? i : i + 1;
+	}
+
+	/**
+	 * Gets the column index of the attribute with ordinal a if the attribute
+	 * with ordinal t is the target.
+	 * 
+	 * @param a
+	 * @param t
+	 * @return the index of attribute a
+	 */
+	public int getCol(int a, int t) {
+		return (a <= t) ? a : a - 1;
 	}
 
 	/**
@@ -185,6 +274,17 @@ public class MatrixInfo {
 	 * @return the number of values
 	 */
 	public int getNumValues(Attribute a) {
+		return getNumValues(getOrdinal(a));
+	}
+
+	/**
+	 * Gets the number of values possible for the attribute with ordinal a,
+	 * taking into account whether the column is expanded.
+	 * 
+	 * @param a
+	 * @return the number of values
+	 */
+	public int getNumValues(int a) {
 		ColumnInfo ci = columns.get(a);
 		if (ci.isExpandable()) {
 			return ci.compactWidth();
@@ -199,7 +299,7 @@ public class MatrixInfo {
 	 * @return the number of values
 	 */
 	public int getNumValuesTarget(Attribute target) {
-		return columns.get(target).numValues;
+		return getColumn(target).numValues;
 	}
 
 	/**
@@ -209,7 +309,17 @@ public class MatrixInfo {
 	 * @return the number of values
 	 */
 	public int getNumValuesTarget(String target) {
-		return columnsNamed.get(target).numValues;
+		return getColumn(target).numValues;
+	}
+
+	/**
+	 * Gets the number of values for the target attribute with ordinal t.
+	 * 
+	 * @param t
+	 * @return the number of values
+	 */
+	public int getNumValuesTarget(int t) {
+		return columns.get(t).numValues;
 	}
 
 	/**
@@ -229,9 +339,7 @@ public class MatrixInfo {
 	 * @return the index of attribute a
 	 */
 	public int getCol(Attribute a, Attribute t) {
-		int a_index = columns.get(a).index;
-		int t_index = columns.get(t).index;
-		return (a_index <= t_index) ? a_index : a_index - 1;
+		return getCol(getOrdinal(a), getOrdinal(t));
 	}
 
 	/**
@@ -242,7 +350,7 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public int getCol(String a, Attribute t) {
-		return getCol(columnsNamed.get(a).attribute, t);
+		return getCol(getOrdinal(a), getOrdinal(t));
 	}
 
 	/**
@@ -253,10 +361,7 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public Attribute getAttribute(int i, Attribute t) {
-		int t_index = columns.get(t).index;
-		return (i < t_index) ? columnsOrdered.get(i).attribute : columnsOrdered
-				.get(i + 1).attribute;
-
+		return columns.get(getOrdinal(i, getOrdinal(t))).attribute;
 	}
 
 	/**
@@ -268,6 +373,18 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public int[] compact(Attribute a, int[] tCountsLong) {
+		return compact(getOrdinal(a), tCountsLong);
+	}
+
+	/**
+	 * Compacts the specified array of values for the attribute with ordinal
+	 * a, see compact(Attribute, int[]).
+	 * 
+	 * @param a
+	 * @param tCountsLong
+	 * @return
+	 */
+	public int[] compact(int a, int[] tCountsLong) {
 		return columns.get(a).condense(tCountsLong);
 	}
 
@@ -281,7 +398,46 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public int[][] compact(Attribute t, Attribute a, int[][] countsLong) {
-		return columns.get(t).condense(a, countsLong, this);
+		return compact(getOrdinal(t), getOrdinal(a), countsLong);
+	}
+
+	/**
+	 * Compacts the specified 2-d array of values for the target attribute
+	 * with ordinal t and the attribute with ordinal a.
+	 * 
+	 * @param t
+	 * @param a
+	 * @param countsLong
+	 * @return
+	 */
+	public int[][] compact(int t, int a, int[][] countsLong) {
+		return columns.get(t).condense(columns.get(a), countsLong);
+	}
+
+	/**
+	 * Compacts the specified sparse counts for target attribute t and
+	 * attribute a, to ignore values removed by drill-down operations.
+	 * 
+	 * @param t
+	 * @param a
+	 * @param countsLong
+	 * @return
+	 */
+	public SparseTable compact(Attribute t, Attribute a, SparseTable countsLong) {
+		return compact(getOrdinal(t), getOrdinal(a), countsLong);
+	}
+
+	/**
+	 * Compacts the specified sparse counts for the target attribute with
+	 * ordinal t and the attribute with ordinal a.
+	 * 
+	 * @param t
+	 * @param a
+	 * @param countsLong
+	 * @return
+	 */
+	public SparseTable compact(int t, int a, SparseTable countsLong) {
+		return columns.get(t).condense(columns.get(a), countsLong);
 	}
 
 	/**
@@ -292,6 +448,17 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public String getValue(Attribute a, int i) {
+		return getValue(getOrdinal(a), i);
+	}
+
+	/**
+	 * Gets the i'th value for the attribute with ordinal a.
+	 * 
+	 * @param a
+	 * @param i
+	 * @return
+	 */
+	public String getValue(int a, int i) {
 		return columns.get(a).getValue(i);
 	}
 
@@ -302,7 +469,7 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public boolean canDrillDown(Attribute a) {
-		return columns.get(a).numValues > 1;
+		return canDrillDown(getOrdinal(a));
 	}
 
 	/**
@@ -312,7 +479,18 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public boolean canDrillDown(String a) {
-		return columnsNamed.get(a).numValues > 1;
+		return canDrillDown(getOrdinal(a));
+	}
+
+	/**
+	 * Tests whether a drill down operation is possible for the attribute with
+	 * ordinal a.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public boolean canDrillDown(int a) {
+		return columns.get(a).numValues > 1;
 	}
 
 	/**
@@ -322,6 +500,16 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public boolean isExpandable(Attribute a) {
+		return isExpandable(getOrdinal(a));
+	}
+
+	/**
+	 * Tests whether the attribute with ordinal a is expandable.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public boolean isExpandable(int a) {
 		return columns.get(a).isExpandable();
 	}
 
@@ -332,6 +520,16 @@ public class MatrixInfo {
 	 * @return
 	 */
 	public boolean isExpanded(Attribute a) {
+		return isExpanded(getOrdinal(a));
+	}
+
+	/**
+	 * Tests whether the attribute with ordinal a is expanded.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public boolean isExpanded(int a) {
 		return columns.get(a).expanded;
 	}
 
@@ -342,38 +540,70 @@ public class MatrixInfo {
 	 */
 	public int getTotalValues() {
 		int total = 0;
-		for (ColumnInfo c : columnsOrdered) {
-			total += c.numValues;
+		for (int i = 0; i < numAttributes; i++) {
+			total += columns.get(i).numValues;
 		}
 		return total;
 	}
 
 	/**
-	 * Maintains info for columns in the histogram display.
+	 * Gets a description of how every column is displayed: its name, whether
+	 * it is expanded, and which values are left after drill-downs. Equal
+	 * descriptions give equal matrices for the same examples and target. A
+	 * MatrixInfo never changes, so the description is only built once.
+	 * 
+	 * @return the description
+	 */
+	public String getFingerprint() {
+		if (fingerprint != null) {
+			return fingerprint;
+		}
+		StringBuilder s = new StringBuilder();
+		for (int col = 0; col < numAttributes; col++) {
+			ColumnInfo c = columns.get(col);
+			s.append(c.name);
+			if (c.expanded) {
+				s.append('+');
+			}
+			if (c.numValues != c.attribute.getMapping().size()) {
+				for (int i = 0; i < c.numValues; i++) {
+					s.append(',').append(c.values[i]);
+				}
+			}
+			s.append(';');
+		}
+		fingerprint = s.toString();
+		return fingerprint;
+	}
+
+	/**
+	 * Maintains info for columns in the histogram display. A ColumnInfo is
+	 * never changed, so it is shared by all MatrixInfos that display its
+	 * column the same way.
 	 * 
 	 * @author Caleb Sotelo
 	 * 
 	 */
-	private class ColumnInfo {
+	private static class ColumnInfo {
 
-		Attribute attribute;
-		String name;
-		int numValues;
-		int index;
+		final Attribute attribute;
+		final String name;
+		final int numValues;
+		final int index;
 		// maps new indeces to original indeces
-		HashMap<Integer, Integer> values;
-		boolean numeric;
-		boolean expanded;
+		final int[] values;
+		final boolean numeric;
+		final boolean expanded;
 
-		// copy ctor
-		ColumnInfo(ColumnInfo ci) {
-			this.attribute = (AbstractAttribute) ci.attribute.clone();
+		// modified copy ctor
+		ColumnInfo(ColumnInfo ci, int[] values, boolean expanded) {
+			this.attribute = ci.attribute;
 			this.name = ci.name;
-			this.numValues = ci.numValues;
+			this.numValues = values.length;
 			this.index = ci.index;
-			this.values = new HashMap<Integer, Integer>(ci.values);
+			this.values = values;
 			this.numeric = ci.numeric;
-			this.expanded = ci.expanded;
+			this.expanded = expanded;
 		}
 
 		ColumnInfo(Attribute attribute, int index, boolean isNumerical) {
@@ -385,47 +615,32 @@ public class MatrixInfo {
 			this.numeric = isNumerical;
 			this.numValues = attribute.getMapping().getValues().size();
 
-			this.values = new HashMap<Integer, Integer>();
+			this.values = new int[numValues];
 			for (int i = 0; i < numValues; i++) {
-				values.put(i, i);
+				values[i] = i;
 			}
 		}
 
 		ColumnInfo modifyExpand() {
-			ColumnInfo mod = new ColumnInfo(this);
-			mod.toggleExpanded();
-			return mod;
+			return new ColumnInfo(this, values, !expanded);
 		}
 
 		ColumnInfo modifyDrillDown(String value, boolean removeSingle) {
-			ColumnInfo mod = new ColumnInfo(this);
-			return mod.removeValue(value, removeSingle);
-		}
-
-		ColumnInfo removeValue(String value, boolean removeSingle) {
 			int remove = attribute.getMapping().getIndex(value);
+			int[] mod;
 			if (removeSingle) {
-				int old;
-				boolean mark = false;
-				int i;
-				for (i = 0; i < values.size(); i++) {
-					old = values.get(i);
-					if (mark) {
-						values.put(i - 1, old);
-					} else {
-						if (old == remove) {
-							mark = true;
-						}
+				mod = new int[numValues];
+				int n = 0;
+				for (int old : values) {
+					if (old != remove) {
+						mod[n++] = old;
 					}
 				}
-				// remove last entry (it's a duplicate)
-				values.remove(i - 1);
+				mod = Arrays.copyOf(mod, n);
 			} else {
-				values.clear();
-				values.put(0, remove);
+				mod = new int[] { remove };
 			}
-			numValues = values.size();
-			return this;
+			return new ColumnInfo(this, mod, expanded);
 		}
 
 		int[] condense(int[] tCountsLong) {
@@ -437,16 +652,15 @@ public class MatrixInfo {
 
 			//
 			for (int i = 0; i < tCounts.length; i++) {
-				tCounts[i] = tCountsLong[values.get(i)];
+				tCounts[i] = tCountsLong[values[i]];
 			}
 
 			return tCounts;
 		}
 
-		int[][] condense(Attribute a, int[][] countsLong, MatrixInfo info) {
-			ColumnInfo att = info.columns.get(a);
+		int[][] condense(ColumnInfo att, int[][] countsLong) {
 			if (numValues == attribute.getMapping().size()) {
-				if (att.numValues == a.getMapping().size()) {
+				if (att.numValues == att.attribute.getMapping().size()) {
 					return countsLong;
 				}
 			}
@@ -455,16 +669,31 @@ public class MatrixInfo {
 
 			//
 			for (int n = 0; n < counts.length; n++) {
-				int cl_i = values.get(n);
+				int[] row = countsLong[values[n]];
 				for (int i = 0; i < aVals; i++) {
-					counts[n][i] = countsLong[cl_i][att.values.get(i)];
+					counts[n][i] = row[att.values[i]];
 				}
 			}
 			return counts;
 		}
 
+		SparseTable condense(ColumnInfo att, SparseTable countsLong) {
+			if (numValues == attribute.getMapping().size()) {
+				if (att.numValues == att.attribute.getMapping().size()) {
+					return countsLong;
+				}
+			}
+			// values keep their order when others are removed
+			int[] columnMap = new int[att.attribute.getMapping().size()];
+			Arrays.fill(columnMap, -1);
+			for (int i = 0; i < att.numValues; i++) {
+				columnMap[att.values[i]] = i;
+			}
+			return countsLong.select(values, columnMap, att.numValues);
+		}
+
 		String getValue(int i) {
-			int old = values.get(i);
+			int old = values[i];
 			return attribute.getMapping().getValues().get(old);
 		}
 
@@ -480,10 +709,6 @@ public class MatrixInfo {
 					&& (numValues > PatternExplorerSettings.NUM_COMPACT_VALUES);
 		}
 
-		void toggleExpanded() {
-			expanded = !expanded;
-		}
-
 	}
 
 }
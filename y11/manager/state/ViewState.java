@@ -1,10 +1,9 @@
 package y11.manager.state;
 
+import y11.data.EncodedExampleSet;
 import y11.manager.Sigma;
 import y11.manager.Zoom;
 
-import com.rapidminer.example.ExampleSet;
-
 /**
  * Abstract parent of classes maintaining references to history state
  * information.
@@ -19,7 +18,7 @@ public abstract class ViewState {
 
 	private String name; // unique state ID for debugging
 
-	private ExampleSet exampleSet; // the actual data
+	private EncodedExampleSet exampleSet; // the actual data
 	private MatrixInfo matrixInfo; // ordering info
 	private Zoom zoom; // zoom setting
 	private Sigma sigma; // sigma threshold
@@ -38,7 +37,7 @@ public abstract class ViewState {
 	 * @param sigma
 	 * @param target
 	 */
-	public ViewState(ExampleSet exampleSet, MatrixInfo matrixInfo, Zoom zoom,
+	public ViewState(EncodedExampleSet exampleSet, MatrixInfo matrixInfo, Zoom zoom,
 			Sigma sigma, String target) {
 		this();
 		this.exampleSet = exampleSet;
@@ -70,7 +69,7 @@ public abstract class ViewState {
 	 * @param exampleSet
 	 */
 	public ViewState(ViewState view, MatrixInfo matrixInfo,
-			ExampleSet exampleSet) {
+			EncodedExampleSet exampleSet) {
 		this(view);
 		this.matrixInfo = matrixInfo;
 		this.exampleSet = exampleSet;
@@ -130,11 +129,11 @@ public abstract class ViewState {
 	}
 
 	/**
-	 * Gets this ViewState's ExampleSet.
+	 * Gets this ViewState's examples.
 	 * 
-	 * @return the ExampleSet
+	 * @return the EncodedExampleSet
 	 */
-	public ExampleSet getExampleSet() {
+	public EncodedExampleSet getExampleSet() {
 		return exampleSet;
 	}
 
@@ -0,0 +1,122 @@
+package y11.manager.util;
+
+import java.util.List;
+
+/**
+ * An immutable vector of fixed size that is changed by path copying. The
+ * elements are kept in a tree of nodes of WIDTH elements, and set() copies
+ * only the nodes on the path from the root to the element, so a changed copy
+ * of a vector of n elements costs O(log n) instead of O(n), and shares all
+ * other nodes with the original. Used for states of history that differ from
+ * the previous state in only a few elements.
+ * 
+ * @author Caleb Sotelo
+ * 
+ * @param <E>
+ *            the type of the elements, which should be immutable as well
+ */
+public class PersistentVector<E> {
+
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	private final Object[] root;
+	private final int shift; // BITS times the number of levels below the root
+	private final int size;
+
+	/**
+	 * Creates a new PersistentVector holding the specified elements.
+	 * 
+	 * @param elements
+	 *            the elements, in order
+	 */
+	public PersistentVector(List<? extends E> elements) {
+		size = elements.size();
+		Object[] nodes = elements.toArray();
+		int level = 0;
+		while (nodes.length > WIDTH) {
+			nodes = group(nodes);
+			level += BITS;
+		}
+		root = nodes;
+		shift = level;
+	}
+
+	private PersistentVector(Object[] root, int shift, int size) {
+		this.root = root;
+		this.shift = shift;
+		this.size = size;
+	}
+
+	/**
+	 * Groups nodes into parent nodes of up to WIDTH nodes each.
+	 */
+	private static Object[] group(Object[] nodes) {
+		Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+		for (int p = 0; p < parents.length; p++) {
+			int from = p << BITS;
+			Object[] node = new Object[Math.min(WIDTH, nodes.length - from)];
+			System.arraycopy(nodes, from, node, 0, node.length);
+			parents[p] = node;
+		}
+		return parents;
+	}
+
+	/**
+	 * Gets the i'th element.
+	 * 
+	 * @param i
+	 * @return the element
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ size);
+		}
+		Object[] node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(i >>> level) & MASK];
+		}
+		return (E) node[i & MASK];
+	}
+
+	/**
+	 * Gets a copy of this vector with the i'th element replaced. This vector
+	 * is not changed.
+	 * 
+	 * @param i
+	 * @param element
+	 *            the new i'th element
+	 * @return the changed copy
+	 */
+	public PersistentVector<E> set(int i, E element) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ size);
+		}
+		return new PersistentVector<E>(set(root, shift, i, element), shift,
+				size);
+	}
+
+	private static Object[] set(Object[] node, int level, int i, Object element) {
+		Object[] copy = node.clone();
+		if (level == 0) {
+			copy[i & MASK] = element;
+		} else {
+			int slot = (i >>> level) & MASK;
+			copy[slot] = set((Object[]) node[slot], level - BITS, i, element);
+		}
+		return copy;
+	}
+
+	/**
+	 * Gets the number of elements.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		return size;
+	}
+}
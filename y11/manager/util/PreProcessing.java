@@ -4,11 +4,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
-import y11.operator.PatternExplorerOperator;
+import y11.data.ColumnStore;
+import y11.data.EncodedColumn;
+import y11.metrics.Metrics;
+import y11.operator.PatternExplorerParameters;
 import y11.operator.PatternExplorerSettings;
 
 import com.rapidminer.example.Attribute;
-import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.Statistics;
 import com.rapidminer.operator.OperatorException;
@@ -24,16 +26,36 @@ import com.rapidminer.operator.preprocessing.discretization.DiscretizationModel;
 public class PreProcessing {
 
 	/**
-	 * Pipelines the specified ExampleSet through preprocessing routines
+	 * Pipelines the specified ExampleSet through preprocessing routines, and
+	 * encodes the result as a ColumnStore with its BitmapIndex.
 	 * 
 	 * @param exampleSet
-	 * @return
+	 * @return the encoded examples
 	 * @throws OperatorException
 	 */
-	public static ExampleSet preProcess(ExampleSet exampleSet)
+	public static ColumnStore preProcess(ExampleSet exampleSet)
 			throws OperatorException {
+		long start = Metrics.start();
 		exampleSet = PreProcessing.binDiscretization(exampleSet);
-		return PreProcessing.missingValueReplenishment(exampleSet);
+		ColumnStore store = preProcess(ColumnStore.encode(exampleSet));
+		Metrics.stop(Metrics.PREPROCESS, start);
+		return store;
+	}
+
+	/**
+	 * Pipelines an encoded store through the preprocessing routines that work
+	 * on encoded columns, and builds its BitmapIndex. Used for stores created
+	 * directly, whose attributes are all nominal, e.g. by DataGenerator.
+	 * 
+	 * @param store
+	 * @return the store
+	 */
+	public static ColumnStore preProcess(ColumnStore store) {
+		store = PreProcessing.missingValueReplenishment(store);
+		if (PatternExplorerSettings.BITMAP_INDEX_ON) {
+			store.buildBitmapIndex();
+		}
+		return store;
 	}
 
 	/**
@@ -51,7 +73,7 @@ public class PreProcessing {
 		DiscretizationModel model = new DiscretizationModel(exampleSet);
 
 		exampleSet.recalculateAllAttributeStatistics();
-		int numberOfBins = PatternExplorerOperator.getParamBins();
+		int numberOfBins = PatternExplorerParameters.getBins();
 		HashMap<Attribute, double[]> ranges = new HashMap<Attribute, double[]>();
 
 		for (Attribute attribute : exampleSet.getAttributes()) {
@@ -81,27 +103,34 @@ public class PreProcessing {
 
 	/**
 	 * Replenish missing values with value MISSING_VALUE. Uses code from
-	 * MissingValueReplenishment operator.
+	 * MissingValueReplenishment operator. Works on the encoded columns, and
+	 * only touches the examples of the underlying ExampleSet whose values are
+	 * missing.
 	 * 
-	 * @param eSet
+	 * @param store
 	 * @return
 	 */
-	public static ExampleSet missingValueReplenishment(ExampleSet eSet) {
-		eSet.recalculateAllAttributeStatistics();
-
-		Iterator<Example> reader = eSet.iterator();
-		while (reader.hasNext()) {
-			Example example = reader.next();
-			for (Attribute attribute : eSet.getAttributes()) {
-				double value = example.getValue(attribute);
-				if (Double.isNaN(value)) {
-					example.setValue(attribute, attribute.getMapping()
-							.mapString(PatternExplorerSettings.MISSING_VALUE_NAME));
+	public static ColumnStore missingValueReplenishment(ColumnStore store) {
+		ExampleSet eSet = store.getExampleSet();
+		for (int c = 0; c < store.getNumColumns(); c++) {
+			Attribute attribute = store.getAttribute(c);
+			EncodedColumn column = store.getColumn(c);
+			int missing = -1;
+			for (int row = 0; row < store.size(); row++) {
+				if (column.isMissing(row)) {
+					if (missing < 0) {
+						missing = attribute.getMapping().mapString(
+								PatternExplorerSettings.MISSING_VALUE_NAME);
+					}
+					column.set(row, missing);
+					if (eSet != null) {
+						eSet.getExample(row).setValue(attribute, missing);
+					}
 				}
 			}
 			// TODO PatternExplorerOperator.get().doCheckForStop();
 		}
-		return eSet;
+		return store;
 	}
 
 	/**
@@ -0,0 +1,399 @@
+package y11.matrix;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import y11.data.ColumnStore;
+import y11.data.SparseTable;
+import y11.logging.Log;
+import y11.manager.state.MatrixInfo;
+import y11.manager.state.ViewState;
+import y11.operator.PatternExplorerParameters;
+import y11.operator.PatternExplorerSettings;
+
+import com.rapidminer.example.Attribute;
+
+/**
+ * Keeps the counts of matrices of all examples on disk, so that a dataset
+ * opened again shows its first matrices without counting them. There is one
+ * file per dataset and target, named after the fingerprint of the dataset,
+ * in PatternExplorerSettings.COUNT_FILE_DIR:
+ * 
+ * <pre>
+ * header:       magic, version, store fingerprint, bins, examples, columns
+ * dictionaries: the name and the value names of every column
+ * target:       the name of the target
+ * counts:       per column, dense or sparse counts as varints
+ * </pre>
+ * 
+ * Files are read through a memory mapping, without touching the examples,
+ * which is released as soon as the file is read. A file whose fingerprint
+ * (see ColumnStore.getFingerprint()), bins or dictionaries do not match the
+ * dataset is deleted and counted again. Files are written by a single
+ * background thread, which deletes the least recently used files beyond
+ * PatternExplorerSettings.COUNT_FILES_MAX. Headless operations, e.g. of a
+ * PatternEngine, neither read nor write count files.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class CountFile {
+
+	/**
+	 * System property turning count files off when "false", e.g. to measure
+	 * how long the first matrix of a dataset takes in the GUI.
+	 */
+	public static final String COUNT_FILES_PROPERTY = "patternexplorer.countfiles";
+
+	private static final int MAGIC = 0x50454354; // "PECT"
+	private static final int VERSION = 1;
+	private static final byte DENSE = 0;
+	private static final byte SPARSE = 1;
+	private static final String SUFFIX = ".counts";
+	private static final String THREAD_NAME = "PatternExplorer-Persist-Thread";
+
+	private static final ExecutorService WRITER = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, THREAD_NAME);
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+
+	/**
+	 * Rebuilds the Matrix of a view from its count file.
+	 * 
+	 * @param view
+	 * @return the Matrix, or null if the view is not of all examples or its
+	 *         counts are not stored
+	 */
+	static Matrix load(ViewState view) {
+		File file = getFile(view);
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		long begin = System.nanoTime();
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size());
+				Matrix matrix;
+				try {
+					matrix = read(view, in);
+				} finally {
+					unmap(in);
+				}
+				if (matrix == null) {
+					Log.dbg("[ --- stale count file " + file + " --- ]");
+				} else {
+					file.setLastModified(System.currentTimeMillis());
+					double time = (System.nanoTime() - begin) / 1000000.0;
+					Log.dbg("[ --- read count file: " + time + " ms --- ]");
+					return matrix;
+				}
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			Log.out("Could not read " + file + ": " + e.getMessage(),
+					Log.WARNING_LEVEL);
+		} catch (RuntimeException e) {
+			Log.out("Could not read " + file + ": " + e, Log.WARNING_LEVEL);
+		}
+		file.delete();
+		return null;
+	}
+
+	/**
+	 * Writes the counts of a Matrix to its count file in the background.
+	 * 
+	 * @param view
+	 * @param matrix
+	 *            an exact Matrix of the view
+	 */
+	static void save(final ViewState view, final Matrix matrix) {
+		final File file = getFile(view);
+		if (file == null || matrix.isSampled()) {
+			return;
+		}
+		WRITER.execute(new Runnable() {
+			public void run() {
+				File tmp = new File(file.getPath() + ".tmp");
+				try {
+					file.getParentFile().mkdirs();
+					DataOutputStream out = new DataOutputStream(
+							new BufferedOutputStream(new FileOutputStream(tmp)));
+					try {
+						write(view, matrix, out);
+					} finally {
+						out.close();
+					}
+					file.delete();
+					if (!tmp.renameTo(file)) {
+						throw new IOException("cannot rename " + tmp);
+					}
+					prune(file.getParentFile());
+				} catch (IOException e) {
+					tmp.delete();
+					Log.out("Could not write " + file + ": " + e.getMessage(),
+							Log.WARNING_LEVEL);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Deletes the least recently used count files beyond COUNT_FILES_MAX.
+	 * Every dataset that changes leaves a file under its old fingerprint.
+	 */
+	private static void prune(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		File[] counts = new File[files.length];
+		int n = 0;
+		for (File f : files) {
+			if (f.getName().endsWith(SUFFIX)) {
+				counts[n++] = f;
+			}
+		}
+		if (n <= PatternExplorerSettings.COUNT_FILES_MAX) {
+			return;
+		}
+		counts = Arrays.copyOf(counts, n);
+		Arrays.sort(counts, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				long m1 = f1.lastModified();
+				long m2 = f2.lastModified();
+				return (m1 < m2) ? -1 : ((m1 == m2) ? 0 : 1);
+			}
+		});
+		for (int i = 0; i < n - PatternExplorerSettings.COUNT_FILES_MAX; i++) {
+			counts[i].delete();
+		}
+	}
+
+	/**
+	 * Releases the mapping of a buffer right away instead of when the buffer
+	 * is collected, since a mapped file cannot be deleted or replaced on
+	 * Windows. The buffer must not be used afterwards. If the JVM does not
+	 * allow it, the mapping is released when the buffer is collected.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+					ByteBuffer.class);
+			invokeCleaner.invoke(field.get(null), buffer);
+		} catch (Exception e) {
+			Log.dbg("[ --- cannot unmap count file: " + e + " --- ]");
+		}
+	}
+
+	/**
+	 * Gets the count file of a view, named after the fingerprint and the
+	 * columns of the dataset, and the target, so that datasets of the same
+	 * columns do not replace each other's files.
+	 * 
+	 * @return the file, or null if the view is not of all examples
+	 */
+	private static File getFile(ViewState view) {
+		if (!PatternExplorerSettings.COUNT_FILES_ON
+				|| "false".equals(System.getProperty(COUNT_FILES_PROPERTY))
+				|| !"".equals(view.getExampleSet().getSelectionKey())) {
+			return null;
+		}
+		ColumnStore store = view.getExampleSet().getStore();
+		StringBuilder name = new StringBuilder();
+		for (int c = 0; c < store.getNumColumns(); c++) {
+			name.append(store.getAttribute(c).getName()).append('\0');
+		}
+		name.append(view.getTarget());
+		long hash = name.toString().hashCode() * 0x9E3779B97F4A7C15L
+				+ name.length();
+		return new File(PatternExplorerSettings.COUNT_FILE_DIR, Long
+				.toHexString(store.getFingerprint())
+				+ "-" + Long.toHexString(hash) + SUFFIX);
+	}
+
+	private static void write(ViewState view, Matrix matrix,
+			DataOutputStream out) throws IOException {
+		ColumnStore store = view.getExampleSet().getStore();
+		MatrixInfo info = view.getMatrixInfo();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(store.getFingerprint());
+		out.writeInt(PatternExplorerParameters.getBins());
+		out.writeInt(store.size());
+		out.writeInt(info.getNumAttributes());
+		for (int i = 0; i < info.getNumAttributes(); i++) {
+			Attribute a = info.getAttribute(i);
+			List<String> values = a.getMapping().getValues();
+			writeString(out, a.getName());
+			out.writeInt(values.size());
+			for (String value : values) {
+				writeString(out, value);
+			}
+		}
+		writeString(out, view.getTarget());
+
+		for (int i = 0; i < info.getNumAttributes(); i++) {
+			Attribute a = info.getAttribute(i);
+			SparseTable sparse = matrix.getSparseCountsLong(a);
+			if (sparse != null) {
+				out.writeByte(SPARSE);
+				out.writeInt(sparse.getNumRows());
+				out.writeInt(sparse.getNumColumns());
+				for (int t = 0; t < sparse.getNumRows(); t++) {
+					int end = sparse.getRowStart(t + 1);
+					writeVarint(out, end - sparse.getRowStart(t));
+					int last = 0;
+					for (int k = sparse.getRowStart(t); k < end; k++) {
+						writeVarint(out, sparse.getEntryColumn(k) - last);
+						writeVarint(out, sparse.getEntryCount(k));
+						last = sparse.getEntryColumn(k);
+					}
+				}
+			} else {
+				int[][] counts = matrix.getCountsLong(a);
+				out.writeByte(DENSE);
+				out.writeInt(counts.length);
+				out.writeInt(counts[0].length);
+				for (int[] row : counts) {
+					for (int count : row) {
+						writeVarint(out, count);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the counts of a view and rebuilds its Matrix.
+	 * 
+	 * @return the Matrix, or null if the file is stale
+	 */
+	private static Matrix read(ViewState view, ByteBuffer in) {
+		ColumnStore store = view.getExampleSet().getStore();
+		MatrixInfo info = view.getMatrixInfo();
+		if (in.getInt() != MAGIC || in.getInt() != VERSION
+				|| in.getLong() != store.getFingerprint()
+				|| in.getInt() != PatternExplorerParameters.getBins()
+				|| in.getInt() != store.size()
+				|| in.getInt() != info.getNumAttributes()) {
+			return null;
+		}
+		Attribute[] attributes = new Attribute[info.getNumAttributes()];
+		for (int i = 0; i < attributes.length; i++) {
+			Attribute a = info.getAttribute(i);
+			List<String> values = a.getMapping().getValues();
+			if (!readString(in).equals(a.getName())
+					|| in.getInt() != values.size()) {
+				return null;
+			}
+			for (String value : values) {
+				if (!readString(in).equals(value)) {
+					return null;
+				}
+			}
+			attributes[i] = a;
+		}
+		if (!readString(in).equals(view.getTarget())) {
+			return null;
+		}
+
+		int[][][] tables = new int[attributes.length][][];
+		SparseTable[] sparse = new SparseTable[attributes.length];
+		for (int i = 0; i < attributes.length; i++) {
+			byte kind = in.get();
+			int numRows = in.getInt();
+			int numColumns = in.getInt();
+			if (kind == SPARSE) {
+				SparseTable.Builder builder = new SparseTable.Builder(numRows,
+						numColumns);
+				for (int t = 0; t < numRows; t++) {
+					int entries = readVarint(in);
+					int column = 0;
+					for (int k = 0; k < entries; k++) {
+						column += readVarint(in);
+						builder.add(t, column, readVarint(in));
+					}
+				}
+				sparse[i] = builder.build();
+			} else {
+				int[][] counts = new int[numRows][numColumns];
+				for (int[] row : counts) {
+					for (int v = 0; v < row.length; v++) {
+						row[v] = readVarint(in);
+					}
+				}
+				tables[i] = counts;
+			}
+		}
+		return Matrix.createStoredMatrix(view, tables, sparse);
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes a non-negative int in 7 bit groups, low group first, with the
+	 * high bit of every byte set if more bytes follow. Most counts fit in
+	 * one or two bytes.
+	 */
+	private static void writeVarint(DataOutputStream out, int value)
+			throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarint(ByteBuffer in) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+}
@@ -0,0 +1,180 @@
+package y11.matrix;
+
+import java.util.LinkedHashMap;
+
+import y11.logging.Log;
+import y11.operator.PatternExplorerSettings;
+
+/**
+ * Abstract parent of all counting kernels. A kernel adds decoded chunks of
+ * (target, value) codes to the counts of one column. All kernels produce
+ * identical counts, they only differ in speed. The kernel in use is chosen by
+ * PatternExplorerSettings.COUNT_KERNEL, and can be changed at runtime with the
+ * KERNEL_PROPERTY system property or {@link #select(String)}. The
+ * VectorCountKernel is only available if it is compiled in and the
+ * jdk.incubator.vector module is resolved, see VectorCountKernel.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public abstract class CountKernel {
+
+	/**
+	 * System property naming the kernel to use, for measuring kernels against
+	 * each other without rebuilding.
+	 */
+	public static final String KERNEL_PROPERTY = "patternexplorer.kernel";
+
+	/**
+	 * The module the VectorCountKernel needs, added with --add-modules.
+	 */
+	public static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+	private static final String VECTOR_API_CLASS = VECTOR_MODULE
+			+ ".IntVector";
+	private static final String VECTOR_KERNEL_CLASS =
+			"y11.matrix.VectorCountKernel";
+
+	private static LinkedHashMap<String, CountKernel> kernels;
+	private static CountKernel current;
+
+	private String name;
+
+	/**
+	 * Creates a new kernel with the specified name.
+	 * 
+	 * @param name
+	 *            the name of this kernel
+	 */
+	public CountKernel(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the name of this kernel.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Creates a table adding chunks to the specified counts.
+	 * 
+	 * @param counts
+	 *            the counts of a column, indexed by target code then value code
+	 * @return the table
+	 */
+	public abstract CountTable newTable(int[][] counts);
+
+	/**
+	 * Gets the kernel in use.
+	 * 
+	 * @return the kernel
+	 */
+	public static synchronized CountKernel get() {
+		if (current == null) {
+			String name = System.getProperty(KERNEL_PROPERTY,
+					PatternExplorerSettings.COUNT_KERNEL);
+			if (!select(name)) {
+				select(PatternExplorerSettings.COUNT_KERNEL);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Selects the kernel with the specified name.
+	 * 
+	 * @param name
+	 *            the name of the kernel
+	 * @return True if a kernel with this name exists
+	 */
+	public static synchronized boolean select(String name) {
+		CountKernel kernel = get(name);
+		if (kernel == null) {
+			Log.out("Unknown count kernel " + name, Log.WARNING_LEVEL);
+			return false;
+		}
+		current = kernel;
+		return true;
+	}
+
+	/**
+	 * Gets the kernel with the specified name, without selecting it.
+	 * 
+	 * @param name
+	 *            the name of the kernel
+	 * @return the kernel, or null if no kernel has this name
+	 */
+	public static synchronized CountKernel get(String name) {
+		if (kernels == null) {
+			kernels = new LinkedHashMap<String, CountKernel>();
+			kernels.put(ScalarCountKernel.NAME, ScalarCountKernel.get());
+			kernels.put(SplitCountKernel.NAME, SplitCountKernel.get());
+			CountKernel vector = getVectorKernel();
+			if (vector != null) {
+				kernels.put(vector.getName(), vector);
+			}
+		}
+		return kernels.get(name);
+	}
+
+	/**
+	 * Gets the VectorCountKernel, loaded by reflection so that the plugin
+	 * compiles and runs without the jdk.incubator.vector module.
+	 * 
+	 * @return the kernel, or null if it is not compiled in or the module is
+	 *         not resolved
+	 */
+	private static CountKernel getVectorKernel() {
+		try {
+			Class.forName(VECTOR_API_CLASS);
+			Class<?> kernelClass = Class.forName(VECTOR_KERNEL_CLASS);
+			return (CountKernel) kernelClass.getMethod("get").invoke(null);
+		} catch (Exception e) {
+			Log.dbg("[ --- no vector count kernel: " + e + " --- ]");
+		} catch (LinkageError e) {
+			Log.dbg("[ --- no vector count kernel: " + e + " --- ]");
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the names of all kernels, the ScalarCountKernel first.
+	 * 
+	 * @return the names
+	 */
+	public static synchronized String[] getNames() {
+		get(ScalarCountKernel.NAME);
+		return kernels.keySet().toArray(new String[kernels.size()]);
+	}
+
+	/**
+	 * Accumulates the counts of one column over chunks of examples.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	public static abstract class CountTable {
+
+		/**
+		 * Adds a chunk of examples to the counts.
+		 * 
+		 * @param tCodes
+		 *            the target codes of the chunk
+		 * @param codes
+		 *            the value codes of the chunk
+		 * @param length
+		 *            the number of examples in the chunk
+		 */
+		public abstract void add(int[] tCodes, int[] codes, int length);
+
+		/**
+		 * Writes any pending counts to the counts of the column. Must be
+		 * called once all chunks have been added.
+		 */
+		public abstract void finish();
+	}
+}
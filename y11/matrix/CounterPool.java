@@ -0,0 +1,98 @@
+package y11.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import y11.operator.PatternExplorerParameters;
+import y11.operator.PatternExplorerSettings;
+
+/**
+ * Owns the long-lived pool of worker threads used for counting. The pool is
+ * created once and reused by every operation, and only replaced when the
+ * number of threads to use for counting changes. Speculative operations count
+ * on a second, smaller pool of low priority threads, so that they never
+ * compete with the user's operations for the counting threads.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class CounterPool {
+
+	private static final String THREAD_NAME = "PatternExplorer-Counter-Thread-";
+	private static final String SPECULATIVE_THREAD_NAME = "PatternExplorer-Speculate-Counter-Thread-";
+
+	private static ForkJoinPool pool;
+	private static ForkJoinPool speculativePool;
+
+	/**
+	 * Gets the counting pool, sized to the number of threads to use for
+	 * counting, see PatternExplorerParameters.
+	 * 
+	 * @return the pool
+	 */
+	public static synchronized ForkJoinPool get() {
+		int parallelism = Math.max(PatternExplorerParameters.getCores(), 1);
+		if (pool == null || pool.getParallelism() != parallelism) {
+			if (pool != null) {
+				pool.shutdown();
+			}
+			pool = new ForkJoinPool(parallelism, new WorkerFactory(
+					THREAD_NAME, Thread.NORM_PRIORITY), null, false);
+		}
+		return pool;
+	}
+
+	/**
+	 * Gets the pool to count on for the specified operation: the counting
+	 * pool, or for speculative operations a pool of one low priority thread
+	 * per PatternExplorerSettings.SPECULATION_SHARE counting threads.
+	 * 
+	 * @param op
+	 *            the context of the operation
+	 * @return the pool
+	 */
+	public static synchronized ForkJoinPool get(OperationContext op) {
+		if (!op.isSpeculative()) {
+			return get();
+		}
+		int parallelism = Math.max(PatternExplorerParameters.getCores()
+				/ PatternExplorerSettings.SPECULATION_SHARE, 1);
+		if (speculativePool == null
+				|| speculativePool.getParallelism() != parallelism) {
+			if (speculativePool != null) {
+				speculativePool.shutdown();
+			}
+			speculativePool = new ForkJoinPool(parallelism, new WorkerFactory(
+					SPECULATIVE_THREAD_NAME, Thread.MIN_PRIORITY), null, false);
+		}
+		return speculativePool;
+	}
+
+	/**
+	 * Creates named daemon workers of a given priority, so that counting never
+	 * keeps RapidMiner from exiting.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private static class WorkerFactory implements
+			ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+		private String name;
+		private int priority;
+
+		public WorkerFactory(String name, int priority) {
+			this.name = name;
+			this.priority = priority;
+		}
+
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+					.newThread(pool);
+			worker.setName(name + worker.getPoolIndex());
+			worker.setDaemon(true);
+			worker.setPriority(priority);
+			return worker;
+		}
+	}
+}
@@ -1,113 +1,696 @@
 package y11.matrix;
 
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import y11.data.BitmapIndex;
+import y11.data.EncodedColumn;
+import y11.data.EncodedExampleSet;
+import y11.data.RoaringBitmap;
+import y11.data.SparseTable;
 import y11.manager.state.MatrixInfo;
 import y11.manager.state.ViewState;
+import y11.metrics.CountEvent;
+import y11.metrics.Metrics;
+import y11.operator.PatternExplorerSettings;
 
 import com.rapidminer.example.Attribute;
-import com.rapidminer.example.Example;
-import com.rapidminer.example.ExampleSet;
 
 /**
- * A thread dedicated to computing histogram models for a subset of columns.
+ * Computes histogram models for the columns of a view. The work is split into
+ * column tasks and partition tasks that run on the shared CounterPool, where
+ * idle workers steal tasks from busy ones.
  * 
  * @author Caleb Sotelo
  * 
  */
-public class CounterThread extends Thread {
+public class CounterThread {
+
+	private static final int BYTES_PER_COUNT = 4;
+	private static final int CHUNK_SIZE = 4096; // examples decoded at a time
 
-	private int index;
-	private int delta;
-	private ExampleSet exampleSet;
+	private EncodedExampleSet exampleSet;
 	private MatrixInfo matrixInfo;
 	private Attribute target;
+	private EncodedColumn targetColumn;
 	private Matrix matrix;
-	private Barrier barrier;
+	private RoaringBitmap[] targetSelections; // selected rows per target value
+	private boolean[] sparse; // the columns counted into a SparseTable
+	private OperationContext op;
+	private volatile boolean stopped;
 
 	/**
-	 * Creates a new CounterThread with the specified settings.
+	 * Creates a new CounterThread for the specified view, publishing its
+	 * counts to the specified matrix.
 	 * 
-	 * @param index
-	 *            the attribute index to start on
-	 * @param delta
-	 *            the number of attributes to skip
 	 * @param view
 	 * @param matrix
-	 * @param barrier
+	 * @param op
+	 *            the context of the operation, which receives the progress
 	 */
-	public CounterThread(int index, int delta, ViewState view, Matrix matrix,
-			Barrier barrier) {
-		this(index, delta, view, matrix);
-		this.barrier = barrier;
+	public CounterThread(ViewState view, Matrix matrix, OperationContext op) {
+		this(view.getExampleSet(), view.getMatrixInfo(), view.getMatrixInfo()
+				.getAttribute(view.getTarget()), matrix, op);
 	}
 
 	/**
-	 * Creates a new CounterThread with the specified settings and shared
-	 * Barrier.
+	 * Creates a new CounterThread for the specified examples, publishing its
+	 * counts to the specified matrix.
 	 * 
-	 * @param index
-	 * @param delta
-	 * @param view
+	 * @param exampleSet
+	 *            the examples to count
+	 * @param matrixInfo
+	 * @param target
+	 *            the target attribute
 	 * @param matrix
+	 *            the matrix to publish to, or null if only tables are counted
+	 * @param op
+	 *            the context of the operation, which receives the progress
 	 */
-	public CounterThread(int index, int delta, ViewState view, Matrix matrix) {
-		this.index = index;
-		this.delta = delta;
-		this.exampleSet = view.getExampleSet();
-		this.matrixInfo = view.getMatrixInfo();
-		this.target = matrixInfo.getAttribute(view.getTarget());
+	public CounterThread(EncodedExampleSet exampleSet, MatrixInfo matrixInfo,
+			Attribute target, Matrix matrix, OperationContext op) {
+		this.exampleSet = exampleSet;
+		this.matrixInfo = matrixInfo;
+		this.target = target;
+		this.targetColumn = exampleSet.getColumn(target);
 		this.matrix = matrix;
+		this.op = op;
+		this.sparse = new boolean[matrixInfo.getNumAttributes()];
+		if (matrix != null) {
+			int tVals = target.getMapping().size();
+			for (int i = 0; i < sparse.length; i++) {
+				Attribute a = matrixInfo.getAttribute(i);
+				sparse[i] = a != target
+						&& isSparse(a, tVals, exampleSet.size());
+			}
+		}
+	}
+
+	/**
+	 * Tests if the counts of an attribute against the target are mostly zero
+	 * and large enough to be counted into a SparseTable, see
+	 * PatternExplorerSettings.SPARSE_MIN_CELLS. There are at most as many
+	 * non-zero counts as examples.
+	 * 
+	 * @param a
+	 * @param tVals
+	 *            the number of target values
+	 * @param numRows
+	 *            the number of examples
+	 * @return True if the counts are sparse
+	 */
+	public static boolean isSparse(Attribute a, int tVals, int numRows) {
+		long cells = (long) tVals * a.getMapping().size();
+		return cells >= PatternExplorerSettings.SPARSE_MIN_CELLS
+				&& cells >= (long) PatternExplorerSettings.SPARSE_CELLS_PER_ROW
+						* numRows && cells <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Tests if any column is counted into a SparseTable. Sparse columns are
+	 * published as they are counted, so they cannot be counted by a
+	 * PartitionTask.
+	 * 
+	 * @return True if some column is sparse
+	 */
+	public boolean hasSparseColumns() {
+		for (boolean s : sparse) {
+			if (s) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Generates the histogram models of the i'th attribute by counting through
+	 * its encoded column.
+	 * 
+	 * @param i
+	 *            the index of the attribute
+	 * @throws UserCancelledException
+	 */
+	public void count(int i) throws UserCancelledException {
+		if (sparse[i]) {
+			countSparse(i);
+		} else if (targetSelections != null) {
+			countIntersections(i);
+		} else {
+			countFused(new int[] { i });
+		}
 	}
 
 	/**
-	 * Starts this CounterThread.
+	 * Prepares counting from bitmap intersections instead of scans, by
+	 * intersecting the selected rows with the rows of every target value.
+	 * Once prepared, {@link #count(int)} counts from intersections.
+	 * 
+	 * @return the estimated cost of counting all columns from intersections,
+	 *         comparable to the number of example values read by a scan, or
+	 *         Long.MAX_VALUE if there is no BitmapIndex
 	 */
-	@Override
-	public void run() {
-		try {
-			count();
-			barrier.signal();
-		} catch (UserCancelledException e) {
-			// thread dies here ..
+	public long prepareIntersections() {
+		BitmapIndex index = exampleSet.getStore().getBitmapIndex();
+		if (index == null) {
+			return Long.MAX_VALUE;
+		}
+		RoaringBitmap selection = exampleSet.getSelection();
+		int tVals = target.getMapping().size();
+		RoaringBitmap[] selections = new RoaringBitmap[tVals];
+		long targetCost = 0;
+		for (int t = 0; t < tVals; t++) {
+			RoaringBitmap values = index.get(target.getName(), t);
+			selections[t] = (selection == null) ? values : selection
+					.and(values);
+			targetCost += selections[t].getCost();
 		}
+		long cost = 0;
+		for (int i = 0; i < matrixInfo.getNumAttributes(); i++) {
+			cost += targetCost * matrixInfo.getAttribute(i).getMapping().size();
+		}
+		targetSelections = selections;
+		return cost;
 	}
 
 	/**
-	 * Generates histogram models for a subset of attributes by counting through
-	 * the ExampleSet
+	 * Generates the histogram models of the i'th attribute from the
+	 * cardinalities of its value bitmaps intersected with the selected rows
+	 * of every target value.
+	 */
+	private void countIntersections(int i) throws UserCancelledException {
+		long start = Metrics.start();
+		CountEvent event = new CountEvent();
+		event.begin();
+		BitmapIndex index = exampleSet.getStore().getBitmapIndex();
+		Attribute a = matrixInfo.getAttribute(i);
+		int vals = a.getMapping().size();
+		int tVals = (a == target) ? 1 : targetSelections.length;
+		int[][] counts = new int[tVals][vals];
+		if (a == target) {
+			for (int t = 0; t < vals; t++) {
+				counts[0][t] = targetSelections[t].getCardinality();
+			}
+		} else {
+			for (int v = 0; v < vals; v++) {
+				RoaringBitmap values = index.get(a.getName(), v);
+				for (int t = 0; t < counts.length; t++) {
+					counts[t][v] = targetSelections[t].andCardinality(values);
+				}
+			}
+		}
+		Metrics.stop(Metrics.COUNT, getOperation(), start);
+		commit(event, new Attribute[] { a }, exampleSet.size());
+		publish(i, counts);
+		makeProgress(exampleSet.size());
+	}
+
+	/**
+	 * Generates the histogram models of a block of columns. The block is
+	 * counted in one pass through the examples, updating the counts of all its
+	 * columns per chunk of examples. Blocks are sized so that their counts
+	 * stay in cache while counting.
 	 * 
+	 * @param block
+	 *            the indices of the attributes in the block
 	 * @throws UserCancelledException
 	 */
-	public void count() throws UserCancelledException {
-		int numAttributes = matrixInfo.getNumAttributes(); // total # of columns
-		// int tVals = matrixInfo.getNumValues(target); // total # of rows
+	public void countFused(int[] block) throws UserCancelledException {
+		if (block.length == 1 && sparse[block[0]]) {
+			countSparse(block[0]); // sparse columns get blocks of their own
+			return;
+		}
+		Attribute[] attributes = new Attribute[block.length];
+		int[][][] counts = allocateBlock(block, attributes);
+		countRange(attributes, counts, 0, exampleSet.size());
+		for (int k = 0; k < attributes.length; k++) {
+			publish(block[k], counts[k]);
+		}
+	}
+
+	/**
+	 * Generates the histogram models of a column whose counts are sparse,
+	 * counting into an open-addressing hash of the non-zero counts instead of
+	 * allocating all of them.
+	 */
+	private void countSparse(int i) throws UserCancelledException {
+		long start = Metrics.start();
+		CountEvent event = new CountEvent();
+		event.begin();
+		Attribute a = matrixInfo.getAttribute(i);
+		EncodedColumn column = exampleSet.getColumn(a);
+		int[] rows = exampleSet.getRows();
+		int to = exampleSet.size();
+		SparseTable.Builder builder = new SparseTable.Builder(target
+				.getMapping().size(), a.getMapping().size());
+		int[] tCodes = new int[CHUNK_SIZE];
+		int[] codes = new int[CHUNK_SIZE];
+		int unreported = 0;
+		for (int chunk = 0; chunk < to; chunk += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, to - chunk);
+			targetColumn.decode(rows, chunk, length, tCodes);
+			column.decode(rows, chunk, length, codes);
+			for (int j = 0; j < length; j++) {
+				builder.add(tCodes[j], codes[j]);
+			}
+			unreported += length;
+			if (unreported >= PatternExplorerSettings.PROGRESS_ROWS) {
+				makeProgress(unreported);
+				unreported = 0;
+			}
+		}
+		makeProgress(unreported);
+		SparseTable counts = builder.build();
+		Metrics.stop(Metrics.COUNT, getOperation(), start);
+		commit(event, new Attribute[] { a }, to);
+		matrix.addAttributeCounts(i, counts);
+	}
+
+	/**
+	 * Counts all column blocks over a partition of the examples into private
+	 * tables, which are published by {@link #publishTables(int[][][])} once
+	 * all partitions have been merged.
+	 * 
+	 * @param blocks
+	 *            the column blocks, see {@link #partitionColumns}
+	 * @param rowFrom
+	 *            the first example of the partition
+	 * @param rowTo
+	 *            the example after the last one of the partition
+	 * @return the counts of every column, indexed by attribute index
+	 * @throws UserCancelledException
+	 */
+	public int[][][] countPartition(int[][] blocks, int rowFrom, int rowTo)
+			throws UserCancelledException {
+		int[][][] tables = new int[matrixInfo.getNumAttributes()][][];
+		for (int[] block : blocks) {
+			Attribute[] attributes = new Attribute[block.length];
+			int[][][] counts = allocateBlock(block, attributes);
+			countRange(attributes, counts, rowFrom, rowTo);
+			for (int k = 0; k < block.length; k++) {
+				tables[block[k]] = counts[k];
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * Adds the private tables of one partition to those of another.
+	 * 
+	 * @param tables
+	 *            the tables receiving the counts
+	 * @param other
+	 *            the tables whose counts are added
+	 */
+	public static void merge(int[][][] tables, int[][][] other) {
+		for (int i = 0; i < tables.length; i++) {
+			int[][] counts = tables[i];
+			int[][] add = other[i];
+			for (int t = 0; t < counts.length; t++) {
+				for (int v = 0; v < counts[t].length; v++) {
+					counts[t][v] += add[t][v];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates histogram models from merged partition tables.
+	 * 
+	 * @param tables
+	 *            the counts of every column, indexed by attribute index
+	 */
+	public void publishTables(int[][][] tables) {
+		for (int i = 0; i < tables.length; i++) {
+			publish(i, tables[i]);
+		}
+	}
+
+	/**
+	 * Allocates the counts for a block of columns. The target column is
+	 * counted as a single row.
+	 */
+	private int[][][] allocateBlock(int[] block, Attribute[] attributes) {
+		int tVals = target.getMapping().size();
+		int[][][] counts = new int[block.length][][];
+		for (int k = 0; k < block.length; k++) {
+			attributes[k] = matrixInfo.getAttribute(block[k]);
+			int vals = attributes[k].getMapping().size();
+			counts[k] = new int[(attributes[k] == target) ? 1 : tVals][vals];
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts the examples in [from, to) into the counts of a block. The target
+	 * codes of a chunk are decoded once and shared by all columns of the
+	 * block, and every column is decoded into a flat int buffer which is
+	 * counted by the kernel in use, see CountKernel. Progress is reported, and
+	 * cancellation checked, every PatternExplorerSettings.PROGRESS_ROWS
+	 * examples.
+	 */
+	private void countRange(Attribute[] attributes, int[][][] counts,
+			int from, int to) throws UserCancelledException {
+		long start = Metrics.start();
+		CountEvent event = new CountEvent();
+		event.begin();
+		int[] rows = exampleSet.getRows();
+		CountKernel kernel = CountKernel.get();
+		EncodedColumn[] columns = new EncodedColumn[attributes.length];
+		CountKernel.CountTable[] tables;
+		tables = new CountKernel.CountTable[attributes.length];
+		for (int k = 0; k < attributes.length; k++) {
+			columns[k] = exampleSet.getColumn(attributes[k]);
+			if (attributes[k] != target) {
+				tables[k] = kernel.newTable(counts[k]);
+			}
+		}
+		int[] tCodes = new int[CHUNK_SIZE];
+		int[] codes = new int[CHUNK_SIZE];
+		int unreported = 0; // examples counted since the last report
+		for (int chunk = from; chunk < to; chunk += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, to - chunk);
+			targetColumn.decode(rows, chunk, length, tCodes);
+			for (int k = 0; k < attributes.length; k++) {
+				if (attributes[k] == target) {
+					int[] tCounts = counts[k][0];
+					for (int j = 0; j < length; j++) {
+						tCounts[tCodes[j]]++;
+					}
+				} else {
+					columns[k].decode(rows, chunk, length, codes);
+					tables[k].add(tCodes, codes, length);
+				}
+			}
+			unreported += length;
+			if (unreported >= PatternExplorerSettings.PROGRESS_ROWS) {
+				makeProgress((long) unreported * attributes.length);
+				unreported = 0;
+			}
+		}
+		for (int k = 0; k < attributes.length; k++) {
+			if (tables[k] != null) {
+				tables[k].finish();
+			}
+		}
+		makeProgress((long) unreported * attributes.length);
+		Metrics.stop(Metrics.COUNT, getOperation(), start);
+		Metrics.count(Metrics.VALUES, getOperation(), (long) (to - from)
+				* attributes.length);
+		commit(event, attributes, to - from);
+	}
+
+	private void publish(int i, int[][] counts) {
+		if (matrixInfo.getAttribute(i) == target) {
+			matrix.addTargetCounts(counts[0]);
+		} else {
+			matrix.addAttributeCounts(i, counts);
+		}
+	}
+
+	/**
+	 * Commits the Flight Recorder event of a counting task, if it is being
+	 * recorded.
+	 */
+	private void commit(CountEvent event, Attribute[] attributes, long rows) {
+		if (event.shouldCommit()) {
+			StringBuilder names = new StringBuilder();
+			for (Attribute a : attributes) {
+				if (names.length() > 0) {
+					names.append(',');
+				}
+				names.append(a.getName());
+			}
+			event.set(names.toString(), rows, getOperation());
+			event.commit();
+		}
+	}
+
+	/**
+	 * Gets the kind of operation the counting is timed for, see Metrics.
+	 */
+	private String getOperation() {
+		if (op.isSpeculative()) {
+			return Metrics.SPECULATION;
+		}
+		return op.isHeadless() ? Metrics.HEADLESS : Metrics.getOperation();
+	}
+
+	/**
+	 * Stops this counter. Its tasks fail with a CancellationException the
+	 * next time they report progress.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	private void makeProgress(long work) throws UserCancelledException {
+		if (stopped) {
+			throw new UserCancelledException("Counting stopped!");
+		}
+		op.makeProgress(work);
+	}
+
+	/**
+	 * Tests if a task covering the specified number of counting units is worth
+	 * splitting further.
+	 */
+	private boolean canSplit(int units) {
+		return units > 1
+				&& (long) units * exampleSet.size() >= PatternExplorerSettings.MIN_TASK_CELLS;
+	}
+
+	/**
+	 * Groups all columns into blocks whose counts fit in
+	 * PatternExplorerSettings.COUNT_BLOCK_BYTES, so that a block can be
+	 * counted in a single pass without its counts leaving the cache. A column
+	 * larger than the budget gets a block of its own.
+	 * 
+	 * @param matrixInfo
+	 * @param target
+	 * @return the column indices of every block
+	 */
+	public static int[][] partitionColumns(MatrixInfo matrixInfo,
+			Attribute target) {
+		int tVals = target.getMapping().size();
+		ArrayList<int[]> blocks = new ArrayList<int[]>();
+		ArrayList<Integer> block = new ArrayList<Integer>();
+		long blockBytes = 0;
+		for (int i = 0; i < matrixInfo.getNumAttributes(); i++) {
+			Attribute a = matrixInfo.getAttribute(i);
+			long bytes = (long) BYTES_PER_COUNT * a.getMapping().size()
+					* ((a == target) ? 1 : tVals);
+			if (!block.isEmpty()
+					&& blockBytes + bytes > PatternExplorerSettings.COUNT_BLOCK_BYTES) {
+				blocks.add(toArray(block));
+				block.clear();
+				blockBytes = 0;
+			}
+			block.add(i);
+			blockBytes += bytes;
+		}
+		if (!block.isEmpty()) {
+			blocks.add(toArray(block));
+		}
+		return blocks.toArray(new int[blocks.size()][]);
+	}
+
+	/**
+	 * Computes the memory needed for one complete set of counts.
+	 * 
+	 * @param matrixInfo
+	 * @param target
+	 * @return the size of all counts in bytes
+	 */
+	public static long tableBytes(MatrixInfo matrixInfo, Attribute target) {
 		int tVals = target.getMapping().size();
-		int[][] counts; // the counts for this column
-		Attribute a; // the current attribute (columns) being processed
-		int vals; // the attribute's number of values
-		// this thread counts every delta'th attribute beginning at i
-		for (int i = index; i < numAttributes; i += delta) {
-
-			a = matrixInfo.getAttribute(i);
-			vals = a.getMapping().getValues().size();
-
-			if (a == target) {
-				// special routine to count target distrn
-				int[] tCounts = new int[vals];
-				for (Example e : exampleSet) {
-					tCounts[(int) e.getValue(a)]++;
+		long bytes = 0;
+		for (int i = 0; i < matrixInfo.getNumAttributes(); i++) {
+			Attribute a = matrixInfo.getAttribute(i);
+			bytes += (long) BYTES_PER_COUNT * a.getMapping().size()
+					* ((a == target) ? 1 : tVals);
+		}
+		return bytes;
+	}
+
+	private static int[] toArray(ArrayList<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * A task counting a range of columns, or column blocks if blocks are
+	 * specified. Ranges are split in halves so that idle workers can steal
+	 * the remaining columns.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	public class ColumnTask extends RecursiveAction {
+
+		private int[][] blocks;
+		private int from;
+		private int to;
+
+		/**
+		 * Creates a new ColumnTask for the columns or blocks in [from, to).
+		 * 
+		 * @param blocks
+		 *            the column blocks, or null to count column by column
+		 * @param from
+		 * @param to
+		 */
+		public ColumnTask(int[][] blocks, int from, int to) {
+			this.blocks = blocks;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (canSplit(to - from)) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ColumnTask(blocks, from, mid), new ColumnTask(
+						blocks, mid, to));
+				return;
+			}
+			try {
+				for (int i = from; i < to; i++) {
+					if (blocks == null) {
+						count(i);
+					} else {
+						countFused(blocks[i]);
+					}
 				}
-				matrix.addTargetCounts(tCounts);
-
-			} else {
-				// routine to count all regular attributes
-				counts = new int[tVals][vals];
-				// count through examples
-				for (Example e : exampleSet) {
-					counts[(int) e.getValue(target)][(int) e.getValue(a)]++;
+			} catch (UserCancelledException e) {
+				throw new CancellationException(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * A task counting a range of column blocks over all examples into shared
+	 * tables, without publishing them. Ranges are split in halves like those
+	 * of a ColumnTask.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	public class TableTask extends RecursiveAction {
+
+		private int[][] blocks;
+		private int[][][] tables;
+		private int from;
+		private int to;
+
+		/**
+		 * Creates a new TableTask for the blocks in [from, to).
+		 * 
+		 * @param blocks
+		 *            the column blocks, see {@link #partitionColumns}
+		 * @param tables
+		 *            receives the counts of every column, indexed by
+		 *            attribute index
+		 * @param from
+		 * @param to
+		 */
+		public TableTask(int[][] blocks, int[][][] tables, int from, int to) {
+			this.blocks = blocks;
+			this.tables = tables;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (canSplit(to - from)) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new TableTask(blocks, tables, from, mid),
+						new TableTask(blocks, tables, mid, to));
+				return;
+			}
+			try {
+				for (int i = from; i < to; i++) {
+					int[] block = blocks[i];
+					Attribute[] attributes = new Attribute[block.length];
+					int[][][] counts = allocateBlock(block, attributes);
+					countRange(attributes, counts, 0, exampleSet.size());
+					for (int k = 0; k < block.length; k++) {
+						tables[block[k]] = counts[k];
+					}
 				}
-				matrix.addAttributeCounts(a, counts);
+			} catch (UserCancelledException e) {
+				throw new CancellationException(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * A task counting a range of example partitions into private tables. The
+	 * range is split in halves, and the tables of both halves are merged once
+	 * they are done, which makes up a parallel tree reduction.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	public class PartitionTask extends RecursiveTask<int[][][]> {
+
+		private int[][] blocks;
+		private int numPartitions;
+		private int from;
+		private int to;
+
+		/**
+		 * Creates a new PartitionTask for the partitions in [from, to).
+		 * 
+		 * @param blocks
+		 *            the column blocks, see {@link #partitionColumns}
+		 * @param numPartitions
+		 *            the total number of partitions
+		 * @param from
+		 * @param to
+		 */
+		public PartitionTask(int[][] blocks, int numPartitions, int from,
+				int to) {
+			this.blocks = blocks;
+			this.numPartitions = numPartitions;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected int[][][] compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				PartitionTask right = new PartitionTask(blocks, numPartitions,
+						mid, to);
+				right.fork();
+				int[][][] tables = new PartitionTask(blocks, numPartitions,
+						from, mid).compute();
+				merge(tables, right.join());
+				return tables;
+			}
+			int numRows = exampleSet.size();
+			int rowFrom = (int) ((long) numRows * from / numPartitions);
+			int rowTo = (int) ((long) numRows * to / numPartitions);
+			try {
+				return countPartition(blocks, rowFrom, rowTo);
+			} catch (UserCancelledException e) {
+				throw new CancellationException(e.getMessage());
 			}
-			ProgressManager.makeProgress();
 		}
 	}
 }
@@ -1,43 +1,49 @@
 package y11.matrix;
 
+import java.util.concurrent.CancellationException;
+
 import com.rapidminer.example.Attribute;
-import com.rapidminer.example.Example;
-import com.rapidminer.example.ExampleSet;
-import com.rapidminer.example.set.MappedExampleSet;
-
-import y11.GUI.canvas.CornerPanel;
-import y11.GUI.canvas.CanvasComponent;
-import y11.GUI.histogram.AttributeHistogram;
-import y11.GUI.histogram.DefaultHistogram;
-import y11.GUI.histogram.TargetHistogram;
+
+import y11.data.EncodedExampleSet;
+import y11.data.SparseTable;
 import y11.logging.Log;
 import y11.manager.state.MatrixInfo;
 import y11.manager.state.ViewState;
+import y11.metrics.Metrics;
 import y11.models.AttributeValuePair;
 import y11.models.histogram.AttributeHistogramModel;
 import y11.models.histogram.DefaultHistogramModel;
 import y11.models.histogram.HistogramModel;
 import y11.models.histogram.TargetHistogramModel;
-import y11.operator.PatternExplorerOperator;
+import y11.operator.PatternExplorerParameters;
+import y11.operator.PatternExplorerSettings;
 
 /**
- * Contains histograms with their backing models. Spawns CounterThreads for
- * counting.
+ * Contains the histogram models of a view and their backing counts. Submits
+ * counting tasks to the CounterPool. A Matrix does not depend on the display,
+ * which creates the histograms of its models, see MatrixRenderer.
  * 
  * @author Caleb Sotelo
  * 
  */
 public class Matrix {
 
-	private static final int SLEEP_TIME = 20;
 	private static final int TARGET_COL = 0;
 	private static final int ATTRIB_ROW = 0;
 	private static final int ATTRIB_OFFSET = 1;
+	private static final int BYTES_PER_COUNT = 4;
+	private static final int MODEL_BYTES = 512; // a model without its counts
 
 	private HistogramModel[][] models;
-	private CanvasComponent[][] graphs;
+	private int[][][] countsLong; // uncompacted counts of every column
+	private SparseTable[] sparseLong; // uncompacted counts of sparse columns
+	private boolean[] published; // the columns whose models are complete
+	private double scale = 1; // the factor sampled counts are scaled up by
+	private boolean streaming; // publishes columns to the listener
+	private MatrixListener listener; // of the panel showing this Matrix
 	private ViewState view;
 	private Attribute target;
+	private int targetOrdinal; // see MatrixInfo.getOrdinal()
 	private MatrixInfo info;
 
 	private int length;
@@ -51,10 +57,14 @@ public class Matrix {
 	public Matrix(ViewState view) {
 		this.view = view;
 		this.info = view.getMatrixInfo();
-		this.target = info.getAttribute(view.getTarget());
+		this.targetOrdinal = info.getOrdinal(view.getTarget());
+		this.target = info.getAttribute(targetOrdinal);
 		this.length = info.getNumAttributes();
-		this.height = info.getNumValuesTarget(target) + 1;
+		this.height = info.getNumValuesTarget(targetOrdinal) + 1;
 		models = new HistogramModel[length][height];
+		countsLong = new int[length][][];
+		sparseLong = new SparseTable[length];
+		published = new boolean[length];
 	}
 
 	/**
@@ -66,8 +76,14 @@ public class Matrix {
 		this.view = copy.view;
 		this.info = copy.info;
 		this.target = copy.target;
+		this.targetOrdinal = copy.targetOrdinal;
 		this.length = copy.length;
 		this.height = copy.height;
+		this.countsLong = copy.countsLong;
+		this.sparseLong = copy.sparseLong;
+		this.scale = copy.scale;
+		this.listener = copy.listener;
+		this.published = new boolean[length];
 
 		this.models = new HistogramModel[length][height];
 		for (int i = 0; i < models.length; i++) {
@@ -89,19 +105,21 @@ public class Matrix {
 	public void addTargetCounts(int[] tCountsLong) {
 		String value;
 		int maxCount = 0;
-		int[] tCounts = info.compact(target, tCountsLong);
+		countsLong[TARGET_COL] = new int[][] { tCountsLong };
+		int[] tCounts = info.compact(targetOrdinal, tCountsLong);
 		for (int i = 0; i < tCounts.length; i++) {
 			int[] count = { tCounts[i] };
-			value = info.getValue(target, i);
+			value = info.getValue(targetOrdinal, i);
 			// value = target.getMapping().getValues().get(i);
 			TargetHistogramModel tModel = new TargetHistogramModel(count,
-					target, value, info);
+					target, value, info, !isSampled());
 			models[TARGET_COL][i + ATTRIB_OFFSET] = tModel;
 			maxCount = Math.max(maxCount, tModel.getCount(0));
 		}
 		for (int i = ATTRIB_OFFSET; i < models[TARGET_COL].length; i++) {
 			models[TARGET_COL][i].setMaxColCount(maxCount);
 		}
+		publishColumn(TARGET_COL);
 	}
 
 	/**
@@ -112,9 +130,25 @@ public class Matrix {
 	 * @param countsLong
 	 */
 	public void addAttributeCounts(Attribute a, int[][] countsLong) {
-		int[][] counts = info.compact(target, a, countsLong);
+		addAttributeCounts(info.getOrdinal(a), countsLong);
+	}
+
+	/**
+	 * Create and adds the models of the attribute with the specified ordinal,
+	 * see MatrixInfo.getOrdinal(). Called by CounterThread.
+	 * 
+	 * @param ordinal
+	 * @param countsLong
+	 */
+	public void addAttributeCounts(int ordinal, int[][] countsLong) {
+		long start = Metrics.start();
+		Attribute a = info.getAttribute(ordinal);
+		int[][] counts = info.compact(targetOrdinal, ordinal, countsLong);
+		Metrics.stop(Metrics.COMPACT, start);
+		start = Metrics.start();
 		int[] aCounts = new int[counts[0].length];
-		int index = info.getCol(a, target) + 1;
+		int index = info.getCol(ordinal, targetOrdinal) + 1;
+		this.countsLong[index] = countsLong;
 		String value;
 		int maxColCount = 0;
 		for (int i = 0; i < counts.length; i++) {
@@ -124,7 +158,7 @@ public class Matrix {
 			}
 			// create default model
 			// value = target.getMapping().getValues().get(i);
-			value = info.getValue(target, i);
+			value = info.getValue(targetOrdinal, i);
 			DefaultHistogramModel dModel = new DefaultHistogramModel(counts[i],
 					a, target, value, info);
 			models[index][i + ATTRIB_OFFSET] = dModel;
@@ -136,17 +170,88 @@ public class Matrix {
 		models[index][ATTRIB_ROW] = aModel;
 
 		// setting max column count
+		boolean compact = info.isExpandable(ordinal)
+				&& !info.isExpanded(ordinal);
 		for (int i = ATTRIB_OFFSET; i < models[index].length; i++) {
 			models[index][i].setMaxColCount(maxColCount);
-			if (info.isExpandable(a) && !info.isExpanded(a)) {
+			if (compact) {
 				int[] visibleIndices = ((AttributeHistogramModel) models[index][ATTRIB_ROW])
 						.getVisibleIndices();
 				((DefaultHistogramModel) models[index][i])
 						.modifyThisCompact(visibleIndices);
 			}
-			((DefaultHistogramModel) models[index][i]).setIsSignificant(aModel);
+			((DefaultHistogramModel) models[index][i]).setIsSignificant(aModel,
+					scale);
+		}
+		Metrics.stop(Metrics.MODELS, start);
+		publishColumn(index);
+	}
+
+	/**
+	 * Create and adds the models of a column whose counts are sparse. Unless
+	 * the column is expanded, only the visible bars of the default models are
+	 * taken from the sparse counts. Called by CounterThread.
+	 * 
+	 * @param a
+	 * @param countsLong
+	 */
+	public void addAttributeCounts(Attribute a, SparseTable countsLong) {
+		addAttributeCounts(info.getOrdinal(a), countsLong);
+	}
+
+	/**
+	 * Create and adds the models of the sparse attribute with the specified
+	 * ordinal, see MatrixInfo.getOrdinal(). Called by CounterThread.
+	 * 
+	 * @param ordinal
+	 * @param countsLong
+	 */
+	public void addAttributeCounts(int ordinal, SparseTable countsLong) {
+		long start = Metrics.start();
+		Attribute a = info.getAttribute(ordinal);
+		SparseTable counts = info.compact(targetOrdinal, ordinal, countsLong);
+		Metrics.stop(Metrics.COMPACT, start);
+		start = Metrics.start();
+		int index = info.getCol(ordinal, targetOrdinal) + 1;
+		this.sparseLong[index] = countsLong;
+		AttributeHistogramModel aModel = new AttributeHistogramModel(counts
+				.getColumnSums(), a, info);
+		models[index][ATTRIB_ROW] = aModel;
+		int[] visibleIndices = null;
+		if (info.isExpandable(ordinal) && !info.isExpanded(ordinal)) {
+			visibleIndices = aModel.getVisibleIndices();
+		}
+		int maxColCount = 0;
+		for (int i = 0; i < counts.getNumRows(); i++) {
+			String value = info.getValue(targetOrdinal, i);
+			DefaultHistogramModel dModel = new DefaultHistogramModel(counts, i,
+					visibleIndices, a, target, value, info);
+			models[index][i + ATTRIB_OFFSET] = dModel;
+			maxColCount = Math.max(dModel.getMaxCount(), maxColCount);
+		}
+
+		// setting max column count
+		for (int i = ATTRIB_OFFSET; i < models[index].length; i++) {
+			models[index][i].setMaxColCount(maxColCount);
+			((DefaultHistogramModel) models[index][i]).setIsSignificant(aModel,
+					scale);
 		}
+		Metrics.stop(Metrics.MODELS, start);
+		publishColumn(index);
+	}
 
+	/**
+	 * Publishes the c'th column once its models are complete. While this
+	 * Matrix is being counted, notifies the listener so that the column is
+	 * displayed right away.
+	 */
+	private void publishColumn(int c) {
+		synchronized (this) {
+			published[c] = true;
+		}
+		if (streaming && listener != null) {
+			listener.matrixChanged(this);
+		}
 	}
 
 	/**
@@ -167,66 +272,390 @@ public class Matrix {
 
 	/**
 	 * Multi-thread factory method for creating new Matrix. Recounts and
-	 * regenerates histogram models.
+	 * regenerates histogram models. When there are many more examples than
+	 * counting threads, columns are counted in cache-sized blocks with a single
+	 * pass through the examples per block, instead of one pass per column. When
+	 * there are too few columns or blocks to keep all threads busy, the
+	 * examples are partitioned among the threads instead. If counting from
+	 * bitmap intersections reads less than a scan, as for small selections,
+	 * columns are counted from intersections instead. Every column is shown by
+	 * the listener as soon as it is counted. Returns as soon as the last
+	 * counting task completes.
 	 * 
 	 * @param view
 	 *            the ViewState to create a Matrix from
+	 * @param op
+	 *            the context of the operation
 	 * @return the Matrix
 	 * @throws UserCancelledException
 	 */
-	public static Matrix createMatrix(ViewState view)
+	public static Matrix createMatrix(ViewState view, OperationContext op)
 			throws UserCancelledException {
+		preempt(op);
+		PairCube cube = PairCube.peek(view.getExampleSet());
+		if (cube != null) {
+			op.setDidNotRun();
+			return createMatrixFromCube(view, cube);
+		}
+		// headless operations, e.g. of a PatternEngine, leave count files alone
+		Matrix stored = op.isHeadless() ? null : CountFile.load(view);
+		if (stored != null) {
+			op.setDidNotRun();
+			return stored;
+		}
+		int numRows = view.getExampleSet().size();
+		if (PatternExplorerSettings.SAMPLING_ON && !op.isHeadless()
+				&& numRows >= PatternExplorerSettings.SAMPLE_MIN_ROWS) {
+			return new SampledCounter(view, op).start();
+		}
 		Matrix matrix = new Matrix(view);
 
-		// allocate threads
+		// choose the counting strategy
 		int numCols = view.getMatrixInfo().getNumAttributes();
-		int numThreads = Math.min(numCols, PatternExplorerOperator
-				.getParamCores());
-		// int numThreads = 1;
-		long begin;
-		if (numThreads > 1) {
-
-			Barrier barrier = new Barrier(numThreads);
-
-			// construct threads
-			CounterThread[] threads = new CounterThread[numThreads];
-			for (int i = 0; i < threads.length; i++) {
-				threads[i] = new CounterThread(i, numThreads, view, matrix,
-						barrier);
+		int cores = PatternExplorerParameters.getCores();
+		int[][] blocks = null;
+		int numUnits = numCols;
+		if (numRows >= (long) PatternExplorerSettings.FUSED_ROWS_PER_THREAD
+				* Math.max(cores, 1)) {
+			blocks = CounterThread.partitionColumns(matrix.info, matrix.target);
+			numUnits = blocks.length;
+		}
+		int numPartitions = Math.min(cores, numRows
+				/ PatternExplorerSettings.ROWS_PER_PARTITION);
+		boolean partitionRows = numUnits < 2 * cores
+				&& numPartitions > 1
+				&& CounterThread.tableBytes(matrix.info, matrix.target)
+						* numPartitions <= PatternExplorerSettings.PARTITION_TABLE_BYTES;
+
+		long begin = System.nanoTime();//currentTimeMillis();
+		matrix.streaming = !op.isSpeculative() && !op.isHeadless();
+		matrix.listener = op.getMatrixListener();
+		if (matrix.listener != null && matrix.streaming) {
+			matrix.listener.matrixStarted(matrix);
+		}
+		CounterThread counter = new CounterThread(view, matrix, op);
+		if (counter.hasSparseColumns()) {
+			partitionRows = false;
+		}
+		boolean intersect = counter.prepareIntersections() < (long) numRows
+				* numCols;
+		if (intersect) {
+			blocks = null;
+			numUnits = numCols;
+			partitionRows = false;
+		}
+		try {
+			if (partitionRows) {
+				if (blocks == null) {
+					blocks = CounterThread.partitionColumns(matrix.info,
+							matrix.target);
+				}
+				op.setTotalWork((long) numCols * numRows);
+				counter.publishTables(CounterPool.get(op).invoke(
+						counter.new PartitionTask(blocks, numPartitions, 0,
+								numPartitions)));
+			} else {
+				op.setTotalWork((long) numCols * numRows);
+				CounterPool.get(op).invoke(
+						counter.new ColumnTask(blocks, 0, numUnits));
+			}
+		} catch (CancellationException e) {
+			throw new UserCancelledException(e.getMessage());
+		}
+		//long time = System.currentTimeMillis() - begin;
+		double time = (System.nanoTime() - begin) / 1000000.0;
+		Log.dbg("[ --- time: " + time + " ms, "
+				+ (intersect ? "bitmaps" : CountKernel.get().getName())
+				+ (blocks == null ? "" : ", " + blocks.length + " blocks")
+				+ (partitionRows ? ", " + numPartitions + " partitions" : "")
+				+ " --- ]");
+		matrix.streaming = false;
+		matrix.complete();
+		if (!op.isHeadless()) {
+			CountFile.save(view, matrix);
+		}
+		return matrix;
+	}
+
+	/**
+	 * Used to create a new Matrix after a target change. The examples have
+	 * not changed, so the counts are assembled from the PairCube of the
+	 * examples if it has been built. Otherwise recounts, and starts building
+	 * the cube in the background for the next target change.
+	 * 
+	 * @param view
+	 *            the ViewState with the new target
+	 * @param op
+	 *            the context of the operation
+	 * @return the Matrix
+	 * @throws UserCancelledException
+	 */
+	public static Matrix createTargetChangedMatrix(ViewState view,
+			OperationContext op) throws UserCancelledException {
+		Matrix matrix = createMatrix(view, op);
+		if (!op.isHeadless()) {
+			PairCube.buildInBackground(view.getExampleSet());
+		}
+		return matrix;
+	}
+
+	private static Matrix createMatrixFromCube(ViewState view, PairCube cube) {
+		Matrix matrix = new Matrix(view);
+		String target = view.getTarget();
+		matrix.addTargetCounts(cube.getCounts(target));
+		for (int c = ATTRIB_OFFSET; c < matrix.length; c++) {
+			int a = matrix.info.getOrdinal(c - ATTRIB_OFFSET,
+					matrix.targetOrdinal);
+			matrix.addAttributeCounts(a, cube.getCounts(target, matrix.info
+					.getAttribute(a).getName()));
+		}
+		Log.dbg("[ --- assembled from cube --- ]");
+		return matrix.complete();
+	}
+
+	/**
+	 * Used to create a new Matrix after drilling down on a value of the
+	 * target. The examples are filtered on the target itself, so the counts
+	 * of the remaining target values are unchanged. The new Matrix is made
+	 * from the uncompacted counts of the specified Matrix, which are compacted
+	 * by the drilled down MatrixInfo of the view. Falls back to recounting
+	 * unless the examples of the view were filtered on the target from exactly
+	 * the examples of the specified Matrix.
+	 * 
+	 * @param m
+	 *            the Matrix of the view drilled down from
+	 * @param view
+	 *            the drilled down view
+	 * @param op
+	 *            the context of the operation
+	 * @return the Matrix
+	 * @throws UserCancelledException
+	 */
+	public static Matrix createDrilledDownMatrix(Matrix m, ViewState view,
+			OperationContext op) throws UserCancelledException {
+		preempt(op);
+		String target = view.getTarget();
+		if (m == null || m.isSampled() || !m.view.getTarget().equals(target)
+				|| !view.getExampleSet().isFilteredFrom(
+						m.view.getExampleSet(), target)) {
+			return createMatrix(view, op);
+		}
+		Matrix matrix = new Matrix(view);
+		matrix.addTargetCounts(m.countsLong[TARGET_COL][0]);
+		for (int c = ATTRIB_OFFSET; c < matrix.length; c++) {
+			int a = matrix.info.getOrdinal(c - ATTRIB_OFFSET,
+					matrix.targetOrdinal);
+			if (m.sparseLong[c] != null) {
+				matrix.addAttributeCounts(a, m.sparseLong[c]);
+			} else {
+				matrix.addAttributeCounts(a, m.countsLong[c]);
+			}
+		}
+		op.setDidNotRun();
+		Log.dbg("[ --- derived from parent counts --- ]");
+		return matrix.complete();
+	}
+
+	/**
+	 * Stops the background work of the current view of the panel requesting a
+	 * foreground operation, which the operation replaces: refining its
+	 * current matrix and any speculative computation of another view. The
+	 * background work of other panels goes on.
+	 */
+	private static void preempt(OperationContext op) {
+		if (!op.isSpeculative() && !op.isHeadless()) {
+			Speculator.cancel(op.getMatrixListener());
+			SampledCounter.stopRefining(op.getMatrixListener());
+		}
+	}
+
+	/**
+	 * Gets the view this Matrix shows.
+	 * 
+	 * @return the ViewState
+	 */
+	public ViewState getView() {
+		return view;
+	}
+
+	/**
+	 * Creates a copy of this Matrix for an equivalent view, sharing its
+	 * models and counts. Called by MatrixCache, whose matrices may still be
+	 * shown by the views they were counted for.
+	 * 
+	 * @param view
+	 *            an equivalent of the view of this Matrix
+	 * @return the copy
+	 */
+	Matrix copyFor(ViewState view) {
+		Matrix matrix = new Matrix(this);
+		matrix.rebind(view);
+		return matrix.complete();
+	}
+
+	/**
+	 * Moves a speculatively computed Matrix to the view it was requested for.
+	 * Called by Speculator.
+	 * 
+	 * @param view
+	 *            an equivalent of the view the Matrix was computed for
+	 */
+	void rebind(ViewState view) {
+		this.view = view;
+		this.info = view.getMatrixInfo();
+	}
+
+	/**
+	 * Creates a new Matrix from the counts of a sample of the examples,
+	 * scaling them up by the specified factor. Called by SampledCounter.
+	 * 
+	 * @param view
+	 * @param tables
+	 *            the counts of every column, indexed by attribute index
+	 * @param scale
+	 *            the number of examples divided by the size of the sample
+	 * @return the Matrix
+	 */
+	static Matrix createSampledMatrix(ViewState view, int[][][] tables,
+			double scale) {
+		Matrix matrix = new Matrix(view);
+		matrix.scale = scale;
+		for (int i = 0; i < tables.length; i++) {
+			int[][] counts = tables[i];
+			if (scale != 1) {
+				counts = new int[tables[i].length][];
+				for (int t = 0; t < counts.length; t++) {
+					counts[t] = new int[tables[i][t].length];
+					for (int v = 0; v < counts[t].length; v++) {
+						counts[t][v] = (int) Math.round(tables[i][t][v] * scale);
+					}
+				}
 			}
-			
-			ProgressManager.setTotalWork(numCols);
-			begin = System.nanoTime();//currentTimeMillis();
+			if (i == matrix.targetOrdinal) {
+				matrix.addTargetCounts(counts[0]);
+			} else {
+				matrix.addAttributeCounts(i, counts);
+			}
+		}
+		return matrix.complete();
+	}
 
-			// start threads
-			for (int i = 0; i < threads.length; i++) {
-				threads[i].start();
+	/**
+	 * Creates a new Matrix from counts read from a CountFile.
+	 * 
+	 * @param view
+	 * @param tables
+	 *            the counts of every dense column, indexed by attribute index
+	 * @param sparse
+	 *            the counts of every sparse column, indexed by attribute index
+	 * @return the Matrix
+	 */
+	static Matrix createStoredMatrix(ViewState view, int[][][] tables,
+			SparseTable[] sparse) {
+		Matrix matrix = new Matrix(view);
+		for (int i = 0; i < tables.length; i++) {
+			if (i == matrix.targetOrdinal) {
+				matrix.addTargetCounts(tables[i][0]);
+			} else if (sparse[i] != null) {
+				matrix.addAttributeCounts(i, sparse[i]);
+			} else {
+				matrix.addAttributeCounts(i, tables[i]);
 			}
+		}
+		return matrix.complete();
+	}
+
+	/**
+	 * Gets the uncompacted counts of an attribute. Called by CountFile.
+	 * 
+	 * @param a
+	 * @return the counts, or null if they are sparse
+	 */
+	synchronized int[][] getCountsLong(Attribute a) {
+		return countsLong[(a == target) ? TARGET_COL : info.getCol(info
+				.getOrdinal(a), targetOrdinal) + 1];
+	}
+
+	/**
+	 * Gets the uncompacted counts of a sparse attribute. Called by CountFile.
+	 * 
+	 * @param a
+	 * @return the counts, or null if they are dense
+	 */
+	synchronized SparseTable getSparseCountsLong(Attribute a) {
+		return (a == target) ? null : sparseLong[info.getCol(info
+				.getOrdinal(a), targetOrdinal) + 1];
+	}
 
-			while (!barrier.isDone()) {
-				try {
-					Thread.sleep(SLEEP_TIME);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+	/**
+	 * Replaces the models and counts of this Matrix with those of a
+	 * refined one, and notifies the listener so that the display is
+	 * repainted.
+	 * 
+	 * @param refined
+	 *            a Matrix of the same view counted from a larger sample
+	 */
+	synchronized void refine(Matrix refined) {
+		models = refined.models;
+		countsLong = refined.countsLong;
+		sparseLong = refined.sparseLong;
+		scale = refined.scale;
+		published = refined.published;
+		if (listener != null) {
+			listener.matrixChanged(this);
+		}
+	}
+
+	/**
+	 * Sets the listener notified whenever one of the columns of this Matrix is
+	 * counted, or it is refined from a larger sample. Called by
+	 * SampledCounter.
+	 * 
+	 * @param listener
+	 *            the listener of the operation counting this Matrix
+	 */
+	void setMatrixListener(MatrixListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Estimates the memory retained by this Matrix: its uncompacted counts,
+	 * the compacted and full counts of its models, and the models themselves.
+	 * 
+	 * @return the estimated size in bytes
+	 */
+	public long estimateBytes() {
+		long cells = 0;
+		for (int[][] counts : countsLong) {
+			if (counts != null) {
+				for (int[] row : counts) {
+					cells += row.length;
 				}
 			}
-		} else {
-			// do serial algorithm
-			begin = System.nanoTime();//currentTimeMillis();
-			ProgressManager.setTotalWork(numCols);
-			CounterThread serialThread = new CounterThread(0, numThreads, view,
-					matrix);
-			serialThread.count();
 		}
-		//long time = System.currentTimeMillis() - begin;
-		double time = (System.nanoTime() - begin) / 1000000.0;
-		Log.dbg("[ --- time: " + time + " ms --- ]");
-		return matrix.createHistograms();
+		long sparseBytes = 0;
+		for (SparseTable counts : sparseLong) {
+			if (counts != null) {
+				sparseBytes += counts.estimateBytes();
+			}
+		}
+		return 3 * BYTES_PER_COUNT * cells + sparseBytes
+				+ (long) MODEL_BYTES * length * height;
+	}
+
+	/**
+	 * Tests if this Matrix was counted from a sample of the examples.
+	 * 
+	 * @return True if the counts are scaled up from a sample
+	 */
+	public boolean isSampled() {
+		return scale != 1;
 	}
 
 	/**
 	 * Used to create a new Matrix when recounting is not necessary, e.g. an
-	 * expand/contract operation.
+	 * expand/contract operation. A copy of a Matrix still refined from a
+	 * growing sample is refined as well.
 	 * 
 	 * @param m
 	 * @param info
@@ -236,14 +665,20 @@ public class Matrix {
 	 */
 	public static Matrix createMatrixII(Matrix m, MatrixInfo info,
 			ViewState view, String attribute) {
-		Matrix matrix = new Matrix(m);
-		matrix.info = info;
-		matrix.view = view;
-		return matrix.modifyExpand(attribute);
+		synchronized (m) {
+			Matrix matrix = new Matrix(m);
+			matrix.info = info;
+			matrix.view = view;
+			matrix.modifyExpand(attribute);
+			if (m.isSampled()) {
+				SampledCounter.follow(m, matrix);
+			}
+			return matrix;
+		}
 	}
 
 	private Matrix modifyExpand(String attribute) {
-		int index = info.getCol(attribute, target) + 1;
+		int index = info.getCol(info.getOrdinal(attribute), targetOrdinal) + 1;
 		models[index][ATTRIB_ROW] = ((AttributeHistogramModel) models[index][ATTRIB_ROW])
 				.modifyExpand(info);
 		AttributeHistogramModel aModel = ((AttributeHistogramModel) models[index][ATTRIB_ROW]);
@@ -251,84 +686,117 @@ public class Matrix {
 		for (int i = ATTRIB_OFFSET; i < models[index].length; i++) {
 			models[index][i] = ((DefaultHistogramModel) models[index][i])
 					.modifyExpand(visibleIndices, info);
-			((DefaultHistogramModel) models[index][i]).setIsSignificant(aModel);
+			((DefaultHistogramModel) models[index][i]).setIsSignificant(aModel,
+					scale);
 		}
-		return createHistograms();
+		return complete();
 	}
 
 	/**
-	 * Generates histograms from the matrixInfo and exampleSet
+	 * Publishes all columns not published yet.
 	 * 
-	 * @return
+	 * @return this Matrix
 	 */
-	private Matrix createHistograms() {
-		graphs = new CanvasComponent[length][height];
+	private synchronized Matrix complete() {
 		for (int c = 0; c < length; c++) {
-			for (int r = 0; r < height; r++) {
-				if (c == 0 && r == 0) {
-					// top-left
-					graphs[c][r] = new CornerPanel();
-				} else if (c == 0) {
-					// left col
-					graphs[c][r] = new TargetHistogram(models[c][r]);
-				} else if (r == 0) {
-					// top row
-					graphs[c][r] = new AttributeHistogram(models[c][r]);
-				} else {
-					// body
-					graphs[c][r] = new DefaultHistogram(models[c][r]);
-				}
-			}
+			published[c] = true;
 		}
 		return this;
 	}
 
 	/**
 	 * Generates an example set with fewer rows that the argument. Used for
-	 * drill down operations. Creates a mask and applies to the current
-	 * ExampleSet.
+	 * drill down operations. The mask on the encoded column of the clicked
+	 * attribute is only applied once the rows are needed, see
+	 * EncodedExampleSet. If the count of the pair was scaled up from a sample,
+	 * the mask is applied right away to count the examples exactly.
 	 * 
 	 * @param exampleSet
 	 * @param avp
 	 * @param removeSingle
 	 * @return
 	 */
-	public static ExampleSet createDrilledDownExampleSet(ExampleSet exampleSet,
-			AttributeValuePair avp, boolean removeSingle) {
+	public static EncodedExampleSet createDrilledDownExampleSet(
+			EncodedExampleSet exampleSet, AttributeValuePair avp,
+			boolean removeSingle) {
 
 		String feature = avp.getAttribute();
-		String value = avp.getValue();
-		int count = avp.getCount();
-		Attribute clickedFeature = exampleSet.getAttributes().get(feature);
-		int mapSize = removeSingle ? exampleSet.size() - count : count;
-		int[] mapping = new int[mapSize];
-
-		int map_i = 0;
-		int map_e = 0;
-		for (Example e : exampleSet) {
-			boolean match = e.getValueAsString(clickedFeature).equals(value);
-			if (removeSingle) {
-				if (!match) {
-					mapping[map_i++] = map_e;
-				}
-			} else {
-				if (match) {
-					mapping[map_i++] = map_e;
-				}
-			}
-			map_e++;
+		int value = exampleSet.getStore().getAttribute(feature).getMapping()
+				.getIndex(avp.getValue());
+		int size = -1;
+		if (avp.isExact()) {
+			int count = avp.getCount();
+			size = removeSingle ? exampleSet.size() - count : count;
 		}
+		return new EncodedExampleSet(exampleSet, feature, value, removeSingle,
+				size);
+	}
+
+	/**
+	 * Gets the models of the c'th column, the attribute or target model first.
+	 * While this Matrix is being counted, columns not counted yet are null.
+	 * The models of a column are replaced, not changed, when this Matrix is
+	 * refined.
+	 * 
+	 * @param c
+	 * @return the models, or null if the column is not counted yet
+	 */
+	public synchronized HistogramModel[] getColumn(int c) {
+		return published[c] ? models[c] : null;
+	}
 
-		return new MappedExampleSet(exampleSet, mapping);
+	/**
+	 * Gets the number of columns of this Matrix, including the target column.
+	 * 
+	 * @return the number of columns
+	 */
+	public int getLength() {
+		return length;
 	}
 
 	/**
-	 * Gets the matrix of canvas components.
+	 * Gets the number of rows of this Matrix, including the attribute row.
 	 * 
-	 * @return the CanvasComponents
+	 * @return the number of rows
 	 */
-	public CanvasComponent[][] getGraphs() {
-		return graphs;
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the counts and significances of this Matrix, without the
+	 * compaction of the display. The Matrix must be completely counted.
+	 * 
+	 * @return the MatrixResult
+	 */
+	public synchronized MatrixResult getResult() {
+		String[] targetValues = new String[height - ATTRIB_OFFSET];
+		for (int t = 0; t < targetValues.length; t++) {
+			targetValues[t] = info.getValue(targetOrdinal, t);
+		}
+		int[] targetCounts = info.compact(targetOrdinal,
+				countsLong[TARGET_COL][0]);
+		int numAttributes = length - ATTRIB_OFFSET;
+		String[] attributes = new String[numAttributes];
+		String[][] values = new String[numAttributes][];
+		int[][][] counts = new int[numAttributes][][];
+		SparseTable[] sparse = new SparseTable[numAttributes];
+		for (int c = ATTRIB_OFFSET; c < length; c++) {
+			int k = c - ATTRIB_OFFSET;
+			int a = info.getOrdinal(k, targetOrdinal);
+			attributes[k] = info.getAttribute(a).getName();
+			values[k] = new String[info.getNumValuesTarget(a)];
+			for (int v = 0; v < values[k].length; v++) {
+				values[k][v] = info.getValue(a, v);
+			}
+			if (sparseLong[c] != null) {
+				sparse[k] = info.compact(targetOrdinal, a, sparseLong[c]);
+			} else {
+				counts[k] = info.compact(targetOrdinal, a, countsLong[c]);
+			}
+		}
+		return new MatrixResult(target.getName(), targetValues, targetCounts,
+				attributes, values, counts, sparse, scale);
 	}
 
 	/**
@@ -338,8 +806,7 @@ public class Matrix {
 	 * @return
 	 */
 	public int getColSize(int i) {
-		Attribute a = info.getAttribute(i, target);
-		return info.getNumValues(a);
+		return info.getNumValues(info.getOrdinal(i, targetOrdinal));
 	}
 
 	/**
@@ -359,6 +826,9 @@ public class Matrix {
 		s += numFeatures + " predictors  //  ";
 		s += numExamples + " examples  //  ";
 		s += numValues + " total values";
+		if (isSampled()) {
+			s += "  //  " + (int) Math.ceil(100 / scale) + "% sample";
+		}
 		
 		return s;
 	}
@@ -0,0 +1,184 @@
+package y11.matrix;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import y11.data.EncodedExampleSet;
+import y11.logging.Log;
+import y11.manager.state.ViewState;
+import y11.metrics.MatrixCacheEvent;
+import y11.operator.PatternExplorerSettings;
+
+/**
+ * Caches matrices by the view they show, so that a view reached again by
+ * another path, e.g. changing the target from A to B and back to A, is not
+ * counted again. A view is identified by the fingerprint of its store, its
+ * selection of examples, its target and the display state of its columns, so
+ * that the matrices of several panels are cached side by side. The least
+ * recently used matrices are evicted once their estimated size exceeds
+ * PatternExplorerSettings.MATRIX_CACHE_BYTES, or MATRIX_CACHE_LEAN_BYTES
+ * while memory is low. Matrices counted from a sample are not cached, since
+ * they are refined in place.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class MatrixCache {
+
+	private static LinkedHashMap<Key, Matrix> matrices = new LinkedHashMap<Key, Matrix>(
+			16, 0.75f, true); // in access order
+	private static long bytes;
+	private static boolean lowMemory;
+
+	/**
+	 * Gets the cached Matrix of the specified view. The Matrix is copied for
+	 * the view, since the view it was cached for may still show it. Every
+	 * lookup is recorded as a MatrixCacheEvent.
+	 * 
+	 * @param view
+	 * @return the Matrix, or null if it is not cached
+	 */
+	public static synchronized Matrix get(ViewState view) {
+		Key key = getKey(view);
+		Matrix matrix = null;
+		if (key != null) {
+			matrix = matrices.get(key);
+		}
+		if (matrix != null) {
+			matrix = matrix.copyFor(view);
+			Log.dbg("[ --- matrix from cache --- ]");
+		}
+		MatrixCacheEvent event = new MatrixCacheEvent();
+		if (event.shouldCommit()) {
+			event.set(matrix != null, view.getTarget(), (key == null) ? null
+					: key.toString());
+			event.commit();
+		}
+		return matrix;
+	}
+
+	/**
+	 * Caches the Matrix of the specified view, evicting the least recently
+	 * used matrices if the cache gets too large.
+	 * 
+	 * @param view
+	 * @param matrix
+	 */
+	public static synchronized void put(ViewState view, Matrix matrix) {
+		Key key = getKey(view);
+		long size = matrix.estimateBytes();
+		if (key == null || matrix.isSampled() || size > getBudget()) {
+			return;
+		}
+		Matrix old = matrices.put(key, matrix);
+		if (old != null) {
+			bytes -= old.estimateBytes();
+		}
+		bytes += size;
+		evict();
+	}
+
+	/**
+	 * Sets whether memory is low, e.g. while the LeanViewLoader recounts
+	 * matrices to save memory. While memory is low, the cache is kept within
+	 * PatternExplorerSettings.MATRIX_CACHE_LEAN_BYTES.
+	 * 
+	 * @param low
+	 *            true if memory is low
+	 */
+	public static synchronized void setLowMemory(boolean low) {
+		lowMemory = low;
+		evict();
+	}
+
+	/**
+	 * Removes all matrices from the cache.
+	 */
+	public static synchronized void clear() {
+		matrices.clear();
+		bytes = 0;
+	}
+
+	private static long getBudget() {
+		return lowMemory ? PatternExplorerSettings.MATRIX_CACHE_LEAN_BYTES
+				: PatternExplorerSettings.MATRIX_CACHE_BYTES;
+	}
+
+	/**
+	 * Evicts the least recently used matrices until the cache fits in its
+	 * budget.
+	 */
+	private static void evict() {
+		Iterator<Matrix> lru = matrices.values().iterator();
+		while (bytes > getBudget()) {
+			bytes -= lru.next().estimateBytes();
+			lru.remove();
+		}
+	}
+
+	/**
+	 * Gets the key of the view a Matrix shows, see
+	 * ColumnStore.getFingerprint(), EncodedExampleSet.getSelectionKey() and
+	 * MatrixInfo.getFingerprint().
+	 * 
+	 * @return the key, or null if the view can not be cached
+	 */
+	private static Key getKey(ViewState view) {
+		EncodedExampleSet exampleSet = view.getExampleSet();
+		if (exampleSet.getSelectionKey() == null) {
+			return null;
+		}
+		return new Key(exampleSet.getStore().getFingerprint(), exampleSet
+				.getSelectionKey(), view.getTarget(), view.getMatrixInfo()
+				.getFingerprint());
+	}
+
+	/**
+	 * Identifies the view a Matrix shows. Its parts are built once by the
+	 * examples and the MatrixInfo of the view, and strings cache their hash
+	 * codes, so a key costs the same for any number of columns. Stores with
+	 * the same fingerprint have the same examples, so their views share
+	 * matrices.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private static class Key {
+
+		private final long store;
+		private final String selection;
+		private final String target;
+		private final String columns;
+
+		Key(long store, String selection, String target, String columns) {
+			this.store = store;
+			this.selection = selection;
+			this.target = target;
+			this.columns = columns;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return store == k.store && selection.equals(k.selection)
+					&& target.equals(k.target) && columns.equals(k.columns);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = (int) (store ^ (store >>> 32));
+			hash = hash * 31 + selection.hashCode();
+			hash = hash * 31 + target.hashCode();
+			return hash * 31 + columns.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return Long.toHexString(store) + "|" + selection + "|" + target
+					+ "|" + columns;
+		}
+	}
+}
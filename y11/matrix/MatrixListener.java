@@ -0,0 +1,33 @@
+package y11.matrix;
+
+/**
+ * Defines the interface for objects that should be notified while a Matrix
+ * is being counted, so that finished columns can be displayed before the
+ * whole Matrix is done. A listener is attached to the OperationContext of
+ * every operation of its panel. Its methods are called on the counting
+ * threads, so they must pass any change of the display to the event dispatch
+ * thread.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public interface MatrixListener {
+
+	/**
+	 * Called when counting of a new Matrix starts, before any of its columns
+	 * have been published.
+	 * 
+	 * @param matrix
+	 *            the Matrix being counted
+	 */
+	public void matrixStarted(Matrix matrix);
+
+	/**
+	 * Called whenever columns of a Matrix are published, either while it is
+	 * being counted or when it is refined from a larger sample.
+	 * 
+	 * @param matrix
+	 *            the Matrix that changed
+	 */
+	public void matrixChanged(Matrix matrix);
+}
@@ -0,0 +1,198 @@
+package y11.matrix;
+
+import y11.data.SparseTable;
+import y11.models.histogram.DefaultHistogramModel;
+
+/**
+ * The counts and significances of a complete Matrix, independent of how they
+ * are displayed: the count of every value of every attribute for every target
+ * value, without the compaction of the display. Results are immutable, so
+ * they can be read from any thread, see PatternEngine.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class MatrixResult {
+
+	private String target;
+	private String[] targetValues;
+	private int[] targetCounts;
+	private int numExamples;
+	private String[] attributes; // the predictors, in display order
+	private String[][] values;
+	private int[][] valueCounts; // the counts of every value over all targets
+	private int[][][] counts; // the counts of dense columns
+	private SparseTable[] sparse; // the counts of sparse columns
+	private double scale;
+
+	/**
+	 * Creates a new MatrixResult. Called by Matrix.
+	 */
+	MatrixResult(String target, String[] targetValues, int[] targetCounts,
+			String[] attributes, String[][] values, int[][][] counts,
+			SparseTable[] sparse, double scale) {
+		this.target = target;
+		this.targetValues = targetValues;
+		this.targetCounts = targetCounts;
+		this.attributes = attributes;
+		this.values = values;
+		this.counts = counts;
+		this.sparse = sparse;
+		this.scale = scale;
+		for (int count : targetCounts) {
+			numExamples += count;
+		}
+		valueCounts = new int[attributes.length][];
+		for (int a = 0; a < attributes.length; a++) {
+			if (sparse[a] != null) {
+				valueCounts[a] = sparse[a].getColumnSums();
+			} else {
+				valueCounts[a] = new int[values[a].length];
+				for (int[] row : counts[a]) {
+					for (int v = 0; v < row.length; v++) {
+						valueCounts[a][v] += row[v];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of the target attribute.
+	 * 
+	 * @return the target
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * Gets the number of examples counted.
+	 * 
+	 * @return the number of examples
+	 */
+	public int getNumExamples() {
+		return numExamples;
+	}
+
+	/**
+	 * Gets the number of values of the target attribute.
+	 * 
+	 * @return the number of target values
+	 */
+	public int getNumTargetValues() {
+		return targetValues.length;
+	}
+
+	/**
+	 * Gets the t'th value of the target attribute.
+	 * 
+	 * @param t
+	 * @return the target value
+	 */
+	public String getTargetValue(int t) {
+		return targetValues[t];
+	}
+
+	/**
+	 * Gets the number of examples with the t'th target value.
+	 * 
+	 * @param t
+	 * @return the count
+	 */
+	public int getTargetCount(int t) {
+		return targetCounts[t];
+	}
+
+	/**
+	 * Gets the number of predictor attributes, i.e. all attributes but the
+	 * target.
+	 * 
+	 * @return the number of attributes
+	 */
+	public int getNumAttributes() {
+		return attributes.length;
+	}
+
+	/**
+	 * Gets the name of the a'th predictor attribute.
+	 * 
+	 * @param a
+	 * @return the name
+	 */
+	public String getAttribute(int a) {
+		return attributes[a];
+	}
+
+	/**
+	 * Gets the number of values of the a'th predictor attribute.
+	 * 
+	 * @param a
+	 * @return the number of values
+	 */
+	public int getNumValues(int a) {
+		return values[a].length;
+	}
+
+	/**
+	 * Gets the v'th value of the a'th predictor attribute.
+	 * 
+	 * @param a
+	 * @param v
+	 * @return the value
+	 */
+	public String getValue(int a, int v) {
+		return values[a][v];
+	}
+
+	/**
+	 * Gets the number of examples with the v'th value of the a'th predictor
+	 * attribute, over all target values.
+	 * 
+	 * @param a
+	 * @param v
+	 * @return the count
+	 */
+	public int getValueCount(int a, int v) {
+		return valueCounts[a][v];
+	}
+
+	/**
+	 * Gets the number of examples with the t'th target value and the v'th
+	 * value of the a'th predictor attribute.
+	 * 
+	 * @param a
+	 * @param t
+	 * @param v
+	 * @return the count
+	 */
+	public int getCount(int a, int t, int v) {
+		if (sparse[a] != null) {
+			return sparse[a].get(t, v);
+		}
+		return counts[a][t][v];
+	}
+
+	/**
+	 * Gets the significance (z-score) of a count, as shown by the histogram
+	 * display, see DefaultHistogramModel.
+	 * 
+	 * @param a
+	 * @param t
+	 * @param v
+	 * @return the z-score
+	 */
+	public double getSigma(int a, int t, int v) {
+		return DefaultHistogramModel.computeSigma(getCount(a, t, v),
+				targetCounts[t], valueCounts[a][v], numExamples, scale);
+	}
+
+	/**
+	 * Tests if the counts were scaled up from a sample of the examples.
+	 * 
+	 * @return True if the counts are not exact
+	 */
+	public boolean isSampled() {
+		return scale != 1;
+	}
+}
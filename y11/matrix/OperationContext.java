@@ -0,0 +1,233 @@
+package y11.matrix;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import y11.logging.Log;
+
+/**
+ * Holds the progress and cancellation state of one long-running operation. A
+ * new context is created for every operation and passed down to the counters
+ * doing its work, so that several operations, e.g. those of two explorer
+ * panels, can run at the same time without sharing state. Counting measures
+ * its work in examples counted per column, and reports it every few thousand
+ * examples from all counting threads at once, so progress is added to a
+ * striped counter instead of a synchronized one. The context also carries the
+ * MatrixListener of the panel that requested the operation, so that every
+ * panel is only shown the matrices it counts.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class OperationContext {
+
+	/**
+	 * The measure of operation completeness.
+	 */
+	public static final int COMPLETE = 100;
+
+	private volatile long totalWork;
+	private final LongAdder progress = new LongAdder();
+	private volatile boolean canceled = false;
+	private volatile boolean didNotRun = false;
+	private volatile double sampleFraction = 1;
+	private boolean speculative; // true if nobody waits for the result
+	private boolean headless; // true if the result is not displayed
+	private volatile MatrixListener listener; // of the requesting panel
+
+	/**
+	 * Creates a new OperationContext for an operation requested by the user.
+	 */
+	public OperationContext() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new OperationContext.
+	 * 
+	 * @param speculative
+	 *            true if the operation computes a view the user has not
+	 *            requested yet, see Speculator
+	 */
+	public OperationContext(boolean speculative) {
+		this.speculative = speculative;
+	}
+
+	/**
+	 * Creates a new OperationContext for an operation whose result is not
+	 * displayed, e.g. one run by a PatternEngine. Headless operations count
+	 * all examples instead of a sample, and leave the display, the
+	 * refinement of the current matrix, any speculation and the count files
+	 * alone.
+	 * 
+	 * @return the OperationContext
+	 */
+	public static OperationContext createHeadless() {
+		OperationContext op = new OperationContext();
+		op.headless = true;
+		return op;
+	}
+
+	/**
+	 * Tests if the result of the operation is not displayed.
+	 * 
+	 * @return true if the operation is headless
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * Tests if the operation computes a view the user has not requested yet.
+	 * Speculative operations leave the display and the refinement of the
+	 * current matrix alone.
+	 * 
+	 * @return true if the operation is speculative
+	 */
+	public boolean isSpeculative() {
+		return speculative;
+	}
+
+	/**
+	 * Sets the listener notified while the matrices of the operation are
+	 * counted, see Matrix.
+	 * 
+	 * @param listener
+	 *            the listener of the panel that requested the operation
+	 */
+	public void setMatrixListener(MatrixListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the listener notified while the matrices of the operation are
+	 * counted.
+	 * 
+	 * @return the listener, or null if the matrices are not displayed
+	 */
+	public MatrixListener getMatrixListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the total amount of work for the ensuing operation. Used by the
+	 * progress bar.
+	 * 
+	 * @param work
+	 *            the total work, usually the number of examples times the
+	 *            number of columns to count
+	 */
+	public void setTotalWork(long work) {
+		totalWork = work;
+	}
+
+	/**
+	 * Gets the total amount of work of the operation.
+	 * 
+	 * @return the total work, 0 if not known yet
+	 */
+	public long getTotalWork() {
+		return totalWork;
+	}
+
+	/**
+	 * Gets the amount of work done so far.
+	 * 
+	 * @return the work done
+	 */
+	public long getWorkDone() {
+		return progress.sum();
+	}
+
+	/**
+	 * Increases the progress by an increment.
+	 * 
+	 * @throws UserCancelledException
+	 *             if the user cancelled the operation
+	 */
+	public void makeProgress() throws UserCancelledException {
+		makeProgress(1);
+	}
+
+	/**
+	 * Increases the progress by the specified amount of work when a
+	 * CounterThread has counted a number of examples.
+	 * 
+	 * @param work
+	 *            the work done, usually the number of examples counted times
+	 *            the number of columns they were counted for
+	 * @throws UserCancelledException
+	 *             if the user cancelled the operation
+	 */
+	public void makeProgress(long work) throws UserCancelledException {
+		if (canceled) {
+			throw new UserCancelledException("User cancelled operation!");
+		}
+		progress.add(work);
+	}
+
+	/**
+	 * Sets the fraction of the examples counted so far, when counting a
+	 * growing sample. Used by the progress bar.
+	 * 
+	 * @param fraction
+	 *            the sample fraction, 1 if all examples are counted
+	 */
+	public void setSampleFraction(double fraction) {
+		sampleFraction = fraction;
+	}
+
+	/**
+	 * Gets the fraction of the examples counted so far.
+	 * 
+	 * @return the sample fraction
+	 */
+	public double getSampleFraction() {
+		return sampleFraction;
+	}
+
+	/**
+	 * Returns the current progress. Used by the progress bar.
+	 * 
+	 * @return the current progress
+	 */
+	public int getProgress() {
+		return (int) (((double) progress.sum() / totalWork) * COMPLETE);
+	}
+
+	/**
+	 * Tests if the operation is complete.
+	 * 
+	 * @return true if the operation has completed
+	 */
+	public boolean isComplete() {
+		long done = progress.sum();
+		return ((done != 0) && (done == totalWork)) || didNotRun;
+	}
+
+	/**
+	 * Cancels the operation.
+	 */
+	public void cancel() {
+		canceled = true;
+		if (!speculative) {
+			Log.out(".. user cancelled the operation");
+		}
+	}
+
+	/**
+	 * Tests if the operation has been canceled.
+	 * 
+	 * @return true if the operation has been canceled.
+	 */
+	public boolean isCanceled() {
+		return canceled;
+	}
+
+	/**
+	 * Allows a client operation to notify the progress bar thread that the
+	 * operation is not a long-running one.
+	 */
+	public void setDidNotRun() {
+		didNotRun = true;
+	}
+}
@@ -0,0 +1,316 @@
+package y11.matrix;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+
+import y11.data.ColumnStore;
+import y11.data.EncodedColumn;
+import y11.data.EncodedExampleSet;
+import y11.logging.Log;
+import y11.operator.PatternExplorerParameters;
+import y11.operator.PatternExplorerSettings;
+
+/**
+ * The counts of every pair of columns of a set of examples. With the cube,
+ * the counts for any target can be assembled without reading the examples,
+ * so target changes no longer recount. Only the cube of the most recent set
+ * of examples is kept, and only if it fits in
+ * PatternExplorerSettings.CUBE_BYTES and costs at most
+ * PatternExplorerParameters.getCubeRecounts() recounts. Cubes are built in
+ * the background, one at a time, with every column counted against the
+ * columns after it by a task on the speculative pool of CounterPool, so that
+ * building uses the idle cores without holding up an operation of the user.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class PairCube {
+
+	private static final int BYTES_PER_COUNT = 4;
+	private static final int CHUNK_SIZE = 4096; // examples decoded at a time
+	private static final String THREAD_NAME = "PatternExplorer-Cube-Thread";
+
+	// waits for the cube being built, so that cubes are built one at a time
+	private static final ExecutorService BUILDER = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, THREAD_NAME);
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+
+	private static EncodedExampleSet cachedSet;
+	private static PairCube cached;
+	private static EncodedExampleSet buildingSet; // built in the background
+	private static OperationContext building;
+
+	private EncodedExampleSet exampleSet;
+	private ColumnStore store;
+	private int numColumns;
+	private int[][] margins; // counts of every column
+	private int[][][][] pairs; // counts of columns i < j, at [i][j - i - 1]
+
+	private PairCube(EncodedExampleSet exampleSet) {
+		this.exampleSet = exampleSet;
+		this.store = exampleSet.getStore();
+		this.numColumns = store.getNumColumns();
+		margins = new int[numColumns][];
+		pairs = new int[numColumns][][][];
+		for (int i = 0; i < numColumns; i++) {
+			int iVals = getNumValues(i);
+			margins[i] = new int[iVals];
+			pairs[i] = new int[numColumns - i - 1][][];
+			for (int j = i + 1; j < numColumns; j++) {
+				pairs[i][j - i - 1] = new int[iVals][getNumValues(j)];
+			}
+		}
+	}
+
+	/**
+	 * Gets the cube of the specified examples if it has been built already.
+	 * 
+	 * @param exampleSet
+	 * @return the cube, or null if there is none
+	 */
+	public static synchronized PairCube peek(EncodedExampleSet exampleSet) {
+		return (cachedSet == exampleSet) ? cached : null;
+	}
+
+	/**
+	 * Starts building the cube of the specified examples in the background,
+	 * if it fits in PatternExplorerSettings.CUBE_BYTES and counting it costs
+	 * at most PatternExplorerParameters.getCubeRecounts() recounts. Cancels
+	 * building the cube of any other set of examples, and replaces its cube
+	 * once built.
+	 * 
+	 * @param exampleSet
+	 */
+	public static void buildInBackground(final EncodedExampleSet exampleSet) {
+		ColumnStore store = exampleSet.getStore();
+		long recount = (long) store.getNumColumns() * exampleSet.size();
+		long budget = PatternExplorerParameters.getCubeRecounts() * recount;
+		if (estimateBytes(store) > PatternExplorerSettings.CUBE_BYTES
+				|| estimateWork(store, exampleSet.size()) > budget) {
+			return;
+		}
+		final OperationContext op = new OperationContext(true);
+		synchronized (PairCube.class) {
+			if (cachedSet == exampleSet || buildingSet == exampleSet) {
+				return;
+			}
+			if (building != null) {
+				building.cancel();
+			}
+			buildingSet = exampleSet;
+			building = op;
+		}
+		BUILDER.execute(new Runnable() {
+			public void run() {
+				try {
+					if (!op.isCanceled()) {
+						build(exampleSet, op);
+					}
+				} catch (UserCancelledException e) {
+					// replaced by the cube of other examples
+				} finally {
+					synchronized (PairCube.class) {
+						if (building == op) {
+							buildingSet = null;
+							building = null;
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Builds the cube of the specified examples on the pool of the specified
+	 * speculative operation, and replaces the cube of any other set of
+	 * examples.
+	 */
+	private static void build(EncodedExampleSet exampleSet,
+			OperationContext op) throws UserCancelledException {
+		synchronized (PairCube.class) {
+			cachedSet = null;
+			cached = null; // let the old cube go before building
+		}
+		PairCube cube = new PairCube(exampleSet);
+		cube.build(op);
+		synchronized (PairCube.class) {
+			if (!op.isCanceled()) {
+				cachedSet = exampleSet;
+				cached = cube;
+			}
+		}
+	}
+
+	/**
+	 * Computes the work of building the cube of a store, in the units of
+	 * OperationContext: every example is counted once for every pair of
+	 * columns and every column.
+	 * 
+	 * @param store
+	 * @param numRows
+	 *            the number of examples
+	 * @return the work
+	 */
+	public static long estimateWork(ColumnStore store, int numRows) {
+		long numColumns = store.getNumColumns();
+		return numColumns * (numColumns + 1) / 2 * numRows;
+	}
+
+	/**
+	 * Computes the memory needed for the cube of the specified store.
+	 * 
+	 * @param store
+	 * @return the size of all counts in bytes
+	 */
+	public static long estimateBytes(ColumnStore store) {
+		long bytes = 0;
+		long before = 0; // values of all previous columns
+		for (int c = 0; c < store.getNumColumns(); c++) {
+			long vals = store.getAttribute(c).getMapping().size();
+			bytes += BYTES_PER_COUNT * vals * (before + 1);
+			before += vals;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Gets the counts of the column of the specified attribute.
+	 * 
+	 * @param name
+	 *            the name of the attribute
+	 * @return the counts, indexed by value
+	 */
+	public int[] getCounts(String name) {
+		return margins[store.getIndex(name)];
+	}
+
+	/**
+	 * Gets the counts of the column of an attribute against a target.
+	 * 
+	 * @param target
+	 *            the name of the target attribute
+	 * @param name
+	 *            the name of the attribute
+	 * @return the counts, indexed by target value then value
+	 */
+	public int[][] getCounts(String target, String name) {
+		int t = store.getIndex(target);
+		int a = store.getIndex(name);
+		if (t < a) {
+			return pairs[t][a - t - 1];
+		}
+		int[][] transposed = pairs[a][t - a - 1];
+		int[][] counts = new int[transposed[0].length][transposed.length];
+		for (int v = 0; v < transposed.length; v++) {
+			for (int tv = 0; tv < counts.length; tv++) {
+				counts[tv][v] = transposed[v][tv];
+			}
+		}
+		return counts;
+	}
+
+	private int getNumValues(int c) {
+		return store.getAttribute(c).getMapping().size();
+	}
+
+	private void build(OperationContext op) throws UserCancelledException {
+		long begin = System.nanoTime();
+		op.setTotalWork(estimateWork(store, exampleSet.size()));
+		try {
+			CounterPool.get(op).invoke(new PairTask(0, numColumns, op));
+		} catch (CancellationException e) {
+			throw new UserCancelledException(e.getMessage());
+		}
+		double time = (System.nanoTime() - begin) / 1000000.0;
+		Log.dbg("[ --- cube time: " + time + " ms, "
+				+ estimateBytes(store) + " bytes --- ]");
+	}
+
+	/**
+	 * Counts column i against all columns after it, in one pass through the
+	 * examples.
+	 */
+	private void countColumn(int i, OperationContext op)
+			throws UserCancelledException {
+		int[] rows = exampleSet.getRows();
+		CountKernel kernel = CountKernel.get();
+		EncodedColumn first = store.getColumn(i);
+		int[] margin = margins[i];
+		CountKernel.CountTable[] tables;
+		tables = new CountKernel.CountTable[pairs[i].length];
+		for (int k = 0; k < tables.length; k++) {
+			tables[k] = kernel.newTable(pairs[i][k]);
+		}
+		int[] iCodes = new int[CHUNK_SIZE];
+		int[] codes = new int[CHUNK_SIZE];
+		int size = exampleSet.size();
+		int unreported = 0; // examples counted since the last report
+		for (int chunk = 0; chunk < size; chunk += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, size - chunk);
+			first.decode(rows, chunk, length, iCodes);
+			for (int j = 0; j < length; j++) {
+				margin[iCodes[j]]++;
+			}
+			for (int k = 0; k < tables.length; k++) {
+				store.getColumn(i + k + 1).decode(rows, chunk, length, codes);
+				tables[k].add(iCodes, codes, length);
+			}
+			unreported += length;
+			if (unreported >= PatternExplorerSettings.PROGRESS_ROWS) {
+				op.makeProgress((long) unreported * (tables.length + 1));
+				unreported = 0;
+			}
+		}
+		for (int k = 0; k < tables.length; k++) {
+			tables[k].finish();
+		}
+		op.makeProgress((long) unreported * (tables.length + 1));
+	}
+
+	/**
+	 * A task counting a range of columns against all columns after them.
+	 * Every column is counted into its own counts, so the tasks share none.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private class PairTask extends RecursiveAction {
+
+		private int from;
+		private int to;
+		private OperationContext op;
+
+		public PairTask(int from, int to, OperationContext op) {
+			this.from = from;
+			this.to = to;
+			this.op = op;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1
+					&& (long) (to - from) * exampleSet.size() >= PatternExplorerSettings.MIN_TASK_CELLS) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new PairTask(from, mid, op), new PairTask(mid, to,
+						op));
+				return;
+			}
+			try {
+				for (int i = from; i < to; i++) {
+					countColumn(i, op);
+				}
+			} catch (UserCancelledException e) {
+				throw new CancellationException(e.getMessage());
+			}
+		}
+	}
+}
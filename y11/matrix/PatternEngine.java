@@ -0,0 +1,126 @@
+package y11.matrix;
+
+import java.util.Map;
+
+import y11.data.ColumnStore;
+import y11.data.EncodedExampleSet;
+import y11.manager.state.LeanViewState;
+import y11.manager.state.MatrixInfo;
+import y11.manager.state.ViewState;
+import y11.manager.util.PreProcessing;
+
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.operator.OperatorException;
+
+/**
+ * Counts matrices without a display, e.g. for batch jobs, a server, or
+ * benchmarks run with -Djava.awt.headless=true. An engine holds one encoded
+ * dataset and computes the MatrixResult of any target attribute over all of
+ * its examples. Counting uses the same CounterPool and strategies as the
+ * histogram display, and any number of targets can be counted at the same
+ * time. The number of counting threads is set with PatternExplorerParameters.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class PatternEngine {
+
+	private ColumnStore store;
+	private MatrixInfo matrixInfo;
+
+	/**
+	 * Creates a new PatternEngine for the specified examples, which are run
+	 * through the PreProcessing pipeline first.
+	 * 
+	 * @param exampleSet
+	 * @throws OperatorException
+	 */
+	public PatternEngine(ExampleSet exampleSet) throws OperatorException {
+		Map numericFlags = PreProcessing.getNumericFlags(exampleSet);
+		this.store = PreProcessing.preProcess(exampleSet);
+		this.matrixInfo = new MatrixInfo(store.getExampleSet(), numericFlags);
+	}
+
+	/**
+	 * Creates a new PatternEngine for examples that are already encoded.
+	 * 
+	 * @param store
+	 *            the preprocessed and encoded examples
+	 * @param matrixInfo
+	 *            the attributes of the examples
+	 */
+	public PatternEngine(ColumnStore store, MatrixInfo matrixInfo) {
+		this.store = store;
+		this.matrixInfo = matrixInfo;
+	}
+
+	/**
+	 * Gets the names of all attributes, each of which can be a target.
+	 * 
+	 * @return the attribute names
+	 */
+	public String[] getAttributeNames() {
+		return matrixInfo.getAttributeNames();
+	}
+
+	/**
+	 * Gets the number of values of an attribute, i.e. the number of rows of
+	 * its matrix.
+	 * 
+	 * @param attribute
+	 *            the name of the attribute
+	 * @return the number of values
+	 */
+	public int getNumValues(String attribute) {
+		return matrixInfo.getNumValuesTarget(attribute);
+	}
+
+	/**
+	 * Gets the encoded examples of this engine.
+	 * 
+	 * @return the ColumnStore
+	 */
+	public ColumnStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Gets the attributes of the examples of this engine.
+	 * 
+	 * @return the MatrixInfo
+	 */
+	public MatrixInfo getMatrixInfo() {
+		return matrixInfo;
+	}
+
+	/**
+	 * Counts the matrix of the specified target attribute.
+	 * 
+	 * @param target
+	 *            the name of the target attribute
+	 * @return the counts and significances
+	 * @throws UserCancelledException
+	 */
+	public MatrixResult count(String target) throws UserCancelledException {
+		return count(target, OperationContext.createHeadless());
+	}
+
+	/**
+	 * Counts the matrix of the specified target attribute, reporting progress
+	 * to the specified operation.
+	 * 
+	 * @param target
+	 *            the name of the target attribute
+	 * @param op
+	 *            a headless context, see OperationContext.createHeadless()
+	 * @return the counts and significances
+	 * @throws UserCancelledException
+	 *             if the operation is cancelled
+	 */
+	public MatrixResult count(String target, OperationContext op)
+			throws UserCancelledException {
+		ViewState view = new LeanViewState(new EncodedExampleSet(store),
+				matrixInfo, null, null, target);
+		return Matrix.createMatrix(view, op).getResult();
+	}
+}
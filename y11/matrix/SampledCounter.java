@@ -0,0 +1,290 @@
+package y11.matrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import y11.data.EncodedExampleSet;
+import y11.logging.Log;
+import y11.manager.state.MatrixInfo;
+import y11.manager.state.ViewState;
+import y11.operator.PatternExplorerParameters;
+import y11.operator.PatternExplorerSettings;
+
+import com.rapidminer.example.Attribute;
+
+/**
+ * Counts a matrix progressively from a growing random sample of the examples.
+ * The examples are split into blocks of consecutive examples, which are
+ * counted in a random order so that every sample keeps the locality of a
+ * scan. The first sample is counted right away and shown with scaled counts,
+ * which completes the operation, so that the user can work with the sampled
+ * view. The larger samples are counted in the background, refining the matrix
+ * and any copies of it after each one until all examples are counted. Every
+ * panel refines its own matrix, which is only stopped by the next operation
+ * of the same panel.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class SampledCounter {
+
+	private static final String THREAD_NAME = "PatternExplorer-Refine-Thread";
+
+	// refining in the background, by the MatrixListener of their panels
+	private static HashMap<MatrixListener, SampledCounter> refining = new HashMap<MatrixListener, SampledCounter>();
+
+	private ViewState view;
+	private OperationContext op;
+	private MatrixListener owner; // of the panel that requested the matrix
+	private EncodedExampleSet exampleSet;
+	private MatrixInfo matrixInfo;
+	private Attribute target;
+	private int[] blockOrder; // the blocks in the order they are counted
+	private int[] stageEnds; // the number of blocks counted after every stage
+	private int[][][] totals; // the counts of all blocks counted so far
+	private int countedRows;
+	private Matrix matrix;
+	private List<Matrix> copies = new CopyOnWriteArrayList<Matrix>();
+	private volatile CounterThread counter; // the counter of the current stage
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a new SampledCounter for the specified view.
+	 * 
+	 * @param view
+	 * @param op
+	 *            the context of the operation, which ends with the first
+	 *            sample
+	 */
+	public SampledCounter(ViewState view, OperationContext op) {
+		this.view = view;
+		this.op = op;
+		this.owner = op.getMatrixListener();
+		this.exampleSet = view.getExampleSet();
+		this.matrixInfo = view.getMatrixInfo();
+		this.target = matrixInfo.getAttribute(view.getTarget());
+
+		int numRows = exampleSet.size();
+		int blockRows = PatternExplorerSettings.SAMPLE_BLOCK_ROWS;
+		int numBlocks = (numRows + blockRows - 1) / blockRows;
+		blockOrder = new int[numBlocks];
+		for (int b = 0; b < numBlocks; b++) {
+			blockOrder[b] = b;
+		}
+		Random random = new Random(numRows);
+		for (int b = numBlocks - 1; b > 0; b--) {
+			int swap = random.nextInt(b + 1);
+			int tmp = blockOrder[b];
+			blockOrder[b] = blockOrder[swap];
+			blockOrder[swap] = tmp;
+		}
+
+		int numStages = 1;
+		long rows = PatternExplorerSettings.SAMPLE_ROWS;
+		while (rows < numRows) {
+			numStages++;
+			rows *= PatternExplorerSettings.SAMPLE_GROWTH;
+		}
+		stageEnds = new int[numStages];
+		rows = PatternExplorerSettings.SAMPLE_ROWS;
+		for (int k = 0; k < numStages; k++) {
+			stageEnds[k] = (int) Math.min(numBlocks, (rows + blockRows - 1)
+					/ blockRows);
+			rows *= PatternExplorerSettings.SAMPLE_GROWTH;
+		}
+		stageEnds[numStages - 1] = numBlocks;
+	}
+
+	/**
+	 * Stops the counter refining in the background for a panel, if any. Its
+	 * matrix keeps the counts of the largest sample counted so far. The
+	 * counters of other panels go on.
+	 * 
+	 * @param owner
+	 *            the MatrixListener of the panel, see
+	 *            OperationContext.getMatrixListener()
+	 */
+	public static synchronized void stopRefining(MatrixListener owner) {
+		SampledCounter s = refining.remove(owner);
+		if (s != null) {
+			s.stopped = true;
+			CounterThread counter = s.counter;
+			if (counter != null) {
+				counter.stop();
+			}
+		}
+	}
+
+	/**
+	 * Refines a copy of a Matrix refined in the background as well, e.g. a
+	 * copy with an expanded column. Called while holding the lock of the
+	 * Matrix copied, so that the copy cannot miss a refinement.
+	 * 
+	 * @param m
+	 *            the Matrix copied
+	 * @param copy
+	 *            the copy, which shows another state of the same view
+	 */
+	static synchronized void follow(Matrix m, Matrix copy) {
+		for (SampledCounter s : refining.values()) {
+			if (s.matrix == m || s.copies.contains(m)) {
+				s.copies.add(copy);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Counts the first sample and starts refining in the background.
+	 * 
+	 * @return the Matrix of the first sample, which is refined in place
+	 * @throws UserCancelledException
+	 */
+	public Matrix start() throws UserCancelledException {
+		int cores = PatternExplorerParameters.getCores();
+		int[][] blocks = CounterThread.partitionColumns(matrixInfo, target);
+		op.setTotalWork((long) matrixInfo.getNumAttributes() * stageRows(0));
+
+		try {
+			countStage(0, blocks, cores, op);
+		} catch (CancellationException e) {
+			throw new UserCancelledException(e.getMessage());
+		}
+		matrix = Matrix.createSampledMatrix(view, totals,
+				(double) exampleSet.size() / countedRows);
+		matrix.setMatrixListener(op.getMatrixListener());
+		if (stageEnds.length > 1) {
+			refineInBackground(blocks, cores);
+		} else if (!op.isHeadless()) {
+			CountFile.save(view, matrix);
+		}
+		return matrix;
+	}
+
+	private void refineInBackground(final int[][] blocks, final int cores) {
+		synchronized (SampledCounter.class) {
+			refining.put(owner, this);
+		}
+		// nobody waits for the refinement, so it is tracked by its own context
+		final OperationContext background = new OperationContext();
+		background.setTotalWork((long) matrixInfo.getNumAttributes()
+				* (exampleSet.size() - countedRows));
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for (int k = 1; k < stageEnds.length && !stopped; k++) {
+						countStage(k, blocks, cores, background);
+						if (!stopped) {
+							double scale = (double) exampleSet.size()
+									/ countedRows;
+							matrix.refine(Matrix.createSampledMatrix(view,
+									totals, scale));
+							// copies made meanwhile are appended, and seen here
+							for (int i = 0; i < copies.size(); i++) {
+								Matrix copy = copies.get(i);
+								copy.refine(Matrix.createSampledMatrix(copy
+										.getView(), totals, scale));
+							}
+						}
+					}
+					if (!stopped && !op.isHeadless()) {
+						CountFile.save(view, matrix);
+					}
+				} catch (CancellationException e) {
+					Log.out("stopped refining at a "
+							+ (100 * countedRows / exampleSet.size())
+							+ "% sample");
+				}
+				synchronized (SampledCounter.class) {
+					if (refining.get(owner) == SampledCounter.this) {
+						refining.remove(owner);
+					}
+				}
+			}
+		}, THREAD_NAME);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Counts the blocks of the k'th stage and adds them to the totals.
+	 */
+	private void countStage(int k, int[][] blocks, int cores,
+			OperationContext op) {
+		long begin = System.nanoTime();
+		int from = (k == 0) ? 0 : stageEnds[k - 1];
+		int[] stage = Arrays.copyOfRange(blockOrder, from, stageEnds[k]);
+		Arrays.sort(stage); // count in storage order
+
+		int numRows = exampleSet.size();
+		int blockRows = PatternExplorerSettings.SAMPLE_BLOCK_ROWS;
+		int[] all = exampleSet.getRows();
+		int[] rows = new int[stageRows(k)];
+		int r = 0;
+		for (int b : stage) {
+			int end = Math.min(numRows, (b + 1) * blockRows);
+			for (int pos = b * blockRows; pos < end; pos++) {
+				rows[r++] = (all == null) ? pos : all[pos];
+			}
+		}
+
+		EncodedExampleSet sample = new EncodedExampleSet(exampleSet
+				.getStore(), rows);
+		CounterThread counter = new CounterThread(sample, matrixInfo, target,
+				null, op);
+		this.counter = counter;
+		if (stopped) {
+			counter.stop(); // stopped while preparing the stage
+		}
+		int numPartitions = getNumPartitions(rows.length, cores);
+		int[][][] tables;
+		if (numPartitions > 1) {
+			tables = CounterPool.get(op).invoke(
+					counter.new PartitionTask(blocks, numPartitions, 0,
+							numPartitions));
+		} else {
+			tables = new int[matrixInfo.getNumAttributes()][][];
+			CounterPool.get(op).invoke(
+					counter.new TableTask(blocks, tables, 0, blocks.length));
+		}
+		if (totals == null) {
+			totals = tables;
+		} else {
+			CounterThread.merge(totals, tables);
+		}
+		countedRows += rows.length;
+		op.setSampleFraction((double) countedRows / numRows);
+
+		double time = (System.nanoTime() - begin) / 1000000.0;
+		Log.dbg("[ --- sample time: " + time + " ms, " + countedRows + " of "
+				+ numRows + " examples --- ]");
+	}
+
+	/**
+	 * Gets the number of examples counted in the k'th stage.
+	 */
+	private int stageRows(int k) {
+		int numRows = exampleSet.size();
+		int blockRows = PatternExplorerSettings.SAMPLE_BLOCK_ROWS;
+		int rows = 0;
+		for (int i = (k == 0) ? 0 : stageEnds[k - 1]; i < stageEnds[k]; i++) {
+			int b = blockOrder[i];
+			rows += Math.min(numRows, (b + 1) * blockRows) - b * blockRows;
+		}
+		return rows;
+	}
+
+	private int getNumPartitions(int numRows, int cores) {
+		int numPartitions = Math.min(cores, numRows
+				/ PatternExplorerSettings.ROWS_PER_PARTITION);
+		long bytes = CounterThread.tableBytes(matrixInfo, target);
+		if (bytes * numPartitions > PatternExplorerSettings.PARTITION_TABLE_BYTES) {
+			return 1;
+		}
+		return Math.max(numPartitions, 1);
+	}
+}
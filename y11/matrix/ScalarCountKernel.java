@@ -0,0 +1,53 @@
+package y11.matrix;
+
+/**
+ * The plain counting kernel. Increments the counts of the column directly,
+ * one example at a time.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class ScalarCountKernel extends CountKernel {
+
+	public static final String NAME = "SCALAR_KERNEL";
+	private static final CountKernel THIS = new ScalarCountKernel(NAME);
+
+	/**
+	 * Gets the only ScalarCountKernel instance.
+	 * 
+	 * @return the CountKernel instance
+	 */
+	public static CountKernel get() {
+		return THIS;
+	}
+
+	/**
+	 * Creates a new ScalarCountKernel with the specified name
+	 * 
+	 * @param name
+	 *            the CountKernel name
+	 */
+	public ScalarCountKernel(String name) {
+		super(name);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CountTable newTable(final int[][] counts) {
+		return new CountTable() {
+
+			@Override
+			public void add(int[] tCodes, int[] codes, int length) {
+				for (int j = 0; j < length; j++) {
+					counts[tCodes[j]][codes[j]]++;
+				}
+			}
+
+			@Override
+			public void finish() {
+			}
+		};
+	}
+}
@@ -0,0 +1,297 @@
+package y11.matrix;
+
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import y11.data.EncodedExampleSet;
+import y11.logging.Log;
+import y11.manager.state.LeanViewState;
+import y11.manager.state.MatrixInfo;
+import y11.manager.state.ViewState;
+import y11.models.AttributeValuePair;
+import y11.operator.PatternExplorerSettings;
+
+/**
+ * Computes the Matrix of the view the user is likely to request next, while
+ * the mouse rests on the label of an attribute (a target change) or of a
+ * target value (a drill-down). Every panel speculates on one view at a time,
+ * which is cancelled as soon as the user requests any other operation in
+ * that panel. The views are computed one after the other by a single
+ * background thread of low priority, and counted on the small speculative
+ * pool of CounterPool, so they take no threads from the user's next
+ * operation. When the user requests the speculated view, the loader picks up
+ * the finished or still running computation instead of starting over.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class Speculator {
+
+	private static final String THREAD_NAME = "PatternExplorer-Speculate-Thread";
+	private static final int WAIT_TIME = 50; // ms between progress updates
+
+	private static final ScheduledExecutorService SCHEDULER = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, THREAD_NAME);
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+
+	// the speculation running or pending, by the MatrixListener of its panel
+	private static HashMap<MatrixListener, Speculator> current = new HashMap<MatrixListener, Speculator>();
+
+	private MatrixListener owner; // of the panel speculated for
+	private ViewState parent; // the view speculated from
+	private String key; // describes the change speculated on
+	private String target; // the new target, or null for a drill-down
+	private AttributeValuePair avp;
+	private boolean removeSingle;
+	private Matrix parentMatrix;
+	private OperationContext op = new OperationContext(true);
+	private Future<?> future; // runs once the dwell time is over
+	private EncodedExampleSet exampleSet; // the drilled down examples
+	private volatile boolean started; // true once the dwell time is over
+	private Matrix matrix;
+	private boolean done;
+
+	private Speculator(MatrixListener owner, ViewState parent, String key) {
+		this.owner = owner;
+		this.parent = parent;
+		this.key = key;
+	}
+
+	/**
+	 * Starts computing the Matrix of a target change, unless it is already
+	 * being computed. Cancels any other speculation of the panel.
+	 * 
+	 * @param owner
+	 *            the MatrixListener of the panel
+	 * @param parent
+	 *            the current view
+	 * @param target
+	 *            the target the user is pointing at
+	 */
+	public static void speculateTargetChange(MatrixListener owner,
+			ViewState parent, String target) {
+		Speculator s = new Speculator(owner, parent, "target '" + target
+				+ "'");
+		s.target = target;
+		speculate(s, parent.getExampleSet().size());
+	}
+
+	/**
+	 * Starts computing the Matrix of a drill-down, unless it is already being
+	 * computed. Cancels any other speculation of the panel.
+	 * 
+	 * @param owner
+	 *            the MatrixListener of the panel
+	 * @param parent
+	 *            the current view
+	 * @param parentMatrix
+	 *            the Matrix of the current view
+	 * @param avp
+	 *            the target value the user is pointing at
+	 * @param removeSingle
+	 *            true if the value would be removed, otherwise focused on
+	 */
+	public static void speculateDrillDown(MatrixListener owner,
+			ViewState parent, Matrix parentMatrix, AttributeValuePair avp,
+			boolean removeSingle) {
+		Speculator s = new Speculator(owner, parent,
+				(removeSingle ? "removing '" : "focusing on '")
+						+ avp.getValue() + "'");
+		s.avp = avp;
+		s.removeSingle = removeSingle;
+		s.parentMatrix = parentMatrix;
+		int size = parent.getExampleSet().size();
+		speculate(s, removeSingle ? size - avp.getCount() : avp.getCount());
+	}
+
+	private static synchronized void speculate(final Speculator s, int numRows) {
+		Speculator running = current.get(s.owner);
+		if (running != null && running.parent == s.parent
+				&& running.key.equals(s.key)) {
+			return; // already speculating on it
+		}
+		cancel(s.owner);
+		if (!PatternExplorerSettings.SPECULATION_ON
+				|| (PatternExplorerSettings.SAMPLING_ON && numRows >= PatternExplorerSettings.SAMPLE_MIN_ROWS)) {
+			return;
+		}
+		current.put(s.owner, s);
+		s.future = SCHEDULER.schedule(new Runnable() {
+			public void run() {
+				s.run();
+			}
+		}, PatternExplorerSettings.SPECULATION_DWELL_MS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Cancels the current speculation of a panel if it has not started
+	 * computing yet, e.g. when the mouse leaves a label before the dwell time
+	 * is over.
+	 * 
+	 * @param owner
+	 *            the MatrixListener of the panel
+	 */
+	public static synchronized void cancelPending(MatrixListener owner) {
+		Speculator s = current.get(owner);
+		if (s != null && !s.started) {
+			cancel(owner);
+		}
+	}
+
+	/**
+	 * Cancels the current speculation of a panel, if any. The speculations of
+	 * other panels go on.
+	 * 
+	 * @param owner
+	 *            the MatrixListener of the panel
+	 */
+	public static synchronized void cancel(MatrixListener owner) {
+		Speculator s = current.remove(owner);
+		if (s != null) {
+			s.op.cancel();
+			s.future.cancel(false); // if the dwell time is not over
+		}
+	}
+
+	/**
+	 * Picks up the speculated Matrix of a target change. Waits for the
+	 * computation if it is still running, reporting its progress to the
+	 * specified operation. Cancels any other speculation of the panel
+	 * requesting the operation.
+	 * 
+	 * @param parent
+	 *            the view the target is changed in
+	 * @param view
+	 *            the view with the new target
+	 * @param op
+	 *            the context of the operation requesting the view
+	 * @return the Matrix, or null if it was not speculated on
+	 * @throws UserCancelledException
+	 */
+	public static Matrix takeTargetChange(ViewState parent, ViewState view,
+			OperationContext op) throws UserCancelledException {
+		Speculator s = take(op.getMatrixListener());
+		if (s == null) {
+			return null;
+		}
+		if (s.parent != parent || !s.started || s.target == null
+				|| !s.target.equals(view.getTarget())) {
+			s.op.cancel();
+			return null;
+		}
+		return s.await(view, op);
+	}
+
+	/**
+	 * Picks up the speculated Matrix of a drill-down, see
+	 * {@link #takeTargetChange(ViewState, ViewState, OperationContext)}.
+	 * 
+	 * @param parent
+	 *            the view drilled down from
+	 * @param view
+	 *            the drilled down view
+	 * @param op
+	 *            the context of the operation requesting the view
+	 * @return the Matrix, or null if it was not speculated on
+	 * @throws UserCancelledException
+	 */
+	public static Matrix takeDrillDown(ViewState parent, ViewState view,
+			OperationContext op) throws UserCancelledException {
+		Speculator s = take(op.getMatrixListener());
+		if (s == null) {
+			return null;
+		}
+		if (s.parent != parent || !s.started || s.exampleSet == null
+				|| !s.exampleSet.isSameFilter(view.getExampleSet())) {
+			s.op.cancel();
+			return null;
+		}
+		return s.await(view, op);
+	}
+
+	private static synchronized Speculator take(MatrixListener owner) {
+		return current.remove(owner);
+	}
+
+	private void run() {
+		ViewState view;
+		synchronized (this) {
+			if (op.isCanceled()) {
+				finish(null);
+				return;
+			}
+			if (target != null) {
+				view = new LeanViewState(parent, target);
+			} else {
+				exampleSet = Matrix.createDrilledDownExampleSet(parent
+						.getExampleSet(), avp, removeSingle);
+				view = new LeanViewState(parent, new MatrixInfo(parent
+						.getMatrixInfo(), avp, removeSingle), exampleSet);
+			}
+			started = true;
+		}
+		Matrix m = null;
+		try {
+			long begin = System.nanoTime();
+			if (target != null) {
+				m = Matrix.createTargetChangedMatrix(view, op);
+			} else {
+				m = Matrix.createDrilledDownMatrix(parentMatrix, view, op);
+			}
+			double time = (System.nanoTime() - begin) / 1000000.0;
+			Log.dbg("[ --- speculated on " + key + ": " + time + " ms --- ]");
+		} catch (UserCancelledException e) {
+			// pre-empted by another operation
+		} finally {
+			finish(m);
+		}
+	}
+
+	private synchronized void finish(Matrix m) {
+		matrix = m;
+		done = true;
+		notifyAll();
+	}
+
+	/**
+	 * Waits for the speculated Matrix, passing on its progress and the
+	 * cancellation of the requesting operation.
+	 */
+	private synchronized Matrix await(ViewState view, OperationContext op)
+			throws UserCancelledException {
+		long reported = 0;
+		while (!done) {
+			if (op.isCanceled()) {
+				this.op.cancel();
+				throw new UserCancelledException("User cancelled operation!");
+			}
+			op.setTotalWork(this.op.getTotalWork());
+			long work = this.op.getWorkDone();
+			op.makeProgress(work - reported);
+			reported = work;
+			try {
+				wait(WAIT_TIME);
+			} catch (InterruptedException e) {
+				this.op.cancel();
+				throw new UserCancelledException(e.getMessage());
+			}
+		}
+		if (matrix != null) {
+			matrix.rebind(view);
+			op.setDidNotRun(); // the monitor may close
+			Log.dbg("[ --- picked up speculation on " + key + " --- ]");
+		}
+		return matrix;
+	}
+}
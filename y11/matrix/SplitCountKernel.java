@@ -0,0 +1,107 @@
+package y11.matrix;
+
+/**
+ * A counting kernel for low-cardinality columns. Counts go to a flat table
+ * indexed by target * vals + value, which is split into SPLITS sub-tables.
+ * Consecutive examples go to different sub-tables, so that repeated values do
+ * not stall on incrementing the same count, and the sub-tables are summed up
+ * when the table is finished. Columns with more than MAX_CELLS counts are
+ * counted by the ScalarCountKernel, since their sub-tables would no longer
+ * fit in the L1 cache.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class SplitCountKernel extends CountKernel {
+
+	public static final String NAME = "SPLIT_KERNEL";
+	private static final CountKernel THIS = new SplitCountKernel(NAME);
+
+	private static final int SPLITS = 4;
+	private static final int MAX_CELLS = 1024;
+
+	/**
+	 * Gets the only SplitCountKernel instance.
+	 * 
+	 * @return the CountKernel instance
+	 */
+	public static CountKernel get() {
+		return THIS;
+	}
+
+	/**
+	 * Creates a new SplitCountKernel with the specified name
+	 * 
+	 * @param name
+	 *            the CountKernel name
+	 */
+	public SplitCountKernel(String name) {
+		super(name);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CountTable newTable(int[][] counts) {
+		int cells = counts.length * counts[0].length;
+		if (cells > MAX_CELLS) {
+			return ScalarCountKernel.get().newTable(counts);
+		}
+		return new SplitTable(counts);
+	}
+
+	/**
+	 * A flat table of SPLITS sub-tables, laid out one after the other.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	private static class SplitTable extends CountTable {
+
+		private int[][] counts;
+		private int[] flat;
+		private int vals;
+		private int cells;
+
+		public SplitTable(int[][] counts) {
+			this.counts = counts;
+			this.vals = counts[0].length;
+			this.cells = counts.length * vals;
+			this.flat = new int[SPLITS * cells];
+		}
+
+		@Override
+		public void add(int[] tCodes, int[] codes, int length) {
+			int[] flat = this.flat;
+			int vals = this.vals;
+			int c1 = cells;
+			int c2 = 2 * cells;
+			int c3 = 3 * cells;
+			int j = 0;
+			for (; j + SPLITS <= length; j += SPLITS) {
+				flat[tCodes[j] * vals + codes[j]]++;
+				flat[c1 + tCodes[j + 1] * vals + codes[j + 1]]++;
+				flat[c2 + tCodes[j + 2] * vals + codes[j + 2]]++;
+				flat[c3 + tCodes[j + 3] * vals + codes[j + 3]]++;
+			}
+			for (; j < length; j++) {
+				flat[tCodes[j] * vals + codes[j]]++;
+			}
+		}
+
+		@Override
+		public void finish() {
+			for (int t = 0; t < counts.length; t++) {
+				int[] row = counts[t];
+				for (int v = 0; v < vals; v++) {
+					int cell = t * vals + v;
+					for (int s = 0; s < SPLITS; s++) {
+						row[v] += flat[s * cells + cell];
+					}
+				}
+			}
+			flat = null;
+		}
+	}
+}
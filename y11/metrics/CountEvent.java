@@ -0,0 +1,49 @@
+package y11.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of one counting task of a CounterThread, i.e. the
+ * counting of a column or of a block of columns over a range of examples.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@Name(CountEvent.NAME)
+@Label("Count")
+@Category( { "PatternExplorer" })
+@Description("Counting of a column or block of columns")
+public class CountEvent extends jdk.jfr.Event {
+
+	public static final String NAME = "y11.PatternExplorer.Count";
+
+	@Label("Column")
+	@Description("The attributes counted, separated by commas")
+	private String column;
+
+	@Label("Rows Scanned")
+	private long rows;
+
+	@Label("Operation")
+	@Description("The kind of operation counted for, see Metrics")
+	private String operation;
+
+	/**
+	 * Sets what was counted.
+	 * 
+	 * @param column
+	 *            the names of the attributes
+	 * @param rows
+	 *            the number of examples scanned
+	 * @param operation
+	 *            the kind of operation, see Metrics
+	 */
+	public void set(String column, long rows, String operation) {
+		this.column = column;
+		this.rows = rows;
+		this.operation = operation;
+	}
+}
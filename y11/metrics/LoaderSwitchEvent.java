@@ -0,0 +1,51 @@
+package y11.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of the DefaultViewLoader switching between the fast
+ * and the lean view loader.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@Name(LoaderSwitchEvent.NAME)
+@Label("Loader Switch")
+@Category( { "PatternExplorer" })
+@Description("The default view loader switched loaders")
+@StackTrace(false)
+public class LoaderSwitchEvent extends jdk.jfr.Event {
+
+	public static final String NAME = "y11.PatternExplorer.LoaderSwitch";
+
+	@Label("From")
+	private String from;
+
+	@Label("To")
+	private String to;
+
+	@Label("Free Memory")
+	@DataAmount
+	private long freeMemory;
+
+	/**
+	 * Creates a new LoaderSwitchEvent.
+	 * 
+	 * @param from
+	 *            the name of the loader switched from
+	 * @param to
+	 *            the name of the loader switched to
+	 * @param freeMemory
+	 *            the free memory the switch was based on, in bytes
+	 */
+	public LoaderSwitchEvent(String from, String to, long freeMemory) {
+		this.from = from;
+		this.to = to;
+		this.freeMemory = freeMemory;
+	}
+}
@@ -0,0 +1,51 @@
+package y11.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a lookup in the MatrixCache by a view loader.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@Name(MatrixCacheEvent.NAME)
+@Label("Matrix Cache Lookup")
+@Category( { "PatternExplorer" })
+@Description("A lookup of the matrix of a view in the MatrixCache")
+@StackTrace(false)
+public class MatrixCacheEvent extends jdk.jfr.Event {
+
+	public static final String NAME = "y11.PatternExplorer.MatrixCache";
+
+	@Label("Hit")
+	private boolean hit;
+
+	@Label("Target")
+	private String target;
+
+	@Label("Key")
+	@Description("The selection, target and columns of the view")
+	private String key;
+
+	/**
+	 * Sets the outcome of the lookup. Only called if the event should be
+	 * committed, since the key is built for the event.
+	 * 
+	 * @param hit
+	 *            true if the matrix was cached
+	 * @param target
+	 *            the name of the target attribute of the view
+	 * @param key
+	 *            the key of the view in the cache, or null if it can not be
+	 *            cached
+	 */
+	public void set(boolean hit, String target, String key) {
+		this.hit = hit;
+		this.target = target;
+		this.key = key;
+	}
+}
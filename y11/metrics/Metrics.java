@@ -0,0 +1,292 @@
+package y11.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import y11.logging.Log;
+import y11.operator.PatternExplorerSettings;
+
+/**
+ * Registry of the timers and counters of the phases of the view pipeline.
+ * Every timing is tagged with the kind of operation it was done for, which
+ * ViewManager sets at the start of every operation. Work done after an
+ * operation, e.g. painting or refining a sample in the background, is tagged
+ * with the operation that caused it, as long as no other operation has
+ * started, and counting for the Speculator is tagged SPECULATION.
+ * <p>
+ * A phase is timed with
+ * 
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop(Metrics.COUNT, start);
+ * </pre>
+ * 
+ * which costs two calls to System.nanoTime() and a few uncontended atomic
+ * additions, so phases are timed per column or per operation, never per
+ * example. The timers are read at runtime with {@link #getSnapshots()}, and
+ * written to a file with {@link #export(File)}, or on exit to the file named
+ * by the patternexplorer.metrics system property.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class Metrics {
+
+	/**
+	 * System property naming a file the metrics are exported to on exit.
+	 */
+	public static final String METRICS_PROPERTY = "patternexplorer.metrics";
+
+	/*
+	 * Phases.
+	 */
+	public static final String OPERATION = "operation"; // a whole operation
+	public static final String PREPROCESS = "preprocess";
+	public static final String COUNT = "count"; // per column or block
+	public static final String COMPACT = "compact"; // per column
+	public static final String MODELS = "models"; // per column
+	public static final String GRAPHS = "graphs"; // per paint creating graphs
+	public static final String PAINT = "paint";
+
+	/*
+	 * Counters.
+	 */
+	public static final String VALUES = "values"; // example values counted
+
+	/*
+	 * Kinds of operations.
+	 */
+	public static final String OPEN = "open";
+	public static final String TARGET_CHANGE = "target";
+	public static final String DRILL_DOWN = "drilldown";
+	public static final String EXPAND = "expand";
+	public static final String SIGMA = "sigma";
+	public static final String ZOOM = "zoom";
+	public static final String HISTORY = "history";
+	public static final String SPECULATION = "speculation";
+	public static final String HEADLESS = "headless";
+
+	private static final String SEP = "/";
+
+	private static final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+	private static volatile String operation = HEADLESS;
+
+	static {
+		final String file = System.getProperty(METRICS_PROPERTY);
+		if (PatternExplorerSettings.METRICS_ON && file != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					try {
+						export(new File(file));
+					} catch (IOException e) {
+						System.err.println("Could not write " + file + ": "
+								+ e.getMessage());
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Sets the kind of operation timings are tagged with from now on.
+	 * 
+	 * @param operation
+	 *            one of the kinds of operations above
+	 */
+	public static void setOperation(String operation) {
+		Metrics.operation = operation;
+	}
+
+	/**
+	 * Gets the kind of operation timings are tagged with.
+	 * 
+	 * @return the operation
+	 */
+	public static String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Starts timing a phase.
+	 * 
+	 * @return the start time, to be passed to stop()
+	 */
+	public static long start() {
+		return PatternExplorerSettings.METRICS_ON ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Stops timing a phase of the current operation.
+	 * 
+	 * @param phase
+	 *            one of the phases above
+	 * @param start
+	 *            the time returned by start()
+	 */
+	public static void stop(String phase, long start) {
+		stop(phase, operation, start);
+	}
+
+	/**
+	 * Stops timing a phase of the specified kind of operation.
+	 * 
+	 * @param phase
+	 * @param operation
+	 * @param start
+	 *            the time returned by start()
+	 */
+	public static void stop(String phase, String operation, long start) {
+		if (PatternExplorerSettings.METRICS_ON) {
+			getTimer(phase, operation).record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Adds to a counter of the current operation, e.g. of examples counted.
+	 * 
+	 * @param name
+	 *            the name of the counter
+	 * @param n
+	 *            the amount to add
+	 */
+	public static void count(String name, long n) {
+		count(name, operation, n);
+	}
+
+	/**
+	 * Adds to a counter of the specified kind of operation.
+	 * 
+	 * @param name
+	 *            the name of the counter
+	 * @param operation
+	 * @param n
+	 *            the amount to add
+	 */
+	public static void count(String name, String operation, long n) {
+		if (PatternExplorerSettings.METRICS_ON) {
+			String key = name + SEP + operation;
+			LongAdder counter = counters.get(key);
+			if (counter == null) {
+				counters.putIfAbsent(key, new LongAdder());
+				counter = counters.get(key);
+			}
+			counter.add(n);
+		}
+	}
+
+	/**
+	 * Gets the timer of a phase of a kind of operation.
+	 * 
+	 * @param phase
+	 * @param operation
+	 * @return the timer, created if needed
+	 */
+	public static Timer getTimer(String phase, String operation) {
+		String key = phase + SEP + operation;
+		Timer timer = timers.get(key);
+		if (timer == null) {
+			timers.putIfAbsent(key, new Timer(phase, operation));
+			timer = timers.get(key);
+		}
+		return timer;
+	}
+
+	/**
+	 * Gets the current state of all timers, sorted by phase and operation.
+	 * 
+	 * @return the snapshots
+	 */
+	public static List<Timer.Snapshot> getSnapshots() {
+		List<Timer.Snapshot> snapshots = new ArrayList<Timer.Snapshot>();
+		for (Timer timer : timers.values()) {
+			snapshots.add(timer.getSnapshot());
+		}
+		Collections.sort(snapshots, new Comparator<Timer.Snapshot>() {
+			public int compare(Timer.Snapshot a, Timer.Snapshot b) {
+				int c = a.getPhase().compareTo(b.getPhase());
+				return (c != 0) ? c : a.getOperation().compareTo(
+						b.getOperation());
+			}
+		});
+		return snapshots;
+	}
+
+	/**
+	 * Gets the current values of all counters, by name and operation.
+	 * 
+	 * @return the values, sorted by key
+	 */
+	public static Map<String, Long> getCounters() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			values.put(counter.getKey(), counter.getValue().sum());
+		}
+		return values;
+	}
+
+	/**
+	 * Clears all timers and counters.
+	 */
+	public static void reset() {
+		timers.clear();
+		counters.clear();
+	}
+
+	/**
+	 * Writes all timers and counters to a CSV file, one line per timer or
+	 * counter. Times are in milliseconds.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void export(File file) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(file));
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+		Log.dbg("[ --- wrote metrics to " + file + " --- ]");
+	}
+
+	/**
+	 * Writes all timers and counters as CSV.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void write(Writer out) throws IOException {
+		out.write("kind,phase,operation,count,total_ms,mean_ms,p50_ms,p90_ms,"
+				+ "p99_ms,p999_ms,max_ms\n");
+		for (Timer.Snapshot s : getSnapshots()) {
+			out.write("timer," + s.getPhase() + "," + s.getOperation() + ","
+					+ s.getCount() + "," + ms(s.getTotal()) + ","
+					+ ms(s.getMean()) + "," + ms(s.getPercentile(50)) + ","
+					+ ms(s.getPercentile(90)) + "," + ms(s.getPercentile(99))
+					+ "," + ms(s.getPercentile(99.9)) + "," + ms(s.getMax())
+					+ "\n");
+		}
+		for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+			String[] key = counter.getKey().split(SEP, 2);
+			out.write("counter," + key[0] + "," + key[1] + ","
+					+ counter.getValue() + ",,,,,,,\n");
+		}
+	}
+
+	private static double ms(double nanos) {
+		return Math.round(nanos / 1000) / 1000.0;
+	}
+}
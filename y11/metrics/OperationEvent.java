@@ -0,0 +1,72 @@
+package y11.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of one ViewManager operation, from the click to the
+ * new view, so that the samples and allocations of a recording can be tied
+ * to what the user did. Like the other events of this package, it costs
+ * next to nothing unless a recording with the event enabled is running.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+@Name(OperationEvent.NAME)
+@Label("Operation")
+@Category( { "PatternExplorer" })
+@Description("An operation of the histogram display")
+public class OperationEvent extends jdk.jfr.Event {
+
+	public static final String NAME = "y11.PatternExplorer.Operation";
+
+	@Label("Operation")
+	@Description("The kind of operation, see Metrics")
+	private String operation;
+
+	@Label("Target")
+	private String target;
+
+	@Label("Rows")
+	@Description("The number of examples in the new view")
+	private long rows;
+
+	@Label("Columns")
+	@Description("The number of attributes in the new view")
+	private int columns;
+
+	@Label("Loader")
+	@Description("The view loader the operation was done with")
+	private String loader;
+
+	/**
+	 * Creates a new OperationEvent.
+	 * 
+	 * @param operation
+	 *            the kind of operation, see Metrics
+	 */
+	public OperationEvent(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * Sets the view the operation ended in.
+	 * 
+	 * @param target
+	 *            the name of the target attribute
+	 * @param rows
+	 *            the number of examples
+	 * @param columns
+	 *            the number of attributes
+	 * @param loader
+	 *            the name of the view loader
+	 */
+	public void setView(String target, long rows, int columns, String loader) {
+		this.target = target;
+		this.rows = rows;
+		this.columns = columns;
+		this.loader = loader;
+	}
+}
@@ -0,0 +1,207 @@
+package y11.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times one phase of one kind of operation. Keeps the number of timings, their
+ * total and their maximum, and a histogram of the timings from which
+ * percentiles are read. Like an HDR histogram, the histogram has SUB_BUCKETS
+ * linear buckets for every power of two, so percentiles are accurate to about
+ * 3% from nanoseconds to hours with a fixed, small array. Timings are
+ * recorded from any number of threads without locking.
+ * 
+ * @author Caleb Sotelo
+ * 
+ */
+public class Timer {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int NUM_BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final String phase;
+	private final String operation;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private volatile long max;
+
+	/**
+	 * Creates a new Timer.
+	 * 
+	 * @param phase
+	 *            the phase timed
+	 * @param operation
+	 *            the kind of operation timed
+	 */
+	Timer(String phase, String operation) {
+		this.phase = phase;
+		this.operation = operation;
+	}
+
+	/**
+	 * Records a timing.
+	 * 
+	 * @param nanos
+	 *            the time taken, in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		count.increment();
+		total.add(nanos);
+		buckets.incrementAndGet(bucket(nanos));
+		if (nanos > max) {
+			synchronized (this) {
+				if (nanos > max) {
+					max = nanos;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the current state of this Timer. Timings recorded while the
+	 * snapshot is taken may be left out of some of its figures.
+	 * 
+	 * @return the snapshot
+	 */
+	public Snapshot getSnapshot() {
+		long[] counts = new long[NUM_BUCKETS];
+		for (int b = 0; b < counts.length; b++) {
+			counts[b] = buckets.get(b);
+		}
+		return new Snapshot(phase, operation, count.sum(), total.sum(), max,
+				counts);
+	}
+
+	/**
+	 * Gets the bucket of a value: the value itself below SUB_BUCKETS, and
+	 * otherwise SUB_BUCKETS buckets per power of two.
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BITS)) - SUB_BUCKETS;
+		return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Gets the middle of the values of a bucket.
+	 */
+	private static long value(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) / 2;
+	}
+
+	/**
+	 * The state of a Timer at one point in time.
+	 * 
+	 * @author Caleb Sotelo
+	 * 
+	 */
+	public static class Snapshot {
+
+		private String phase;
+		private String operation;
+		private long count;
+		private long total;
+		private long max;
+		private long[] buckets;
+
+		private Snapshot(String phase, String operation, long count,
+				long total, long max, long[] buckets) {
+			this.phase = phase;
+			this.operation = operation;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+			this.buckets = buckets;
+		}
+
+		/**
+		 * Gets the phase timed, see Metrics.
+		 * 
+		 * @return the phase
+		 */
+		public String getPhase() {
+			return phase;
+		}
+
+		/**
+		 * Gets the kind of operation timed, see Metrics.
+		 * 
+		 * @return the operation
+		 */
+		public String getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Gets the number of timings.
+		 * 
+		 * @return the count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Gets the sum of all timings.
+		 * 
+		 * @return the total, in nanoseconds
+		 */
+		public long getTotal() {
+			return total;
+		}
+
+		/**
+		 * Gets the mean timing.
+		 * 
+		 * @return the mean, in nanoseconds
+		 */
+		public double getMean() {
+			return (count == 0) ? 0 : (double) total / count;
+		}
+
+		/**
+		 * Gets the longest timing.
+		 * 
+		 * @return the maximum, in nanoseconds
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Gets a percentile of the timings.
+		 * 
+		 * @param percentile
+		 *            from 0 to 100
+		 * @return the timing, in nanoseconds, of which the percentile of all
+		 *         timings are at most as long
+		 */
+		public long getPercentile(double percentile) {
+			long recorded = 0;
+			for (long c : buckets) {
+				recorded += c;
+			}
+			long seen = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				seen += buckets[b];
+				if (seen > 0 && seen >= percentile / 100 * recorded) {
+					return Math.min(value(b), max);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -12,6 +12,7 @@ public class AttributeValuePair {
 	private String attribute;
 	private String value;
 	private int count;
+	private boolean exact;
 
 	/**
 	 * Creates a new AttributeValuePair with the specified references.
@@ -21,9 +22,24 @@ public class AttributeValuePair {
 	 * @param count
 	 */
 	public AttributeValuePair(String attribute, String value, int count) {
+		this(attribute, value, count, true);
+	}
+
+	/**
+	 * Creates a new AttributeValuePair whose count may be estimated.
+	 * 
+	 * @param attribute
+	 * @param value
+	 * @param count
+	 * @param exact
+	 *            false if the count is scaled up from a sample
+	 */
+	public AttributeValuePair(String attribute, String value, int count,
+			boolean exact) {
 		this.attribute = attribute;
 		this.value = value;
 		this.count = count;
+		this.exact = exact;
 	}
 
 	/**
@@ -52,4 +68,14 @@ public class AttributeValuePair {
 	public int getCount() {
 		return count;
 	}
+
+	/**
+	 * Tests if the number of examples was counted, not scaled up from a
+	 * sample.
+	 * 
+	 * @return True if the count is exact
+	 */
+	public boolean isExact() {
+		return exact;
+	}
 }
@@ -37,7 +37,7 @@ public class AttributeHistogramModel extends HistogramModel {
 		for (int c : counts) {
 			total += c;
 		}
-		if (info.isExpandable(attribute)) {
+		if (info.isExpandable(ordinal)) {
 			// sort the top elements
 			PriorityQueue<IndexValuePair> sorter = new PriorityQueue<IndexValuePair>();
 			for (int i = 0; i < counts.length; i++) {
@@ -52,7 +52,7 @@ public class AttributeHistogramModel extends HistogramModel {
 				compactCounts[i] = ivp.value;
 				visibleIndices[i] = ivp.index;
 			}
-			if (!info.isExpanded(attribute)) {
+			if (!info.isExpanded(ordinal)) {
 				this.counts = compactCounts;
 			}
 		}
@@ -129,7 +129,7 @@ public class AttributeHistogramModel extends HistogramModel {
 	 * @return
 	 */
 	public boolean isExpandable() {
-		return info.isExpandable(attribute);
+		return info.isExpandable(ordinal);
 	}
 
 	/**
@@ -138,7 +138,7 @@ public class AttributeHistogramModel extends HistogramModel {
 	 * @return
 	 */
 	public boolean isExpanded() {
-		return info.isExpanded(attribute);
+		return info.isExpanded(ordinal);
 	}
 
 	/**
@@ -154,7 +154,7 @@ public class AttributeHistogramModel extends HistogramModel {
 	}
 
 	private HistogramModel toggleExpand() {
-		if (info.isExpanded(attribute)) {
+		if (info.isExpanded(ordinal)) {
 			counts = fullCounts;
 		} else {
 			counts = compactCounts;
@@ -1,5 +1,6 @@
 package y11.models.histogram;
 
+import y11.data.SparseTable;
 import y11.manager.state.MatrixInfo;
 
 import com.rapidminer.example.Attribute;
@@ -19,6 +20,8 @@ public class DefaultHistogramModel extends HistogramModel {
 	private String value;
 	private double[] sigmas;
 	private int[] fullCounts;
+	private SparseTable sparse; // backs the full counts if they are sparse
+	private int sparseRow;
 
 	/**
 	 * Creates a new DefaultHistogramModel with the specified settings.
@@ -43,6 +46,39 @@ public class DefaultHistogramModel extends HistogramModel {
 		}
 	}
 
+	/**
+	 * Creates a new DefaultHistogramModel from a row of sparse counts. Only
+	 * the visible bars are copied out of the table, the full counts are
+	 * expanded from it if the attribute is expanded later on.
+	 * 
+	 * @param table
+	 *            the counts of all target values
+	 * @param row
+	 *            the row of the target value
+	 * @param visible
+	 *            the visible bars, or null if all bars are visible
+	 * @param attribute
+	 * @param target
+	 * @param value
+	 * @param mi
+	 */
+	public DefaultHistogramModel(SparseTable table, int row, int[] visible,
+			Attribute attribute, Attribute target, String value, MatrixInfo mi) {
+		super((visible == null) ? table.getRow(row) : table.gather(row,
+				visible), attribute, mi);
+		sparse = table;
+		sparseRow = row;
+		if (visible == null) {
+			fullCounts = counts;
+		}
+		this.target = target;
+		this.value = value;
+		name = TYPE + HistogramModel.NAME_SEP + attribute.getName() + ":"
+				+ target.getName() + "." + value;
+		maxCount = table.getRowMax(row);
+		total = table.getRowSum(row);
+	}
+
 	/**
 	 * Copy constructor.
 	 * 
@@ -54,6 +90,8 @@ public class DefaultHistogramModel extends HistogramModel {
 		this.value = copy.value;
 		this.sigmas = copy.sigmas;
 		this.fullCounts = copy.fullCounts;
+		this.sparse = copy.sparse;
+		this.sparseRow = copy.sparseRow;
 	}
 
 	/**
@@ -102,17 +140,52 @@ public class DefaultHistogramModel extends HistogramModel {
 	 *            the AttributeHistogramModel to compare with.
 	 */
 	public void setIsSignificant(AttributeHistogramModel aModel) {
+		setIsSignificant(aModel, 1);
+	}
+
+	/**
+	 * Marks each bar as significant, for counts that were scaled up from a
+	 * sample of the examples. Scaling up by a factor multiplies the variance
+	 * of the counts by the same factor, so the standard deviation is widened
+	 * accordingly.
+	 * 
+	 * @param aModel
+	 *            the AttributeHistogramModel to compare with.
+	 * @param scale
+	 *            the factor the counts were scaled up by, 1 if exact
+	 */
+	public void setIsSignificant(AttributeHistogramModel aModel, double scale) {
 		sigmas = new double[counts.length];
-		double t = total;
-		double f_i, s_i, q_i;
 		for (int m_i = 0; m_i < sigmas.length; m_i++) {
-			f_i = ((double) aModel.getCount(m_i)) / aModel.getTotal();
-			s_i = Math.sqrt(t * f_i * (1 - f_i));
-			q_i = (s_i == 0.0) ? 0 : (counts[m_i] - (f_i * t)) / s_i;
-			sigmas[m_i] = q_i;
+			sigmas[m_i] = computeSigma(counts[m_i], total, aModel
+					.getCount(m_i), aModel.getTotal(), scale);
 		}
 	}
 
+	/**
+	 * Computes the significance (z-score) of a single bar, see
+	 * {@link #setIsSignificant(AttributeHistogramModel, double)}.
+	 * 
+	 * @param count
+	 *            the count of the bar
+	 * @param total
+	 *            the count of the target value, i.e. of the whole histogram
+	 * @param valueCount
+	 *            the count of the attribute value over all target values
+	 * @param numExamples
+	 *            the count of all examples
+	 * @param scale
+	 *            the factor the counts were scaled up by, 1 if exact
+	 * @return the z-score
+	 */
+	public static double computeSigma(int count, int total, int valueCount,
+			int numExamples, double scale) {
+		double t = total;
+		double f_i = ((double) valueCount) / numExamples;
+		double s_i = Math.sqrt(t * f_i * (1 - f_i) * scale);
+		return (s_i == 0.0) ? 0 : (count - (f_i * t)) / s_i;
+	}
+
 	/**
 	 * Tests if the i'th bar is significant.
 	 * 
@@ -168,6 +241,13 @@ public class DefaultHistogramModel extends HistogramModel {
 		return modify.toggleExpand(visible);
 	}
 
+	private int[] getFullCounts() {
+		if (fullCounts == null) {
+			fullCounts = sparse.getRow(sparseRow);
+		}
+		return fullCounts;
+	}
+
 	/**
 	 * Expands or compacts this model.
 	 * 
@@ -175,8 +255,8 @@ public class DefaultHistogramModel extends HistogramModel {
 	 * @return
 	 */
 	private HistogramModel toggleExpand(int[] visible) {
-		if (info.isExpanded(attribute)) {
-			counts = fullCounts;
+		if (info.isExpanded(ordinal)) {
+			counts = getFullCounts();
 		} else {
 			modifyThisCompact(visible);
 		}
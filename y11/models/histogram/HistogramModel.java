@@ -20,6 +20,7 @@ public abstract class HistogramModel {
 
 	protected int[] counts;
 	protected Attribute attribute;
+	protected int ordinal; // of the attribute, see MatrixInfo.getOrdinal()
 	protected String name;
 	protected int maxCount;
 	protected int maxColCount;
@@ -36,6 +37,7 @@ public abstract class HistogramModel {
 	public HistogramModel(int[] counts, Attribute a, MatrixInfo mi) {
 		setCounts(counts);
 		this.attribute = a;
+		this.ordinal = mi.getOrdinal(a);
 		this.info = mi;
 	}
 
@@ -48,6 +50,7 @@ public abstract class HistogramModel {
 	public HistogramModel(HistogramModel copy) {
 
 		this.attribute = copy.attribute;
+		this.ordinal = copy.ordinal;
 		this.name = copy.name;
 		this.maxCount = copy.maxCount;
 		this.maxColCount = copy.maxColCount;
@@ -176,7 +179,7 @@ public abstract class HistogramModel {
 	 * @return
 	 */
 	public String getValueName(int i) {
-		return info.getValue(attribute, i);
+		return info.getValue(ordinal, i);
 	}
 
 }
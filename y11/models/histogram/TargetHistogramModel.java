@@ -14,6 +14,7 @@ public class TargetHistogramModel extends HistogramModel {
 
 	private static final String TYPE = "TARGET_HISTO_MODEL";
 	private String value;
+	private boolean exact;
 
 	/**
 	 * Creates a new TargetHistogramModel with the specified settings.
@@ -22,11 +23,14 @@ public class TargetHistogramModel extends HistogramModel {
 	 * @param t
 	 * @param value
 	 * @param mi
+	 * @param exact
+	 *            false if the counts are scaled up from a sample
 	 */
 	public TargetHistogramModel(int[] counts, Attribute t, String value,
-			MatrixInfo mi) {
+			MatrixInfo mi, boolean exact) {
 		super(counts, t, mi);
 		this.value = value;
+		this.exact = exact;
 		name = TYPE + HistogramModel.NAME_SEP + t.getName() + "." + value;
 	}
 
@@ -39,6 +43,16 @@ public class TargetHistogramModel extends HistogramModel {
 		return super.getCount(0);
 	}
 
+	/**
+	 * Tests if the count of this model was counted, not scaled up from a
+	 * sample.
+	 * 
+	 * @return True if the count is exact
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
 	/**
 	 * Computes and returns the relative height of the one bar in this model.
 	 * 
@@ -63,6 +77,6 @@ public class TargetHistogramModel extends HistogramModel {
 	 * @return
 	 */
 	public boolean canDrillDown() {
-		return info.canDrillDown(attribute);
+		return info.canDrillDown(ordinal);
 	}
 }
@@ -18,42 +18,13 @@ import com.rapidminer.parameter.ParameterTypeString;
  */
 public class PatternExplorerOperator extends Operator {
 
-	private static int paramCores;
-	private static String paramTarget;
-	private static int paramBins;
 	private static int maxCores = Runtime.getRuntime().availableProcessors();
 
 	public static final String PARAMETER_CORES = "Number of threads to use for counting ("
 			+ maxCores + " cores available)";
 	public static final String PARAMETER_TARGET = "Name of starting target attribute (leave empty for default)";
 	public static final String PARAMETER_BINS = "Number of bins for discretization of numeric attributes";
-
-	/**
-	 * Gets the PARAMETER_CORES parameter
-	 * 
-	 * @return
-	 */
-	public static int getParamCores() {
-		return paramCores;
-	}
-
-	/**
-	 * Gets the PARAMETER_TARGET parameter
-	 * 
-	 * @return
-	 */
-	public static String getParamTarget() {
-		return paramTarget;
-	}
-
-	/**
-	 * Gets the PARAMETER_BINS parameter
-	 * 
-	 * @return
-	 */
-	public static int getParamBins() {
-		return paramBins;
-	}
+	public static final String PARAMETER_CUBE_RECOUNTS = "Number of recounts the counts of all column pairs may cost (0 for none)";
 
 	/** Creates a new PatternExplorerOperator */
 	public PatternExplorerOperator(OperatorDescription description) {
@@ -65,9 +36,12 @@ public class PatternExplorerOperator extends Operator {
 
 		ExampleSet exampleSet = getInput(ExampleSet.class);
 
-		paramCores = getParameterAsInt(PARAMETER_CORES);
-		paramTarget = getParameterAsString(PARAMETER_TARGET);
-		paramBins = getParameterAsInt(PARAMETER_BINS);
+		PatternExplorerParameters.setCores(getParameterAsInt(PARAMETER_CORES));
+		PatternExplorerParameters
+				.setTarget(getParameterAsString(PARAMETER_TARGET));
+		PatternExplorerParameters.setBins(getParameterAsInt(PARAMETER_BINS));
+		PatternExplorerParameters
+				.setCubeRecounts(getParameterAsInt(PARAMETER_CUBE_RECOUNTS));
 
 		PatternExplorer explorer = new PatternExplorer(exampleSet);
 
@@ -90,6 +64,10 @@ public class PatternExplorerOperator extends Operator {
 				PatternExplorerSettings.DEFAULT_NUMERIC_BINS);
 		type.setExpert(false);
 		types.add(type);
+		type = new ParameterTypeInt(PARAMETER_CUBE_RECOUNTS,
+				PARAMETER_CUBE_RECOUNTS, 0, 1000,
+				PatternExplorerSettings.DEFAULT_CUBE_RECOUNTS);
+		types.add(type);
 		return types;
 	}
 
@@ -0,0 +1,93 @@
+package y11.operator;
+
+/**
+ * Holds the parameters PatternExplorer runs with. The PatternExplorerOperator
+ * sets them from its operator parameters; without the operator, e.g. in a
+ * batch job, they keep their defaults unless set explicitly.
+ * 
+ * @author Caleb Sotelo
+ */
+public class PatternExplorerParameters {
+
+	private static int cores = Runtime.getRuntime().availableProcessors();
+	private static String target = "";
+	private static int bins = PatternExplorerSettings.DEFAULT_NUMERIC_BINS;
+	private static int cubeRecounts = PatternExplorerSettings.DEFAULT_CUBE_RECOUNTS;
+
+	/**
+	 * Gets the number of threads to use for counting.
+	 * 
+	 * @return the number of threads
+	 */
+	public static int getCores() {
+		return cores;
+	}
+
+	/**
+	 * Sets the number of threads to use for counting.
+	 * 
+	 * @param cores
+	 */
+	public static void setCores(int cores) {
+		PatternExplorerParameters.cores = cores;
+	}
+
+	/**
+	 * Gets the name of the starting target attribute.
+	 * 
+	 * @return the name, or "" for the default
+	 */
+	public static String getTarget() {
+		return target;
+	}
+
+	/**
+	 * Sets the name of the starting target attribute.
+	 * 
+	 * @param target
+	 *            the name, or "" for the default
+	 */
+	public static void setTarget(String target) {
+		PatternExplorerParameters.target = target;
+	}
+
+	/**
+	 * Gets the number of bins numeric attributes are discretized into.
+	 * 
+	 * @return the number of bins
+	 */
+	public static int getBins() {
+		return bins;
+	}
+
+	/**
+	 * Sets the number of bins numeric attributes are discretized into.
+	 * 
+	 * @param bins
+	 */
+	public static void setBins(int bins) {
+		PatternExplorerParameters.bins = bins;
+	}
+
+	/**
+	 * Gets the number of recounts the counts of all pairs of columns (see
+	 * PairCube) may cost at most to be built in the background.
+	 * 
+	 * @return the number of recounts, 0 if no cube is built
+	 */
+	public static int getCubeRecounts() {
+		return cubeRecounts;
+	}
+
+	/**
+	 * Sets the number of recounts the counts of all pairs of columns may cost
+	 * at most to be built in the background. The cube of n columns costs
+	 * about (n + 1) / 2 recounts.
+	 * 
+	 * @param cubeRecounts
+	 *            the number of recounts, 0 to build no cube
+	 */
+	public static void setCubeRecounts(int cubeRecounts) {
+		PatternExplorerParameters.cubeRecounts = cubeRecounts;
+	}
+}
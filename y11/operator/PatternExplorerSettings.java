@@ -1,7 +1,10 @@
 package y11.operator;
 
+import java.io.File;
+
 import y11.manager.loader.DefaultViewLoader;
 import y11.manager.loader.LeanViewLoader;
+import y11.matrix.SplitCountKernel;
 
 /**
  * Non GUI-related settings for tweaking. These can easily become operator
@@ -32,6 +35,124 @@ public class PatternExplorerSettings {
 	public static final int DEFAULT_NUMERIC_BINS = 6;
 	public static final String MISSING_VALUE_NAME = "MISSING";
 
+	/*
+	 * Counting settings. Columns are counted in blocks whose counts fit in
+	 * COUNT_BLOCK_BYTES (about the size of an L2 cache) with one pass through
+	 * the examples per block, once there are at least FUSED_ROWS_PER_THREAD
+	 * examples for every counting thread.
+	 */
+	public static final int COUNT_BLOCK_BYTES = 262144; // 256 kb
+	public static final int FUSED_ROWS_PER_THREAD = 50000;
+
+	/*
+	 * Examples are partitioned among the counting threads when there are too
+	 * few columns to keep them busy. Every partition holds at least
+	 * ROWS_PER_PARTITION examples, and the private counts of all partitions
+	 * must fit in PARTITION_TABLE_BYTES.
+	 */
+	public static final int ROWS_PER_PARTITION = 20000;
+	public static final long PARTITION_TABLE_BYTES = 67108864; // 64 mb
+
+	/*
+	 * Columns of at least SPARSE_MIN_CELLS counts against the target, and at
+	 * least SPARSE_CELLS_PER_ROW counts per example (so that most counts are
+	 * zero), are counted into a SparseTable instead of dense counts. Sparse
+	 * columns are not partitioned by example.
+	 */
+	public static final int SPARSE_MIN_CELLS = 1048576;
+	public static final int SPARSE_CELLS_PER_ROW = 4;
+
+	/*
+	 * Counting reports progress and checks for cancellation every
+	 * PROGRESS_ROWS examples of a column block. A check costs about as much as
+	 * counting a few hundred values, which keeps it well under 1% of the
+	 * counting time.
+	 */
+	public static final int PROGRESS_ROWS = 65536;
+
+	/*
+	 * Speculative precomputation. Once the mouse rests on a target label or a
+	 * value label for SPECULATION_DWELL_MS, the matrix of the target change
+	 * or drill-down is computed in the background. Views large enough to be
+	 * sampled are not computed speculatively. Speculation counts on a pool of
+	 * its own, of one low priority thread per SPECULATION_SHARE counting
+	 * threads, so that it never takes threads from the user's operations.
+	 */
+	public static final boolean SPECULATION_ON = true;
+	public static final int SPECULATION_DWELL_MS = 300;
+	public static final int SPECULATION_SHARE = 4;
+
+	/*
+	 * Counting tasks are split for work stealing until they cover fewer than
+	 * MIN_TASK_CELLS example values, below which scheduling costs more than
+	 * it saves.
+	 */
+	public static final long MIN_TASK_CELLS = 262144;
+
+	/*
+	 * Counting kernel, see CountKernel. Can be overridden with the
+	 * patternexplorer.kernel system property.
+	 */
+	public static final String COUNT_KERNEL = SplitCountKernel.NAME;
+
+	/*
+	 * Target changes are served from the counts of all pairs of columns (see
+	 * PairCube) when these fit in CUBE_BYTES. The first target change
+	 * recounts, and the cube is built in the background if counting it costs
+	 * at most as much as a number of recounts, DEFAULT_CUBE_RECOUNTS unless
+	 * set in PatternExplorerParameters, i.e. for up to about twice as many
+	 * columns.
+	 */
+	public static final long CUBE_BYTES = 67108864; // 64 mb
+	public static final int DEFAULT_CUBE_RECOUNTS = 16;
+
+	/*
+	 * Matrices are cached by the view they show (see MatrixCache), evicting
+	 * the least recently used ones once their estimated size exceeds
+	 * MATRIX_CACHE_BYTES, or MATRIX_CACHE_LEAN_BYTES while the LeanViewLoader
+	 * saves memory.
+	 */
+	public static final long MATRIX_CACHE_BYTES = 134217728; // 128 mb
+	public static final long MATRIX_CACHE_LEAN_BYTES = 16777216; // 16 mb
+
+	/*
+	 * The counts of every matrix of all examples are written to a file in
+	 * COUNT_FILE_DIR, so that the matrix is rebuilt from the file instead of
+	 * counted when the same dataset is opened again, see CountFile. Can be
+	 * turned off with the patternexplorer.countfiles system property. Only
+	 * the COUNT_FILES_MAX files used last are kept.
+	 */
+	public static final boolean COUNT_FILES_ON = true;
+	public static final int COUNT_FILES_MAX = 64;
+	public static final String COUNT_FILE_DIR = System
+			.getProperty("java.io.tmpdir")
+			+ File.separator + "patternexplorer";
+
+	/*
+	 * Drill-downs select rows from a bitmap index of all values, and matrices
+	 * are counted from bitmap intersections when that reads less than a scan.
+	 */
+	public static final boolean BITMAP_INDEX_ON = true;
+
+	/*
+	 * Matrices of at least SAMPLE_MIN_ROWS examples are first counted from a
+	 * random sample of about SAMPLE_ROWS examples, in blocks of
+	 * SAMPLE_BLOCK_ROWS consecutive examples, and shown with scaled counts.
+	 * The sample then grows by SAMPLE_GROWTH in the background until all
+	 * examples are counted.
+	 */
+	public static final boolean SAMPLING_ON = true;
+	public static final int SAMPLE_MIN_ROWS = 4000000;
+	public static final int SAMPLE_ROWS = 262144;
+	public static final int SAMPLE_BLOCK_ROWS = 4096;
+	public static final int SAMPLE_GROWTH = 8;
+
+	/*
+	 * Phases of the view pipeline are timed per kind of operation, see
+	 * Metrics.
+	 */
+	public static final boolean METRICS_ON = true;
+
 	/*
 	 * Hitsory loader initial settings
 	 */